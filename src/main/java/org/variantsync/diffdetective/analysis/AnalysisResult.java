@@ -2,6 +2,8 @@ package org.variantsync.diffdetective.analysis;
 
 import org.variantsync.diffdetective.diff.difftree.serialize.DiffTreeSerializeDebugData;
 import org.variantsync.diffdetective.diff.result.DiffError;
+import org.variantsync.diffdetective.feature.ConditionStatistics;
+import org.variantsync.diffdetective.metadata.CacheStatistics;
 import org.variantsync.diffdetective.metadata.ElementaryPatternCount;
 import org.variantsync.diffdetective.metadata.ExplainedFilterSummary;
 import org.variantsync.diffdetective.metadata.Metadata;
@@ -49,11 +51,15 @@ public class AnalysisResult implements Metadata<AnalysisResult> {
         a.emptyCommits += b.emptyCommits;
         a.failedCommits += b.failedCommits;
         a.exportedTrees += b.exportedTrees;
+        a.commitsOverRenameLimit += b.commitsOverRenameLimit;
+        a.commitsFilteredAtWalkTime += b.commitsFilteredAtWalkTime;
         a.runtimeInSeconds += b.runtimeInSeconds;
         a.runtimeWithMultithreadingInSeconds += b.runtimeWithMultithreadingInSeconds;
         a.min.set(CommitProcessTime.min(a.min, b.min));
         a.max.set(CommitProcessTime.max(a.max, b.max));
         a.debugData.append(b.debugData);
+        a.blobCacheStatistics.append(b.blobCacheStatistics);
+        a.conditionStatistics.append(b.conditionStatistics);
         a.filterHits.append(b.filterHits);
         a.elementaryPatternCounts.append(b.elementaryPatternCounts);
         MergeMap.putAllValues(a.customInfo, b.customInfo, Semigroup.assertEquals());
@@ -75,10 +81,14 @@ public class AnalysisResult implements Metadata<AnalysisResult> {
     public int emptyCommits;
     public int failedCommits;
     public int exportedTrees;
+    public int commitsOverRenameLimit;
+    public int commitsFilteredAtWalkTime;
     public double runtimeInSeconds;
     public double runtimeWithMultithreadingInSeconds;
     public final CommitProcessTime min, max;
     public final DiffTreeSerializeDebugData debugData;
+    public final CacheStatistics blobCacheStatistics = new CacheStatistics(MetadataKeys.BLOB_CACHE);
+    public final ConditionStatistics conditionStatistics = new ConditionStatistics();
     public ExplainedFilterSummary filterHits;
     public ElementaryPatternCount elementaryPatternCounts;
     private final LinkedHashMap<String, String> customInfo = new LinkedHashMap<>();
@@ -212,6 +222,10 @@ public class AnalysisResult implements Metadata<AnalysisResult> {
                     case MetadataKeys.REM_NODE_COUNT -> result.debugData.numExportedRemNodes = Integer.parseInt(value);
                     case MetadataKeys.MINCOMMIT -> result.min.set(CommitProcessTime.fromString(value));
                     case MetadataKeys.MAXCOMMIT -> result.max.set(CommitProcessTime.fromString(value));
+                    case MetadataKeys.DEFERRED_CONDITIONS -> result.conditionStatistics.deferredConditions = Long.parseLong(value);
+                    case MetadataKeys.PARSED_DEFERRED_CONDITIONS -> result.conditionStatistics.parsedDeferredConditions = Long.parseLong(value);
+                    case MetadataKeys.COMMITS_OVER_RENAME_LIMIT -> result.commitsOverRenameLimit = Integer.parseInt(value);
+                    case MetadataKeys.COMMITS_FILTERED_AT_WALK_TIME -> result.commitsFilteredAtWalkTime = Integer.parseInt(value);
                     case MetadataKeys.RUNTIME -> {
                         if (value.endsWith("s")) {
                             value = value.substring(0, value.length() - 1);
@@ -238,6 +252,9 @@ public class AnalysisResult implements Metadata<AnalysisResult> {
                             elementaryPatternCountsLines.add(line);
                         } else if (key.startsWith(ExplainedFilterSummary.FILTERED_MESSAGE_BEGIN)) {
                             filterHitsLines.add(line);
+                        } else if (result.blobCacheStatistics.importEntry(key, value)
+                                || result.conditionStatistics.lookups.importEntry(key, value)) {
+                            // imported by the cache statistics
                         } else if (key.startsWith(ERROR_BEGIN)) {
                             DiffError e = new DiffError(key.substring(ERROR_BEGIN.length(), key.length() - ERROR_END.length()));
                             // add DiffError
@@ -278,16 +295,20 @@ public class AnalysisResult implements Metadata<AnalysisResult> {
         snap.put(MetadataKeys.REPONAME, repoName);
         snap.put(MetadataKeys.TOTAL_COMMITS, totalCommits);
         snap.put(MetadataKeys.FILTERED_COMMITS, totalCommits - exportedCommits - emptyCommits - failedCommits);
+        snap.put(MetadataKeys.COMMITS_FILTERED_AT_WALK_TIME, commitsFilteredAtWalkTime);
         snap.put(MetadataKeys.FAILED_COMMITS, failedCommits);
         snap.put(MetadataKeys.EMPTY_COMMITS, emptyCommits);
         snap.put(MetadataKeys.PROCESSED_COMMITS, exportedCommits);
         snap.put(MetadataKeys.TREES, exportedTrees);
+        snap.put(MetadataKeys.COMMITS_OVER_RENAME_LIMIT, commitsOverRenameLimit);
         snap.put(MetadataKeys.MINCOMMIT, min.toString());
         snap.put(MetadataKeys.MAXCOMMIT, max.toString());
         snap.put(MetadataKeys.RUNTIME, runtimeInSeconds);
         snap.put(MetadataKeys.RUNTIME_WITH_MULTITHREADING, runtimeWithMultithreadingInSeconds);
         snap.putAll(customInfo);
         snap.putAll(debugData.snapshot());
+        snap.putAll(blobCacheStatistics.snapshot());
+        snap.putAll(conditionStatistics.snapshot());
         snap.putAll(filterHits.snapshot());
         snap.putAll(elementaryPatternCounts.snapshot());
         snap.putAll(Functjonal.bimap(diffErrors, error -> ERROR_BEGIN + error + ERROR_END, Object::toString));
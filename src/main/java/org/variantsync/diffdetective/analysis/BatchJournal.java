@@ -0,0 +1,113 @@
+package org.variantsync.diffdetective.analysis;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.tinylog.Logger;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Journal of the batches of commits that were completely analyzed by a {@link CommitHistoryAnalysisTask}.
+ * A batch is identified by its first commit and its number of commits.
+ * When a {@link HistoryAnalysis} is restarted after it was aborted, the batches in the journal do not
+ * have to be analyzed again because their results were already written to disk.
+ * <p>
+ * The journal is a text file with one line per batch.
+ * Each batch is appended and synced to disk with a single write, so an abort can at most leave an
+ * incomplete last line which is ignored when reading the journal.
+ * This class is thread safe.
+ */
+public class BatchJournal {
+    /**
+     * File name that is used to store the journal of finished batches for each repository.
+     */
+    public static final String FILE_NAME = "batches.journal";
+
+    private final Path file;
+    private final Map<ObjectId, Integer> finishedBatches = new HashMap<>();
+
+    private BatchJournal(final Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the journal in the given file.
+     * If the file exists, all batches recorded in it are considered finished.
+     * If the file cannot be read, no batch is considered finished.
+     * @param file The file containing the journal. The file does not have to exist.
+     * @return The journal stored in the given file.
+     */
+    public static BatchJournal open(final Path file) {
+        final BatchJournal journal = new BatchJournal(file);
+        if (!Files.exists(file)) {
+            return journal;
+        }
+
+        final String content;
+        try {
+            content = Files.readString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            Logger.warn(e, "Could not read journal {}. Assuming that no batch was finished.", file);
+            return journal;
+        }
+
+        // Only complete lines were recorded successfully.
+        final String[] lines = content.substring(0, content.lastIndexOf('\n') + 1).split("\n");
+        for (final String line : lines) {
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            final String[] batch = line.split(" ");
+            try {
+                journal.finishedBatches.put(ObjectId.fromString(batch[0]), Integer.parseInt(batch[1]));
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                Logger.warn("Ignoring malformed entry \"{}\" in {}", line, file);
+            }
+        }
+
+        return journal;
+    }
+
+    /**
+     * Returns true iff the batch starting at the given commit with the given number of commits was recorded
+     * as finished.
+     */
+    public synchronized boolean isFinished(final AnyObjectId firstCommit, int numberOfCommits) {
+        final Integer recordedNumberOfCommits = finishedBatches.get(firstCommit);
+        return recordedNumberOfCommits != null && recordedNumberOfCommits == numberOfCommits;
+    }
+
+    /**
+     * Records that the batch starting at the given commit with the given number of commits is finished.
+     * Returns only after the record was written to disk.
+     * @throws IOException if the record could not be written.
+     */
+    public synchronized void recordFinished(final AnyObjectId firstCommit, int numberOfCommits) throws IOException {
+        final String line = firstCommit.getName() + " " + numberOfCommits + "\n";
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.write(
+                file,
+                line.getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        finishedBatches.put(firstCommit.copy(), numberOfCommits);
+    }
+
+    /**
+     * Deletes this journal from disk and forgets all finished batches.
+     * Should be invoked as soon as the results of all batches were aggregated.
+     * @throws IOException if the file could not be deleted.
+     */
+    public synchronized void delete() throws IOException {
+        Files.deleteIfExists(file);
+        finishedBatches.clear();
+    }
+}
@@ -6,6 +6,7 @@ import org.variantsync.diffdetective.analysis.strategies.AnalysisStrategy;
 import org.variantsync.diffdetective.datasets.Repository;
 import org.variantsync.diffdetective.diff.GitDiffer;
 import org.variantsync.diffdetective.diff.difftree.serialize.DiffTreeLineGraphExportOptions;
+import org.variantsync.diffdetective.parallel.CpuBoundWork;
 import org.variantsync.diffdetective.util.CSV;
 import org.variantsync.diffdetective.util.IO;
 import org.variantsync.diffdetective.util.StringUtils;
@@ -32,6 +33,7 @@ public abstract class CommitHistoryAnalysisTask implements Callable<AnalysisResu
      * @param exportOptions Options for exporting DiffTrees.
      * @param analysisStrategy A callback that is invoked for each commit.
      * @param commits The set of commits to process in this task.
+     * @param cpuBoundWork Limits the threads of the analysis that perform CPU-bound work at the same time.
      */
     public record Options(
         Repository repository,
@@ -39,8 +41,25 @@ public abstract class CommitHistoryAnalysisTask implements Callable<AnalysisResu
         Path outputDir,
         DiffTreeLineGraphExportOptions exportOptions,
         AnalysisStrategy analysisStrategy,
-        Iterable<RevCommit> commits
-    ) {}
+        Iterable<RevCommit> commits,
+        CpuBoundWork cpuBoundWork
+    ) {
+        /**
+         * Creates options whose CPU-bound work is limited in the same way as the work of the given differ.
+         * @see GitDiffer#getCpuBoundWork()
+         */
+        public Options(
+            Repository repository,
+            GitDiffer differ,
+            Path outputDir,
+            DiffTreeLineGraphExportOptions exportOptions,
+            AnalysisStrategy analysisStrategy,
+            Iterable<RevCommit> commits
+        ) {
+            this(repository, differ, outputDir, exportOptions, analysisStrategy, commits,
+                    differ == null ? CpuBoundWork.UNLIMITED : differ.getCpuBoundWork());
+        }
+    }
 
     protected final Options options;
 
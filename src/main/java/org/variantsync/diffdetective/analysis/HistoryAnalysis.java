@@ -1,26 +1,47 @@
 package org.variantsync.diffdetective.analysis;
 
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.tinylog.Logger;
 import org.variantsync.diffdetective.analysis.monitoring.TaskCompletionMonitor;
 import org.variantsync.diffdetective.analysis.strategies.AnalysisStrategy;
 import org.variantsync.diffdetective.datasets.Repository;
+import org.variantsync.diffdetective.diff.BlobCache;
 import org.variantsync.diffdetective.diff.GitDiffer;
 import org.variantsync.diffdetective.diff.difftree.serialize.DiffTreeLineGraphExportOptions;
 import org.variantsync.diffdetective.metadata.Metadata;
 import org.variantsync.diffdetective.mining.MiningTask;
+import org.variantsync.diffdetective.parallel.CpuBoundWork;
 import org.variantsync.diffdetective.parallel.ScheduledTasksIterator;
+import org.variantsync.diffdetective.parallel.VirtualThreads;
+import org.variantsync.diffdetective.parallel.WorkStealingScheduler;
 import org.variantsync.diffdetective.util.Clock;
 import org.variantsync.diffdetective.util.Diagnostics;
+import org.variantsync.diffdetective.util.FileUtils;
 import org.variantsync.diffdetective.util.InvocationCounter;
 import org.variantsync.functjonal.iteration.ClusteredIterator;
 import org.variantsync.functjonal.iteration.MappedIterator;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * An analyses that is performed for the entire commit histories of each given git repositoy.
@@ -33,6 +54,10 @@ import java.util.function.Consumer;
  * @param whatToDo A factory for tasks that should be executed for the commits of a certain repository.
  * @param postProcessingOnRepositoryOutputDir A callback that is invoked after all analyses are completed.
  *                                            The argument is the output directory on which postprocessing might occur.
+ * @param commitEnumeration Decides how the commits to analyze are obtained and distributed to the threads.
+ * @param incremental Whether only commits that were not analyzed by a previous run should be analyzed.
+ *                    If false, repositories with existing results are skipped entirely.
+ * @param threading Decides on which kind of threads the commits are analyzed.
  * @author Paul Bittner
  */
 public record HistoryAnalysis(
@@ -40,8 +65,71 @@ public record HistoryAnalysis(
         Path outputDir,
         int commitsToProcessPerThread,
         CommitHistoryAnalysisTaskFactory whatToDo,
-        Consumer<Path> postProcessingOnRepositoryOutputDir
+        Consumer<Path> postProcessingOnRepositoryOutputDir,
+        CommitEnumeration commitEnumeration,
+        boolean incremental,
+        Threading threading
 ) {
+    /**
+     * Ways to obtain the commits of a repository's history and to distribute them to the threads of an analysis.
+     */
+    public enum CommitEnumeration {
+        /**
+         * Commits are pulled lazily from <code>git log</code> and clustered into tasks while the analysis is
+         * already running.
+         * Tasks only keep the ids of their commits and parse them on their own thread.
+         * Only the thread that runs the analysis walks the history, while the other threads work on tasks taken
+         * in advance, so scheduling might become the bottleneck for large histories.
+         */
+        LAZY,
+        /**
+         * The ids of all commits are collected by a single walk over the history before the analysis starts.
+         * The ids are then partitioned into tasks and each task parses its commits on its own thread.
+         * @see GitDiffer#collectCommitIds()
+         */
+        PRECOLLECTED,
+        /**
+         * The ids of all commits are collected as for {@link #PRECOLLECTED} and partitioned into the same tasks.
+         * However, tasks are not scheduled in a fixed order.
+         * Instead, each thread works on a range of tasks and idle threads steal parts of the ranges of busy
+         * threads.
+         * Results are merged in the order in which the tasks finish.
+         * Thus, a task with expensive commits only delays its own thread instead of stalling the whole analysis.
+         * @see WorkStealingScheduler
+         */
+        WORK_STEALING
+    }
+
+    /**
+     * Kinds of threads on which the tasks of an analysis run.
+     * Only affects {@link CommitEnumeration#LAZY} and {@link CommitEnumeration#PRECOLLECTED}.
+     * {@link CommitEnumeration#WORK_STEALING} always runs on one platform thread per processor.
+     */
+    public enum Threading {
+        /**
+         * Each task runs on one of a fixed number of platform threads, one per processor.
+         * Whenever a task waits for I/O (e.g., reading pack files or appending exported results), its processor
+         * is idle.
+         * Helper threads that parse huge commits share the limit of one thread per processor doing CPU-bound work
+         * with the tasks (see {@link CpuBoundWork}).
+         */
+        PLATFORM,
+        /**
+         * Each task runs on its own virtual thread and {@link #IO_TASKS_PER_PROCESSOR} tasks per processor run
+         * concurrently so that their I/O overlaps.
+         * The CPU-bound parts of the tasks (i.e., parsing and pattern matching) are still limited to one thread
+         * per processor by {@link CpuBoundWork}.
+         * Falls back to platform threads if the running JVM does not support virtual threads.
+         * @see VirtualThreads
+         */
+        VIRTUAL
+    }
+
+    /**
+     * The number of tasks that run concurrently per processor when using {@link Threading#VIRTUAL}.
+     */
+    public static final int IO_TASKS_PER_PROCESSOR = 4;
+
     /**
      * File name that is used to store the analysis results for each repository.
      */
@@ -51,6 +139,59 @@ public record HistoryAnalysis(
      * @see org.variantsync.diffdetective.analysis.HistoryAnalysis#HistoryAnalysis(List, Path, int, CommitHistoryAnalysisTaskFactory, Consumer) 
      */
     public static final int COMMITS_TO_PROCESS_PER_THREAD_DEFAULT = 1000;
+    /**
+     * Default value for <code>commitEnumeration</code>
+     * @see org.variantsync.diffdetective.analysis.HistoryAnalysis#HistoryAnalysis(List, Path, int, CommitHistoryAnalysisTaskFactory, Consumer, CommitEnumeration, boolean)
+     */
+    public static final CommitEnumeration COMMIT_ENUMERATION_DEFAULT = CommitEnumeration.PRECOLLECTED;
+    /**
+     * Default value for <code>threading</code>
+     * @see org.variantsync.diffdetective.analysis.HistoryAnalysis#HistoryAnalysis(List, Path, int, CommitHistoryAnalysisTaskFactory, Consumer, CommitEnumeration, boolean, Threading)
+     */
+    public static final Threading THREADING_DEFAULT = Threading.PLATFORM;
+
+    /**
+     * Parsers for the custom information that each {@link CommitHistoryAnalysisTask} stores in its result.
+     * Used to import previous results when {@link #analyzeIncrementally analyzing incrementally}.
+     */
+    private static final Map<String, BiConsumer<AnalysisResult, String>> TASK_INFO_PARSERS = Map.ofEntries(
+            AnalysisResult.storeAsCustomInfo(MetadataKeys.TREEFORMAT),
+            AnalysisResult.storeAsCustomInfo(MetadataKeys.NODEFORMAT),
+            AnalysisResult.storeAsCustomInfo(MetadataKeys.EDGEFORMAT),
+            AnalysisResult.storeAsCustomInfo(MetadataKeys.TASKNAME)
+    );
+
+    /**
+     * Creates a non-incremental HistoryAnalysis with the default values for <code>commitEnumeration</code> and
+     * <code>threading</code>.
+     * @see org.variantsync.diffdetective.analysis.HistoryAnalysis#COMMIT_ENUMERATION_DEFAULT
+     * @see org.variantsync.diffdetective.analysis.HistoryAnalysis#THREADING_DEFAULT
+     */
+    public HistoryAnalysis(
+            List<Repository> repositoriesToAnalyze,
+            Path outputDir,
+            int commitsToProcessPerThread,
+            CommitHistoryAnalysisTaskFactory whatToDo,
+            Consumer<Path> postProcessingOnRepositoryOutputDir)
+    {
+        this(repositoriesToAnalyze, outputDir, commitsToProcessPerThread, whatToDo, postProcessingOnRepositoryOutputDir, COMMIT_ENUMERATION_DEFAULT, false);
+    }
+
+    /**
+     * Creates a HistoryAnalysis with the default value for <code>threading</code>.
+     * @see org.variantsync.diffdetective.analysis.HistoryAnalysis#THREADING_DEFAULT
+     */
+    public HistoryAnalysis(
+            List<Repository> repositoriesToAnalyze,
+            Path outputDir,
+            int commitsToProcessPerThread,
+            CommitHistoryAnalysisTaskFactory whatToDo,
+            Consumer<Path> postProcessingOnRepositoryOutputDir,
+            CommitEnumeration commitEnumeration,
+            boolean incremental)
+    {
+        this(repositoriesToAnalyze, outputDir, commitsToProcessPerThread, whatToDo, postProcessingOnRepositoryOutputDir, commitEnumeration, incremental, THREADING_DEFAULT);
+    }
 
     @Deprecated
     public static void analyze(
@@ -100,6 +241,7 @@ public record HistoryAnalysis(
      * @param outputDir The directory to which any produced results should be written.
      * @param taskFactory A factory for tasks that should be executed for the commits of a certain repository.
      * @param commitsToProcessPerThread Number of commits that should be processed by each single thread if multithreading is used.
+     * @see HistoryAnalysis#analyzeAsync(Repository, Path, CommitHistoryAnalysisTaskFactory, int, CommitEnumeration)
      */
     public static void analyzeAsync(
             final Repository repo,
@@ -107,36 +249,338 @@ public record HistoryAnalysis(
             final CommitHistoryAnalysisTaskFactory taskFactory,
             int commitsToProcessPerThread)
     {
+        analyzeAsync(repo, outputDir, taskFactory, commitsToProcessPerThread, COMMIT_ENUMERATION_DEFAULT);
+    }
+
+    /**
+     * Static analysis method that can be used without creating an HistoryAnalysis object first.
+     * Analyzes the history of the given repository with the given parameters.
+     * Each finished batch of commits is recorded in a {@link BatchJournal} in the given output directory.
+     * If the analysis is aborted, a subsequent analysis reuses the results of all finished batches.
+     * @param repo The repository to analyze.
+     * @param outputDir The directory to which any produced results should be written.
+     * @param taskFactory A factory for tasks that should be executed for the commits of a certain repository.
+     * @param commitsToProcessPerThread Number of commits that should be processed by each single thread if multithreading is used.
+     * @param commitEnumeration Decides how the commits to analyze are obtained and distributed to the threads.
+     * @see HistoryAnalysis#analyzeAsync(Repository, Path, CommitHistoryAnalysisTaskFactory, int, CommitEnumeration, Threading)
+     */
+    public static void analyzeAsync(
+            final Repository repo,
+            final Path outputDir,
+            final CommitHistoryAnalysisTaskFactory taskFactory,
+            int commitsToProcessPerThread,
+            final CommitEnumeration commitEnumeration)
+    {
+        analyzeAsync(repo, outputDir, taskFactory, commitsToProcessPerThread, commitEnumeration, THREADING_DEFAULT);
+    }
+
+    /**
+     * Static analysis method that can be used without creating an HistoryAnalysis object first.
+     * Analyzes the history of the given repository with the given parameters.
+     * Each finished batch of commits is recorded in a {@link BatchJournal} in the given output directory.
+     * If the analysis is aborted, a subsequent analysis reuses the results of all finished batches.
+     * @param repo The repository to analyze.
+     * @param outputDir The directory to which any produced results should be written.
+     * @param taskFactory A factory for tasks that should be executed for the commits of a certain repository.
+     * @param commitsToProcessPerThread Number of commits that should be processed by each single thread if multithreading is used.
+     * @param commitEnumeration Decides how the commits to analyze are obtained and distributed to the threads.
+     * @param threading Decides on which kind of threads the commits are analyzed.
+     */
+    public static void analyzeAsync(
+            final Repository repo,
+            final Path outputDir,
+            final CommitHistoryAnalysisTaskFactory taskFactory,
+            int commitsToProcessPerThread,
+            final CommitEnumeration commitEnumeration,
+            final Threading threading)
+    {
+        final int nThreads = Diagnostics.INSTANCE.run().getNumberOfAvailableProcessors();
         final AnalysisResult totalResult = new AnalysisResult(repo.getRepositoryName());
-        final GitDiffer differ = new GitDiffer(repo);
+        final GitDiffer differ = new GitDiffer(repo, new BlobCache(), new CpuBoundWork(nThreads));
+        final BatchJournal journal = BatchJournal.open(outputDir.resolve(BatchJournal.FILE_NAME));
         final Clock clock = new Clock();
 
         // prepare tasks
-        final int nThreads = Diagnostics.INSTANCE.run().getNumberOfAvailableProcessors();
         Logger.info(">>> Scheduling asynchronous analysis on {} threads.", nThreads);
         clock.start();
         final InvocationCounter<RevCommit, RevCommit> numberOfTotalCommits = InvocationCounter.justCount();
-        final Iterator<CommitHistoryAnalysisTask> tasks = new MappedIterator<>(
-                /// 1.) Retrieve COMMITS_TO_PROCESS_PER_THREAD commits from the differ and cluster them into one list.
-                new ClusteredIterator<>(
-                        differ.yieldRevCommitsAfter(numberOfTotalCommits),
-                        commitsToProcessPerThread
-                ),
-                /// 2.) Create a MiningTask for the list of commits. This task will then be processed by one
-                ///     particular thread.
-                commitList -> taskFactory.create(
+        switch (commitEnumeration) {
+            case LAZY -> {
+                final Iterator<Callable<AnalysisResult>> tasks = new MappedIterator<>(
+                        /// 1.) Retrieve COMMITS_TO_PROCESS_PER_THREAD commits from the differ and cluster their ids into
+                        ///     one list. Only the ids are kept so that scheduled tasks do not hold on to parsed commits.
+                        new ClusteredIterator<>(
+                                new MappedIterator<>(
+                                        differ.yieldRevCommitsAfter(numberOfTotalCommits),
+                                        RevCommit::copy),
+                                commitsToProcessPerThread
+                        ),
+                        /// 2.) Create a MiningTask for the list of commits. This task will then be processed by one
+                        ///     particular thread which parses the commits again.
+                        commitIdList -> {
+                            final ObjectId[] commitIds = commitIdList.toArray(ObjectId[]::new);
+                            return batch(repo, differ, outputDir, taskFactory, journal, commitIds, 0, commitIds.length);
+                        }
+                );
+                Logger.info("<<< done in {}", clock.printPassedSeconds());
+                run(tasks, nThreads, threading, totalResult);
+            }
+            case PRECOLLECTED -> {
+                /// 1.) Collect the ids of all commits in a single walk over the history.
+                final ObjectId[] commitIds = differ.collectCommitIdsAfter(numberOfTotalCommits);
+                Logger.info("Collected {} commits.", commitIds.length);
+                /// 2.) Partition the ids into slices of COMMITS_TO_PROCESS_PER_THREAD commits and create a MiningTask
+                ///     for each slice.
+                final Iterator<Callable<AnalysisResult>> tasks = partition(repo, differ, outputDir, taskFactory, journal, commitIds, commitsToProcessPerThread);
+                Logger.info("<<< done in {}", clock.printPassedSeconds());
+                run(tasks, nThreads, threading, totalResult);
+            }
+            case WORK_STEALING -> {
+                final ObjectId[] commitIds = differ.collectCommitIdsAfter(numberOfTotalCommits);
+                Logger.info("Collected {} commits.", commitIds.length);
+                Logger.info("<<< done in {}", clock.printPassedSeconds());
+                runWorkStealing(
+                        commitIds.length,
+                        nThreads,
+                        commitsToProcessPerThread,
+                        (from, to) -> batch(repo, differ, outputDir, taskFactory, journal, commitIds, from, to).call(),
+                        totalResult);
+            }
+        }
+
+        totalResult.commitsFilteredAtWalkTime = differ.getNumberOfCommitsFilteredAtWalkTime();
+        totalResult.totalCommits = numberOfTotalCommits.invocationCount().get() + totalResult.commitsFilteredAtWalkTime;
+
+        exportMetadata(outputDir, totalResult);
+        deleteJournal(journal);
+    }
+
+    /**
+     * Analyzes only those commits of the given repository that were not analyzed by a previous invocation of
+     * this method.
+     * The commits that were processed are remembered in a {@link ProcessedCommitsIndex} in the given output
+     * directory.
+     * The results of the new commits are merged into the previous
+     * {@link org.variantsync.diffdetective.analysis.HistoryAnalysis#TOTAL_RESULTS_FILE_NAME total result}
+     * using {@link AnalysisResult#ISEMIGROUP}.
+     * The index is only updated after all new commits were analyzed successfully.
+     * If the index or the previous result is missing or cannot be read, the whole history is analyzed.
+     * Commits are always {@link CommitEnumeration#PRECOLLECTED collected} before the analysis.
+     * Finished batches of commits are recorded in a {@link BatchJournal} as in
+     * {@link HistoryAnalysis#analyzeAsync(Repository, Path, CommitHistoryAnalysisTaskFactory, int, CommitEnumeration)}.
+     * @param repo The repository to analyze.
+     * @param outputDir The directory to which any produced results should be written.
+     * @param taskFactory A factory for tasks that should be executed for the commits of a certain repository.
+     * @param commitsToProcessPerThread Number of commits that should be processed by each single thread if multithreading is used.
+     * @see HistoryAnalysis#analyzeIncrementally(Repository, Path, CommitHistoryAnalysisTaskFactory, int, Threading)
+     */
+    public static void analyzeIncrementally(
+            final Repository repo,
+            final Path outputDir,
+            final CommitHistoryAnalysisTaskFactory taskFactory,
+            int commitsToProcessPerThread)
+    {
+        analyzeIncrementally(repo, outputDir, taskFactory, commitsToProcessPerThread, THREADING_DEFAULT);
+    }
+
+    /**
+     * Analyzes only those commits of the given repository that were not analyzed by a previous invocation of
+     * this method.
+     * Behaves like {@link HistoryAnalysis#analyzeIncrementally(Repository, Path, CommitHistoryAnalysisTaskFactory, int)}
+     * but runs the analysis on the given kind of threads.
+     * @param repo The repository to analyze.
+     * @param outputDir The directory to which any produced results should be written.
+     * @param taskFactory A factory for tasks that should be executed for the commits of a certain repository.
+     * @param commitsToProcessPerThread Number of commits that should be processed by each single thread if multithreading is used.
+     * @param threading Decides on which kind of threads the commits are analyzed.
+     */
+    public static void analyzeIncrementally(
+            final Repository repo,
+            final Path outputDir,
+            final CommitHistoryAnalysisTaskFactory taskFactory,
+            int commitsToProcessPerThread,
+            final Threading threading)
+    {
+        final Path indexFile = outputDir.resolve(ProcessedCommitsIndex.FILE_NAME);
+        final Path totalResultFile = outputDir.resolve(TOTAL_RESULTS_FILE_NAME);
+        /// The total result is written to this file before the index is saved and only moved to the
+        /// totalResultFile afterwards, so the index always identifies the total result that belongs to it.
+        final Path pendingTotalResultFile = outputDir.resolve(TOTAL_RESULTS_FILE_NAME + ".tmp");
+
+        ProcessedCommitsIndex index = new ProcessedCommitsIndex();
+        AnalysisResult totalResult = new AnalysisResult(repo.getRepositoryName());
+        if (Files.exists(indexFile)) {
+            try {
+                index = ProcessedCommitsIndex.load(indexFile);
+                if (Files.exists(pendingTotalResultFile) && index.isTotalResult(pendingTotalResultFile)) {
+                    // The previous analysis died after saving the index but before moving its total result.
+                    Files.move(pendingTotalResultFile, totalResultFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else if (!Files.exists(totalResultFile) || !index.isTotalResult(totalResultFile)) {
+                    throw new IOException("The total result " + totalResultFile + " does not belong to the index " + indexFile);
+                }
+                totalResult = AnalysisResult.importFrom(totalResultFile, TASK_INFO_PARSERS);
+                Logger.info("Found {} already processed commits.", index.size());
+            } catch (IOException e) {
+                Logger.warn(e, "Could not load previous results of {}. Analyzing the whole history again.", repo.getRepositoryName());
+                index = new ProcessedCommitsIndex();
+                totalResult = new AnalysisResult(repo.getRepositoryName());
+            }
+        }
+
+        final int nThreads = Diagnostics.INSTANCE.run().getNumberOfAvailableProcessors();
+        final GitDiffer differ = new GitDiffer(repo, new BlobCache(), new CpuBoundWork(nThreads));
+        final BatchJournal journal = BatchJournal.open(outputDir.resolve(BatchJournal.FILE_NAME));
+        final Clock clock = new Clock();
+
+        // prepare tasks
+        Logger.info(">>> Scheduling incremental analysis on {} threads.", nThreads);
+        clock.start();
+        final ObjectId head;
+        try {
+            head = differ.getJGitRepo().getRepository().resolve(Constants.HEAD);
+        } catch (IOException e) {
+            Logger.error(e, "Could not resolve HEAD of {}", repo.getRepositoryName());
+            return;
+        }
+        final List<ObjectId> newCommits = new ArrayList<>();
+        final InvocationCounter<RevCommit, RevCommit> numberOfNewCommits = InvocationCounter.of(commit -> {
+            newCommits.add(commit.copy());
+            return commit;
+        });
+        final ProcessedCommitsIndex processedCommits = index;
+        final ObjectId[] commitIds = differ.collectCommitIdsAfter(processedCommits.getHeads(), processedCommits::contains, numberOfNewCommits);
+        Logger.info("Collected {} new commits of which {} are analyzed.", newCommits.size(), commitIds.length);
+        final Iterator<Callable<AnalysisResult>> tasks = partition(repo, differ, outputDir, taskFactory, journal, commitIds, commitsToProcessPerThread);
+        Logger.info("<<< done in {}", clock.printPassedSeconds());
+
+        final AnalysisResult newResult = new AnalysisResult(repo.getRepositoryName());
+        run(tasks, nThreads, threading, newResult);
+        newResult.commitsFilteredAtWalkTime = differ.getNumberOfCommitsFilteredAtWalkTime();
+        newResult.totalCommits = numberOfNewCommits.invocationCount().get() + newResult.commitsFilteredAtWalkTime;
+
+        totalResult.append(newResult);
+        exportMetadataToFile(pendingTotalResultFile, totalResult);
+
+        processedCommits.addAll(newCommits);
+        if (head != null) {
+            processedCommits.addHead(head);
+        }
+        try {
+            processedCommits.setTotalResult(pendingTotalResultFile);
+            processedCommits.save(indexFile);
+            Files.move(pendingTotalResultFile, totalResultFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Logger.error(e, "Could not save the index of processed commits of {}", repo.getRepositoryName());
+            return;
+        }
+        deleteJournal(journal);
+    }
+
+    /**
+     * Partitions the given commits into slices of <code>commitsToProcessPerThread</code> commits and creates a task
+     * for each slice.
+     * The commits of a slice are parsed by the thread processing the task.
+     * @see HistoryAnalysis#checkpointed
+     */
+    private static Iterator<Callable<AnalysisResult>> partition(
+            final Repository repo,
+            final GitDiffer differ,
+            final Path outputDir,
+            final CommitHistoryAnalysisTaskFactory taskFactory,
+            final BatchJournal journal,
+            final ObjectId[] commitIds,
+            int commitsToProcessPerThread)
+    {
+        return new MappedIterator<>(
+                IntStream.iterate(0, from -> from < commitIds.length, from -> from + commitsToProcessPerThread).iterator(),
+                from -> batch(repo, differ, outputDir, taskFactory, journal, commitIds, from, Math.min(from + commitsToProcessPerThread, commitIds.length))
+        );
+    }
+
+    /**
+     * Creates a task for the commits in the range <code>[from, to)</code> of the given commits.
+     * The commits are parsed by the thread processing the task.
+     * @see HistoryAnalysis#checkpointed
+     */
+    private static Callable<AnalysisResult> batch(
+            final Repository repo,
+            final GitDiffer differ,
+            final Path outputDir,
+            final CommitHistoryAnalysisTaskFactory taskFactory,
+            final BatchJournal journal,
+            final ObjectId[] commitIds,
+            int from,
+            int to)
+    {
+        return checkpointed(
+                journal,
+                commitIds[from],
+                to - from,
+                taskFactory.create(
                         repo,
                         differ,
-                        outputDir.resolve(commitList.get(0).getId().getName() + ".lg"),
-                        commitList)
-        );
-        Logger.info("<<< done in {}", clock.printPassedSeconds());
+                        outputDir.resolve(commitIds[from].getName() + ".lg"),
+                        differ.parseCommits(commitIds, from, to)));
+    }
+
+    /**
+     * Wraps the given task for a batch of commits such that the batch is recorded in the given journal once
+     * the task finished.
+     * If the journal already records the batch as finished, the result that the task exported in a previous
+     * run is imported instead of running the task again.
+     * @param journal The journal of finished batches of the analyzed repository.
+     * @param firstCommit The first commit of the batch.
+     * @param numberOfCommits The number of commits in the batch.
+     * @param task The task that analyzes the batch.
+     * @return A task that produces the result of analyzing the batch.
+     */
+    private static Callable<AnalysisResult> checkpointed(
+            final BatchJournal journal,
+            final AnyObjectId firstCommit,
+            int numberOfCommits,
+            final CommitHistoryAnalysisTask task)
+    {
+        return () -> {
+            if (journal.isFinished(firstCommit, numberOfCommits)) {
+                final Path batchResult = FileUtils.addExtension(task.getOptions().outputDir(), AnalysisResult.EXTENSION);
+                try {
+                    return AnalysisResult.importFrom(batchResult, TASK_INFO_PARSERS);
+                } catch (IOException e) {
+                    Logger.warn(e, "Could not import the result of the finished batch starting at {}. Analyzing it again.", firstCommit.getName());
+                }
+            }
+
+            final AnalysisResult result = task.call();
+            journal.recordFinished(firstCommit, numberOfCommits);
+            return result;
+        };
+    }
+
+    /**
+     * Deletes the given journal because the results of all its batches were aggregated.
+     */
+    private static void deleteJournal(final BatchJournal journal) {
+        try {
+            journal.delete();
+        } catch (IOException e) {
+            Logger.warn(e, "Could not delete journal of finished batches");
+        }
+    }
 
+    /**
+     * Runs the given tasks on the given number of threads and appends their results to the given result.
+     * Also stores the runtime of all tasks in the given result.
+     * For {@link Threading#VIRTUAL}, <code>nThreads</code> limits the threads doing CPU-bound work instead
+     * (see {@link GitDiffer#getCpuBoundWork()}).
+     */
+    private static void run(final Iterator<? extends Callable<AnalysisResult>> tasks, int nThreads, final Threading threading, final AnalysisResult totalResult) {
+        final Clock clock = new Clock();
         final TaskCompletionMonitor commitSpeedMonitor = new TaskCompletionMonitor(0, TaskCompletionMonitor.LogProgress("commits"));
         Logger.info(">>> Run Analysis");
         clock.start();
         commitSpeedMonitor.start();
-        try (final ScheduledTasksIterator<AnalysisResult> threads = new ScheduledTasksIterator<>(tasks, nThreads)) {
+        // Results are merged with a commutative semigroup, so they can be merged as soon as they are ready.
+        try (final ScheduledTasksIterator<AnalysisResult> threads = schedule(tasks, nThreads, threading)) {
             while (threads.hasNext()) {
                 final AnalysisResult threadsResult = threads.next();
                 totalResult.append(threadsResult);
@@ -151,9 +595,55 @@ public record HistoryAnalysis(
         Logger.info("<<< done in {}", Clock.printPassedSeconds(runtime));
 
         totalResult.runtimeWithMultithreadingInSeconds = runtime;
-        totalResult.totalCommits = numberOfTotalCommits.invocationCount().get();
+    }
 
-        exportMetadata(outputDir, totalResult);
+    /**
+     * Starts running the given tasks on the given kind of threads.
+     * The results can be retrieved in the order in which the tasks finish.
+     */
+    private static <T> ScheduledTasksIterator<T> schedule(final Iterator<? extends Callable<T>> tasks, int nThreads, final Threading threading) {
+        return switch (threading) {
+            case PLATFORM -> new ScheduledTasksIterator<>(tasks, nThreads, ScheduledTasksIterator.Order.COMPLETION, 0);
+            case VIRTUAL -> new ScheduledTasksIterator<>(
+                    tasks,
+                    nThreads * IO_TASKS_PER_PROCESSOR,
+                    ScheduledTasksIterator.Order.COMPLETION,
+                    0,
+                    VirtualThreads.newThreadPerTaskExecutor());
+        };
+    }
+
+    /**
+     * Runs the given batches of <code>numberOfCommits</code> commits with a {@link WorkStealingScheduler} and
+     * appends their results to the given result in the order in which they finish.
+     * Also stores the runtime of all batches in the given result.
+     */
+    private static void runWorkStealing(
+            int numberOfCommits,
+            int nThreads,
+            int commitsPerBatch,
+            final WorkStealingScheduler.BatchProcessor<AnalysisResult> batches,
+            final AnalysisResult totalResult)
+    {
+        final Clock clock = new Clock();
+        final TaskCompletionMonitor commitSpeedMonitor = new TaskCompletionMonitor(0, TaskCompletionMonitor.LogProgress("commits"));
+        Logger.info(">>> Run Analysis");
+        clock.start();
+        commitSpeedMonitor.start();
+        try {
+            new WorkStealingScheduler<>(nThreads, commitsPerBatch, batches, batchResult -> {
+                totalResult.append(batchResult);
+                commitSpeedMonitor.addFinishedTasks(batchResult.exportedCommits);
+            }).run(numberOfCommits);
+        } catch (Exception e) {
+            Logger.error(e, "Failed to run all mining task");
+            System.exit(0);
+        }
+
+        final double runtime = clock.getPassedSeconds();
+        Logger.info("<<< done in {}", Clock.printPassedSeconds(runtime));
+
+        totalResult.runtimeWithMultithreadingInSeconds = runtime;
     }
 
     /**
@@ -181,8 +671,11 @@ public record HistoryAnalysis(
     /**
      * Runs this analysis asynchronously.
      * Processes each repository sequentially and runs
-     * {@link org.variantsync.diffdetective.analysis.HistoryAnalysis#analyzeAsync(Repository, Path, CommitHistoryAnalysisTaskFactory, int)}
+     * {@link org.variantsync.diffdetective.analysis.HistoryAnalysis#analyzeAsync(Repository, Path, CommitHistoryAnalysisTaskFactory, int, CommitEnumeration, Threading)}
      * on each of them.
+     * If this analysis is incremental,
+     * {@link org.variantsync.diffdetective.analysis.HistoryAnalysis#analyzeIncrementally(Repository, Path, CommitHistoryAnalysisTaskFactory, int, Threading)}
+     * is run instead.
      */
     public void runAsync() {
         for (final Repository repo : repositoriesToAnalyze) {
@@ -192,8 +685,11 @@ public record HistoryAnalysis(
 
             final Path repoOutputDir = outputDir.resolve(repo.getRepositoryName());
             /// Don't repeat work we already did:
-            if (!Files.exists(repoOutputDir.resolve(TOTAL_RESULTS_FILE_NAME))) {
-                analyzeAsync(repo, repoOutputDir, whatToDo, commitsToProcessPerThread);
+            if (incremental) {
+                analyzeIncrementally(repo, repoOutputDir, whatToDo, commitsToProcessPerThread, threading);
+                postProcessingOnRepositoryOutputDir.accept(repoOutputDir);
+            } else if (!Files.exists(repoOutputDir.resolve(TOTAL_RESULTS_FILE_NAME))) {
+                analyzeAsync(repo, repoOutputDir, whatToDo, commitsToProcessPerThread, commitEnumeration, threading);
                 postProcessingOnRepositoryOutputDir.accept(repoOutputDir);
             } else {
                 Logger.info("  Skipping repository {} because it has already been processed.", repo.getRepositoryName());
@@ -202,4 +698,174 @@ public record HistoryAnalysis(
             Logger.info(" === End Processing {} after {} ===", repo.getRepositoryName(), clock.printPassedSeconds());
         }
     }
+
+    /**
+     * Runs this analysis on all repositories at once.
+     * In contrast to {@link #runAsync()}, the batches of commits of all repositories are scheduled on a single
+     * shared pool of threads.
+     * The batches of the next repository are scheduled as soon as all batches of the previous repository are
+     * scheduled, so threads do not idle while a repository's last batches finish.
+     * The commits of the next repository are collected on a separate thread while the batches of the current
+     * repository are scheduled, so the next batches are usually ready when they are needed.
+     * <p>
+     * Each repository still gets its own output directory and its own
+     * {@link org.variantsync.diffdetective.analysis.HistoryAnalysis#TOTAL_RESULTS_FILE_NAME total result}, which is
+     * exported and post-processed as soon as the last batch of that repository finished.
+     * Repositories with existing results are skipped.
+     * Commits are always {@link CommitEnumeration#PRECOLLECTED collected} before the analysis of a repository.
+     * Incremental analyses are not interleaved and are run by {@link #runAsync()} instead.
+     */
+    public void runInterleaved() {
+        if (incremental) {
+            Logger.info("Incremental analyses are not interleaved. Processing repositories sequentially.");
+            runAsync();
+            return;
+        }
+
+        final int nThreads = Diagnostics.INSTANCE.run().getNumberOfAvailableProcessors();
+        final CpuBoundWork cpuBoundWork = new CpuBoundWork(nThreads);
+        Logger.info(">>> Scheduling interleaved analysis of {} repositories on {} threads.", repositoriesToAnalyze.size(), nThreads);
+        final Clock clock = new Clock();
+        final TaskCompletionMonitor commitSpeedMonitor = new TaskCompletionMonitor(0, TaskCompletionMonitor.LogProgress("commits"));
+        clock.start();
+        commitSpeedMonitor.start();
+
+        final List<InterleavedRepository> repositories = repositoriesToAnalyze.stream()
+                .filter(repo -> {
+                    if (Files.exists(outputDir.resolve(repo.getRepositoryName()).resolve(TOTAL_RESULTS_FILE_NAME))) {
+                        Logger.info("  Skipping repository {} because it has already been processed.", repo.getRepositoryName());
+                        return false;
+                    }
+                    return true;
+                })
+                .map(repo -> new InterleavedRepository(repo, outputDir.resolve(repo.getRepositoryName()), cpuBoundWork))
+                .toList();
+
+        /// The commits of a repository are collected by the loader as soon as the tasks of the previous repository
+        /// are requested by the scheduler. The tasks of a repository are only created when the scheduler asks for
+        /// them, i.e., when the tasks of all previous repositories are scheduled.
+        final ExecutorService loader = Executors.newSingleThreadExecutor();
+        final List<Future<InterleavedRepository>> collectedRepositories = new ArrayList<>(repositories.size());
+        final IntConsumer collectCommitsOf = i -> {
+            if (i == collectedRepositories.size() && i < repositories.size()) {
+                collectedRepositories.add(loader.submit(repositories.get(i)::collectCommits));
+            }
+        };
+        final Iterator<Callable<RepositoryBatchResult>> tasks = IntStream.range(0, repositories.size())
+                .boxed()
+                .flatMap(i -> {
+                    collectCommitsOf.accept(i);
+                    collectCommitsOf.accept(i + 1);
+                    try {
+                        return collectedRepositories.get(i).get().tasks(whatToDo, commitsToProcessPerThread);
+                    } catch (InterruptedException | ExecutionException e) {
+                        throw new RuntimeException("Could not collect the commits of " + repositories.get(i).repo.getRepositoryName(), e);
+                    }
+                })
+                .iterator();
+
+        try (final ScheduledTasksIterator<RepositoryBatchResult> threads = schedule(tasks, nThreads, threading)) {
+            while (threads.hasNext()) {
+                final RepositoryBatchResult batchResult = threads.next();
+                batchResult.repository().append(batchResult.result(), postProcessingOnRepositoryOutputDir);
+                commitSpeedMonitor.addFinishedTasks(batchResult.result().exportedCommits);
+            }
+        } catch (Exception e) {
+            Logger.error(e, "Failed to run all mining task");
+            System.exit(0);
+        } finally {
+            loader.shutdown();
+        }
+
+        Logger.info("<<< done in {}", clock.printPassedSeconds());
+    }
+
+    /**
+     * The result of a batch of commits of an {@link InterleavedRepository}.
+     */
+    private record RepositoryBatchResult(InterleavedRepository repository, AnalysisResult result) {}
+
+    /**
+     * A repository whose batches are interleaved with the batches of other repositories by
+     * {@link #runInterleaved()}.
+     * Aggregates the results of its batches and exports them once all batches finished.
+     */
+    private static class InterleavedRepository {
+        private final Repository repo;
+        private final Path outputDir;
+        private final CpuBoundWork cpuBoundWork;
+        private final AnalysisResult totalResult;
+        private final Clock clock;
+        private GitDiffer differ;
+        private BatchJournal journal;
+        private InvocationCounter<RevCommit, RevCommit> numberOfTotalCommits;
+        private ObjectId[] commitIds;
+        private int remainingBatches;
+
+        private InterleavedRepository(final Repository repo, final Path outputDir, final CpuBoundWork cpuBoundWork) {
+            this.repo = repo;
+            this.outputDir = outputDir;
+            this.cpuBoundWork = cpuBoundWork;
+            this.totalResult = new AnalysisResult(repo.getRepositoryName());
+            this.clock = new Clock();
+        }
+
+        /**
+         * Collects the commits of this repository.
+         * Runs ahead of {@link #tasks} on another thread because walking the history of a large repository is slow.
+         * @return this repository
+         */
+        private InterleavedRepository collectCommits() {
+            differ = new GitDiffer(repo, new BlobCache(), cpuBoundWork);
+            journal = BatchJournal.open(outputDir.resolve(BatchJournal.FILE_NAME));
+            numberOfTotalCommits = InvocationCounter.justCount();
+
+            commitIds = differ.collectCommitIdsAfter(numberOfTotalCommits);
+            Logger.info("Collected {} commits of {}.", commitIds.length, repo.getRepositoryName());
+            return this;
+        }
+
+        /**
+         * Creates a task for each batch of the {@link #collectCommits collected} commits.
+         * There is at least one task, so that the results of repositories without commits are exported, too.
+         * The runtime of this repository is measured from here on because the commits were collected while the
+         * previous repository was still being analyzed.
+         */
+        private Stream<Callable<RepositoryBatchResult>> tasks(final CommitHistoryAnalysisTaskFactory taskFactory, int commitsToProcessPerThread) {
+            Logger.info(" === Begin Processing {} ===", repo.getRepositoryName());
+            clock.start();
+
+            if (commitIds.length == 0) {
+                remainingBatches = 1;
+                return Stream.of(() -> new RepositoryBatchResult(this, new AnalysisResult(repo.getRepositoryName())));
+            }
+
+            remainingBatches = (commitIds.length + commitsToProcessPerThread - 1) / commitsToProcessPerThread;
+            return IntStream.iterate(0, from -> from < commitIds.length, from -> from + commitsToProcessPerThread)
+                    .mapToObj(from -> {
+                        final Callable<AnalysisResult> batch = batch(repo, differ, outputDir, taskFactory, journal, commitIds, from, Math.min(from + commitsToProcessPerThread, commitIds.length));
+                        return () -> new RepositoryBatchResult(this, batch.call());
+                    });
+        }
+
+        /**
+         * Appends the result of a finished batch.
+         * If this was the last batch, the total result of this repository is exported and post-processed.
+         */
+        private void append(final AnalysisResult batchResult, final Consumer<Path> postProcessingOnRepositoryOutputDir) {
+            totalResult.append(batchResult);
+            if (--remainingBatches > 0) {
+                return;
+            }
+
+            totalResult.runtimeWithMultithreadingInSeconds = clock.getPassedSeconds();
+            totalResult.commitsFilteredAtWalkTime = differ.getNumberOfCommitsFilteredAtWalkTime();
+            totalResult.totalCommits = numberOfTotalCommits.invocationCount().get() + totalResult.commitsFilteredAtWalkTime;
+
+            exportMetadata(outputDir, totalResult);
+            deleteJournal(journal);
+            postProcessingOnRepositoryOutputDir.accept(outputDir);
+            Logger.info(" === End Processing {} after {} ===", repo.getRepositoryName(), clock.printPassedSeconds());
+        }
+    }
 }
@@ -18,6 +18,7 @@ public final class MetadataKeys {
 
     public final static String TOTAL_COMMITS = "total commits";
     public final static String FILTERED_COMMITS = "filtered commits";
+    public final static String COMMITS_FILTERED_AT_WALK_TIME = "commits filtered at walk time";
     public final static String FAILED_COMMITS = "failed commits";
     public final static String EMPTY_COMMITS = "empty commits";
     public final static String PROCESSED_COMMITS = "processed commits";
@@ -27,4 +28,10 @@ public final class MetadataKeys {
     public static final String MINCOMMIT = "fastestCommit";
     public static final String MAXCOMMIT = "slowestCommit";
     public final static String TREES = "tree diffs";
+    public final static String COMMITS_OVER_RENAME_LIMIT = "commits over rename limit";
+
+    public final static String BLOB_CACHE = "blob cache";
+    public final static String CONDITION_CACHE = "condition cache";
+    public final static String DEFERRED_CONDITIONS = "deferred conditions";
+    public final static String PARSED_DEFERRED_CONDITIONS = "parsed deferred conditions";
 }
@@ -0,0 +1,176 @@
+package org.variantsync.diffdetective.analysis;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * The set of commits of a repository that were already analyzed by an incremental {@link HistoryAnalysis}.
+ * Besides the processed commits, this index remembers the heads from which the history was walked.
+ * All commits reachable from these heads were processed, so subsequent analyses do not have to walk
+ * their history again.
+ * The index also remembers a checksum of the total result of the processed commits, so a total result that
+ * does not belong to the index (e.g., because the analysis died while writing both) can be detected.
+ * <p>
+ * On disk, the index is stored in a compact binary format containing the checksum and the raw ids of all
+ * heads and commits.
+ */
+public class ProcessedCommitsIndex {
+    /**
+     * File name that is used to store the index of processed commits for each repository.
+     */
+    public static final String FILE_NAME = "processedcommits.bin";
+
+    /**
+     * Identifies files written by {@link ProcessedCommitsIndex#save(Path)} and their format version.
+     */
+    private static final int MAGIC = 0x44444332; // "DDC2"
+
+    private final List<ObjectId> heads = new ArrayList<>();
+    private final Set<ObjectId> commits = new HashSet<>();
+    private long totalResultChecksum = 0;
+
+    /**
+     * Creates an empty index.
+     */
+    public ProcessedCommitsIndex() {}
+
+    /**
+     * Loads an index that was previously written with {@link ProcessedCommitsIndex#save(Path)}.
+     * @param file The file to read.
+     * @return The loaded index.
+     * @throws IOException if the file could not be read or is not an index.
+     */
+    public static ProcessedCommitsIndex load(final Path file) throws IOException {
+        final ProcessedCommitsIndex index = new ProcessedCommitsIndex();
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException(file + " is not an index of processed commits");
+            }
+
+            index.totalResultChecksum = input.readLong();
+
+            final byte[] rawId = new byte[Constants.OBJECT_ID_LENGTH];
+            final int numberOfHeads = input.readInt();
+            for (int i = 0; i < numberOfHeads; ++i) {
+                input.readFully(rawId);
+                index.heads.add(ObjectId.fromRaw(rawId));
+            }
+
+            final int numberOfCommits = input.readInt();
+            for (int i = 0; i < numberOfCommits; ++i) {
+                input.readFully(rawId);
+                index.commits.add(ObjectId.fromRaw(rawId));
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Writes this index to the given file. Overwrites existing files.
+     * The index is first written to a temporary file which then replaces the given file,
+     * so the given file is never left incomplete.
+     * @param file The file to write.
+     * @throws IOException if the file could not be written.
+     */
+    public void save(final Path file) throws IOException {
+        final Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+            output.writeInt(MAGIC);
+            output.writeLong(totalResultChecksum);
+
+            output.writeInt(heads.size());
+            for (final ObjectId head : heads) {
+                head.copyRawTo(output);
+            }
+
+            output.writeInt(commits.size());
+            for (final ObjectId commit : commits) {
+                commit.copyRawTo(output);
+            }
+        }
+
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Remembers the given file as the total result of the processed commits.
+     * @param totalResultFile The file containing the total result.
+     * @throws IOException if the file could not be read.
+     */
+    public void setTotalResult(final Path totalResultFile) throws IOException {
+        totalResultChecksum = checksumOf(totalResultFile);
+    }
+
+    /**
+     * Returns true iff the given file is the total result that was {@link #setTotalResult remembered}.
+     * @throws IOException if the file could not be read.
+     */
+    public boolean isTotalResult(final Path totalResultFile) throws IOException {
+        return checksumOf(totalResultFile) == totalResultChecksum;
+    }
+
+    private static long checksumOf(final Path file) throws IOException {
+        final CRC32 checksum = new CRC32();
+        checksum.update(Files.readAllBytes(file));
+        return checksum.getValue();
+    }
+
+    /**
+     * Returns true iff the given commit was already processed.
+     */
+    public boolean contains(final AnyObjectId commit) {
+        return commits.contains(commit);
+    }
+
+    /**
+     * Marks the given commits as processed.
+     */
+    public void addAll(final Collection<? extends AnyObjectId> processedCommits) {
+        for (final AnyObjectId commit : processedCommits) {
+            commits.add(commit.copy());
+        }
+    }
+
+    /**
+     * Remembers that all commits reachable from the given head were processed.
+     */
+    public void addHead(final AnyObjectId head) {
+        final ObjectId id = head.copy();
+        if (!heads.contains(id)) {
+            heads.add(id);
+        }
+    }
+
+    /**
+     * Returns the heads from which all reachable commits were processed.
+     */
+    public List<ObjectId> getHeads() {
+        return heads;
+    }
+
+    /**
+     * Returns the number of processed commits.
+     */
+    public int size() {
+        return commits.size();
+    }
+}
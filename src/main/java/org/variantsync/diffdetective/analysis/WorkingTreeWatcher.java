@@ -0,0 +1,278 @@
+package org.variantsync.diffdetective.analysis;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.tinylog.Logger;
+import org.variantsync.diffdetective.datasets.Repository;
+import org.variantsync.diffdetective.diff.CommitDiff;
+import org.variantsync.diffdetective.diff.GitDiffer;
+import org.variantsync.diffdetective.diff.PatchDiff;
+import org.variantsync.diffdetective.diff.result.CommitDiffResult;
+import org.variantsync.diffdetective.diff.result.DiffError;
+import org.variantsync.diffdetective.metadata.ElementaryPatternCount;
+import org.variantsync.diffdetective.metadata.Metadata;
+import org.variantsync.diffdetective.pattern.elementary.proposed.ProposedElementaryPatterns;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Continuously analyzes the uncommitted changes in the working tree of a repository.
+ * The watcher keeps the repository open and listens for changes in the working tree.
+ * Whenever files are saved, only the touched files are diffed against HEAD and the resulting
+ * {@link org.variantsync.diffdetective.diff.difftree.DiffTree}s and elementary pattern counts are reported
+ * to a listener.
+ * Thus, this class is meant as a backend for IDEs or pre-commit hooks where latency matters more
+ * than throughput.
+ * <p>
+ * Changes are reported with a delay of {@link WorkingTreeWatcher#QUIET_PERIOD_MILLISECONDS} so that editors
+ * that save files in multiple steps (e.g., by writing a temporary file and renaming it) cause a single update.
+ * The latency of the underlying {@link WatchService} depends on the operating system.
+ */
+public class WorkingTreeWatcher implements AutoCloseable {
+    /**
+     * Time to wait for further changes before the changed files are diffed.
+     */
+    public static final long QUIET_PERIOD_MILLISECONDS = 20;
+
+    /**
+     * The result of diffing the changed files of the working tree against HEAD.
+     * @param changedPaths The paths that were diffed, relative to the root of the working tree.
+     *                     A path of a directory stands for all files within that directory and the empty path
+     *                     stands for the whole working tree.
+     * @param diff The diff of the changed paths against HEAD.
+     * @param elementaryPatternCounts The elementary patterns matched in all {@link org.variantsync.diffdetective.diff.difftree.DiffTree}s of diff.
+     */
+    public record Update(
+            Set<String> changedPaths,
+            CommitDiffResult diff,
+            ElementaryPatternCount elementaryPatternCounts
+    ) {}
+
+    private final Git git;
+    private final Path workTree;
+    private final Path gitDir;
+    private final GitDiffer.Session session;
+    private final Consumer<Update> listener;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+
+    /**
+     * Opens the given repository and starts watching its working tree.
+     * Changes are only reported while {@link WorkingTreeWatcher#watch()} is running.
+     * The watcher has to be closed after use.
+     * @param repository The repository whose working tree should be watched.
+     *                   Its {@link org.variantsync.diffdetective.diff.DiffFilter} and
+     *                   {@link org.variantsync.diffdetective.datasets.ParseOptions} are used for diffing.
+     * @param listener Callback that is invoked on the watching thread for each change of the working tree.
+     * @throws IOException if the working tree could not be watched.
+     */
+    public WorkingTreeWatcher(final Repository repository, final Consumer<Update> listener) throws IOException {
+        this.git = repository.getGitRepo().run();
+        this.workTree = git.getRepository().getWorkTree().toPath().toAbsolutePath();
+        this.gitDir = git.getRepository().getDirectory().toPath().toAbsolutePath();
+        this.listener = listener;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            registerRecursively(workTree);
+        } catch (IOException e) {
+            watchService.close();
+            throw e;
+        }
+        this.session = new GitDiffer.Session(git, repository.getDiffFilter(), repository.getParseOptions());
+    }
+
+    /**
+     * Diffs the given paths of the working tree against HEAD.
+     * This method is invoked by {@link WorkingTreeWatcher#watch()} for all touched files but can also be used
+     * to obtain an initial state.
+     * @param paths Paths relative to the root of the working tree using <code>/</code> as separator.
+     *              The empty path stands for the whole working tree.
+     * @return The diff of the given paths and its elementary pattern counts.
+     */
+    public synchronized Update diff(final Collection<String> paths) {
+        final Set<String> changedPaths = new TreeSet<>(paths);
+        final ElementaryPatternCount elementaryPatternCounts = new ElementaryPatternCount();
+
+        // HEAD is resolved for each update because it moves whenever a commit is created.
+        final RevCommit head;
+        try {
+            final ObjectId headId = git.getRepository().resolve(Constants.HEAD);
+            if (headId == null) {
+                return new Update(changedPaths, CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Repository " + workTree + " has no HEAD"), elementaryPatternCounts);
+            }
+            head = session.getRevWalk().parseCommit(headId);
+        } catch (IOException e) {
+            return new Update(changedPaths, CommitDiffResult.Failure(DiffError.JGIT_ERROR, e.toString()), elementaryPatternCounts);
+        }
+
+        final CommitDiffResult diff = changedPaths.contains("")
+                ? session.createWorkingTreeDiff(head)
+                : session.createWorkingTreeDiff(head, changedPaths);
+        diff.diff().ifPresent(commitDiff -> countElementaryPatterns(commitDiff, elementaryPatternCounts));
+        return new Update(changedPaths, diff, elementaryPatternCounts);
+    }
+
+    /**
+     * Reports changes of the working tree to the listener until this watcher is closed or the current thread
+     * is interrupted.
+     * Changes that happen while the listener is running are reported in the next update.
+     * @throws InterruptedException if the current thread was interrupted while waiting for changes.
+     */
+    public void watch() throws InterruptedException {
+        try {
+            while (true) {
+                final Set<String> changedPaths = new TreeSet<>();
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    collectChanges(key, changedPaths);
+                    key = watchService.poll(QUIET_PERIOD_MILLISECONDS, TimeUnit.MILLISECONDS);
+                }
+
+                if (!changedPaths.isEmpty()) {
+                    listener.accept(diff(changedPaths));
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            // This watcher was closed.
+        }
+    }
+
+    /**
+     * Stops watching the working tree and releases all resources of the repository.
+     * May be invoked from another thread to stop {@link WorkingTreeWatcher#watch()}.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        watchService.close();
+        session.close();
+    }
+
+    /**
+     * Adds the paths of all events of the given key to changedPaths and starts watching new directories.
+     */
+    private void collectChanges(final WatchKey key, final Set<String> changedPaths) {
+        final Path directory = watchedDirectories.get(key);
+
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                // Some events were lost, so consider the whole directory as changed.
+                changedPaths.add(directory == null ? "" : toGitPath(directory));
+                continue;
+            }
+
+            final Path changedFile = directory.resolve((Path) event.context());
+            if (changedFile.startsWith(gitDir)) {
+                continue;
+            }
+
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changedFile)) {
+                try {
+                    registerRecursively(changedFile);
+                } catch (IOException e) {
+                    Logger.warn(e, "Could not watch new directory {}", changedFile);
+                }
+            }
+
+            changedPaths.add(toGitPath(changedFile));
+        }
+
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    /**
+     * Registers the given directory and all its subdirectories, except for the git directory, for changes.
+     */
+    private void registerRecursively(final Path directory) throws IOException {
+        Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                if (dir.startsWith(gitDir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+
+                final WatchKey key = dir.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirectories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Converts the given absolute path within the working tree to a path as used by git.
+     */
+    private String toGitPath(final Path file) {
+        final StringBuilder gitPath = new StringBuilder();
+        for (final Path part : workTree.relativize(file)) {
+            if (!gitPath.isEmpty()) {
+                gitPath.append('/');
+            }
+            gitPath.append(part);
+        }
+        return gitPath.toString();
+    }
+
+    /**
+     * Matches all code nodes of all valid patches of the given diff against the
+     * {@link ProposedElementaryPatterns proposed elementary patterns}.
+     */
+    private static void countElementaryPatterns(final CommitDiff commitDiff, final ElementaryPatternCount elementaryPatternCounts) {
+        for (final PatchDiff patch : commitDiff.getPatchDiffs()) {
+            if (patch.isValid()) {
+                patch.getDiffTree().forAll(node -> {
+                    if (node.isCode()) {
+                        elementaryPatternCounts.reportOccurrenceFor(ProposedElementaryPatterns.Instance.match(node), commitDiff);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * Watches the working tree of the repository in the given directory and logs the elementary patterns of
+     * its uncommitted changes whenever a file is saved.
+     * @param args The path to the working tree of the repository to watch.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length != 1) {
+            Logger.error("Expected exactly one argument: the path to the repository to watch.");
+            return;
+        }
+
+        final Path repositoryPath = Path.of(args[0]);
+        final Repository repository = Repository.fromDirectory(repositoryPath, repositoryPath.getFileName().toString());
+        try (WorkingTreeWatcher watcher = new WorkingTreeWatcher(repository, update -> {
+            update.diff().diff().ifPresent(commitDiff -> Logger.info("Diffed {} changed files", commitDiff.getPatchAmount()));
+            update.diff().errors().forEach(error -> Logger.warn("{}", error));
+            Logger.info("Elementary patterns:\n{}", Metadata.show(update.elementaryPatternCounts().snapshot()));
+        })) {
+            Logger.info("Watching {}", repositoryPath);
+            watcher.watch();
+        }
+    }
+}
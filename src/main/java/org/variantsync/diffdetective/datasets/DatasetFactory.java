@@ -1,5 +1,6 @@
 package org.variantsync.diffdetective.datasets;
 
+import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.tinylog.Logger;
@@ -50,6 +51,7 @@ public class DatasetFactory {
 //                    .build();
 
     private final Path cloneDirectory;
+    private WindowCacheOptions windowCacheOptions = null;
 
     /**
      * Creates a new DatasetFactory that will clone any loaded datasets to the given directy.
@@ -59,6 +61,18 @@ public class DatasetFactory {
         this.cloneDirectory = cloneDirectory;
     }
 
+    /**
+     * Sets the options for JGit's cache of pack files for all repositories created by this factory.
+     * The options are installed before the first repository is loaded.
+     * @param windowCacheOptions Options for reading pack files, or <code>null</code> to keep the installed options.
+     * @return this
+     * @see Repository#setWindowCacheOptions
+     */
+    public DatasetFactory setWindowCacheOptions(final WindowCacheOptions windowCacheOptions) {
+        this.windowCacheOptions = windowCacheOptions;
+        return this;
+    }
+
     /**
      * Returns the default DiffFilter for the repository with the given name.
      * For Marlin, this applies the same DiffFilter as Stanciulescu et al. did in their ICSME paper.
@@ -102,7 +116,7 @@ public class DatasetFactory {
                 dataset.name())
                 .orElseThrow();
 
-        repo.setDiffFilter(diffFilter).setParseOptions(parseOptions);
+        repo.setDiffFilter(diffFilter).setParseOptions(parseOptions).setWindowCacheOptions(windowCacheOptions);
 
         return repo;
     }
@@ -120,6 +134,10 @@ public class DatasetFactory {
     public List<Repository> createAll(final Collection<DatasetDescription> datasets, boolean preload, boolean pull) {
         final List<Repository> repos = datasets.stream().map(this::create).toList();
 
+        if (windowCacheOptions != null) {
+            windowCacheOptions.install();
+        }
+
         if (preload) {
             Logger.info("Preloading repositories:");
             for (final Repository repo : repos) {
@@ -131,7 +149,13 @@ public class DatasetFactory {
             Logger.info("Pulling repositories:");
             for (final Repository repo : repos) {
                 try {
-                    Assert.assertTrue(repo.getGitRepo().run().pull().call().isSuccessful());
+                    final Git git = repo.getGitRepo().run();
+                    if (git.getRepository().isBare()) {
+                        // Bare repositories have no working tree to merge into.
+                        git.fetch().call();
+                    } else {
+                        Assert.assertTrue(git.pull().call().isSuccessful());
+                    }
                 } catch (GitAPIException e) {
                     Logger.error(e, "Failed to pull repository '{}'", repo.getRepositoryName());
                 }
@@ -6,9 +6,22 @@ import org.variantsync.diffdetective.diff.difftree.parse.DiffNodeParser;
  * Parse options that should be used when parsing commits and patches within a commit history.
  * @param diffStoragePolicy Decides if and how unix diffs should be remembered when parsing commits.
  * @param annotationParser A parser for parsing c preprocessor annotations.
+ * @param fullDiffConstruction Decides how the full diff of a patch is obtained for parsing.
+ * @param renameDetection Decides whether renamed files are detected when diffing commits.
+ * @param renameLimit The maximum number of added or deleted files for which renames are detected
+ *                    if <code>renameDetection</code> is {@link RenameDetection#ADAPTIVE}.
+ * @param parallelPatchThreshold The minimum number of patches of a commit from which on the patches are
+ *                               diffed and parsed in parallel.
  * @author Paul Bittner
  */
-public record ParseOptions(DiffStoragePolicy diffStoragePolicy, DiffNodeParser annotationParser) {
+public record ParseOptions(
+        DiffStoragePolicy diffStoragePolicy,
+        DiffNodeParser annotationParser,
+        FullDiffConstruction fullDiffConstruction,
+        RenameDetection renameDetection,
+        int renameLimit,
+        int parallelPatchThreshold
+) {
     public enum DiffStoragePolicy {
         REMEMBER_DIFF,
         REMEMBER_STRIPPED_DIFF,
@@ -17,29 +30,152 @@ public record ParseOptions(DiffStoragePolicy diffStoragePolicy, DiffNodeParser a
     }
 
     /**
-     * Creates ParseOptions with the default value for {@link DiffStoragePolicy}.
+     * Ways to construct the full diff of a patch (i.e., the diff with the whole file before the change as context).
+     * Both ways produce the same full diffs.
+     */
+    public enum FullDiffConstruction {
+        /**
+         * Formats the patch as unified diff with JGit and then fills the gaps between the hunks
+         * with the file before the change.
+         */
+        UNIFIED_DIFF,
+        /**
+         * Walks the list of edits computed by JGit and the files before and after the change
+         * without formatting the patch as text.
+         * Patches without edits (e.g., binary files) and files with carriage returns that are not followed
+         * by a line feed are handled like {@link #UNIFIED_DIFF}.
+         */
+        EDIT_LIST
+    }
+
+    /**
+     * Modes of detecting renamed files when diffing commits.
+     * Rename detection has to compare all added with all deleted files of a commit.
+     * Its runtime is thus quadratic in the number of added and deleted files.
+     */
+    public enum RenameDetection {
+        /**
+         * Renamed files are not detected. Instead, they are reported as deleted and added files.
+         */
+        OFF,
+        /**
+         * Renamed files are detected with the rename limit configured for the repository
+         * (<code>diff.renameLimit</code>, which is 400 files by default in JGit).
+         */
+        ON,
+        /**
+         * Renamed files are detected unless a commit adds or deletes more files than the
+         * {@link ParseOptions#renameLimit() rename limit} of the parse options.
+         * Then, only renamed files with identical content are detected.
+         */
+        ADAPTIVE
+    }
+
+    /**
+     * Default value for <code>renameLimit</code>.
+     * @see ParseOptions#renameLimit()
+     */
+    public static final int DEFAULT_RENAME_LIMIT = 100;
+
+    /**
+     * Value for <code>parallelPatchThreshold</code> that disables parsing patches in parallel.
+     * @see ParseOptions#parallelPatchThreshold()
+     */
+    public static final int NO_PARALLEL_PATCHES = Integer.MAX_VALUE;
+
+    /**
+     * Creates ParseOptions with the default values for {@link FullDiffConstruction}, {@link RenameDetection},
+     * and parallel parsing of patches.
+     * @see ParseOptions#Default
+     * @param diffStoragePolicy Decides if and how unix diffs should be remembered when parsing commits.
+     * @param annotationParser A parser for parsing c preprocessor annotations.
+     */
+    public ParseOptions(DiffStoragePolicy diffStoragePolicy, DiffNodeParser annotationParser) {
+        this(diffStoragePolicy, annotationParser, FullDiffConstruction.EDIT_LIST, RenameDetection.ON, DEFAULT_RENAME_LIMIT, NO_PARALLEL_PATCHES);
+    }
+
+    /**
+     * Creates ParseOptions with the default value for {@link DiffStoragePolicy}, {@link FullDiffConstruction},
+     * {@link RenameDetection}, and parallel parsing of patches.
      * @see ParseOptions#Default
      * @param annotationParser A parser for parsing c preprocessor annotations.
      */
     public ParseOptions(DiffNodeParser annotationParser) {
-        this(Default.diffStoragePolicy, annotationParser);
+        this(Default.diffStoragePolicy, annotationParser, Default.fullDiffConstruction, Default.renameDetection, Default.renameLimit, Default.parallelPatchThreshold);
     }
 
     /**
      * Creates ParseOptions with the given policy for storing diffs.
-     * @see ParseOptions#ParseOptions(DiffStoragePolicy, DiffNodeParser)
+     * @see ParseOptions#ParseOptions(DiffStoragePolicy, DiffNodeParser, FullDiffConstruction, RenameDetection, int, int)
      * @param diffStoragePolicy Decides if and how unix diffs should be remembered when parsing commits.
      */
     public ParseOptions withDiffStoragePolicy(DiffStoragePolicy diffStoragePolicy) {
-        return new ParseOptions(diffStoragePolicy, this.annotationParser);
+        return new ParseOptions(diffStoragePolicy, this.annotationParser, this.fullDiffConstruction, this.renameDetection, this.renameLimit, this.parallelPatchThreshold);
+    }
+
+    /**
+     * Creates ParseOptions with the given parser for annotations.
+     * @see ParseOptions#ParseOptions(DiffStoragePolicy, DiffNodeParser, FullDiffConstruction, RenameDetection, int, int)
+     * @param annotationParser A parser for parsing c preprocessor annotations.
+     */
+    public ParseOptions withAnnotationParser(DiffNodeParser annotationParser) {
+        return new ParseOptions(this.diffStoragePolicy, annotationParser, this.fullDiffConstruction, this.renameDetection, this.renameLimit, this.parallelPatchThreshold);
+    }
+
+    /**
+     * Creates ParseOptions with the given way to construct full diffs.
+     * @see ParseOptions#ParseOptions(DiffStoragePolicy, DiffNodeParser, FullDiffConstruction, RenameDetection, int, int)
+     * @param fullDiffConstruction Decides how the full diff of a patch is obtained for parsing.
+     */
+    public ParseOptions withFullDiffConstruction(FullDiffConstruction fullDiffConstruction) {
+        return new ParseOptions(this.diffStoragePolicy, this.annotationParser, fullDiffConstruction, this.renameDetection, this.renameLimit, this.parallelPatchThreshold);
+    }
+
+    /**
+     * Creates ParseOptions with the given mode of rename detection.
+     * @see ParseOptions#ParseOptions(DiffStoragePolicy, DiffNodeParser, FullDiffConstruction, RenameDetection, int, int)
+     * @param renameDetection Decides whether renamed files are detected when diffing commits.
+     */
+    public ParseOptions withRenameDetection(RenameDetection renameDetection) {
+        return new ParseOptions(this.diffStoragePolicy, this.annotationParser, this.fullDiffConstruction, renameDetection, this.renameLimit, this.parallelPatchThreshold);
+    }
+
+    /**
+     * Creates ParseOptions with {@link RenameDetection#ADAPTIVE adaptive} rename detection using the given limit.
+     * @see ParseOptions#ParseOptions(DiffStoragePolicy, DiffNodeParser, FullDiffConstruction, RenameDetection, int, int)
+     * @param renameLimit The maximum number of added or deleted files for which renames are detected.
+     */
+    public ParseOptions withAdaptiveRenameDetection(int renameLimit) {
+        return new ParseOptions(this.diffStoragePolicy, this.annotationParser, this.fullDiffConstruction, RenameDetection.ADAPTIVE, renameLimit, this.parallelPatchThreshold);
+    }
+
+    /**
+     * Creates ParseOptions that diff and parse the patches of commits with at least the given number of
+     * patches in parallel.
+     * This is meant for huge commits (e.g., tree-wide refactorings) that would otherwise take much longer
+     * to process than all other commits.
+     * The order of patches in the resulting {@link org.variantsync.diffdetective.diff.CommitDiff} is kept.
+     * @see ParseOptions#ParseOptions(DiffStoragePolicy, DiffNodeParser, FullDiffConstruction, RenameDetection, int, int)
+     * @param parallelPatchThreshold The minimum number of patches of a commit from which on the patches are
+     *                               processed in parallel or {@link #NO_PARALLEL_PATCHES}.
+     */
+    public ParseOptions withParallelPatchThreshold(int parallelPatchThreshold) {
+        return new ParseOptions(this.diffStoragePolicy, this.annotationParser, this.fullDiffConstruction, this.renameDetection, this.renameLimit, parallelPatchThreshold);
     }
 
     /**
-     * Default value for ParseOptions that does not remember parsed unix diffs
-     * and uses the default value for the parsing annotations ({@link DiffNodeParser#Default}).
+     * Default value for ParseOptions that does not remember parsed unix diffs,
+     * uses the default value for the parsing annotations ({@link DiffNodeParser#Default}),
+     * constructs full diffs from {@link FullDiffConstruction#EDIT_LIST edit lists},
+     * detects renames with the limit configured for each repository,
+     * and parses all patches of a commit sequentially.
      */
     public static final ParseOptions Default = new ParseOptions(
             DiffStoragePolicy.DO_NOT_REMEMBER,
-            DiffNodeParser.Default
+            DiffNodeParser.Default,
+            FullDiffConstruction.EDIT_LIST,
+            RenameDetection.ON,
+            DEFAULT_RENAME_LIMIT,
+            NO_PARALLEL_PATCHES
     );
 }
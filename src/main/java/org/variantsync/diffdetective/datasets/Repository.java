@@ -49,6 +49,11 @@ public class Repository {
      */
 	private ParseOptions parseOptions;
 
+	/**
+	 * Options for JGit's cache of pack files. May be <code>null</code> to keep the installed options.
+	 */
+	private WindowCacheOptions windowCacheOptions;
+
 	private final Lazy<Git> git = Lazy.of(this::load);
 	
 	/**
@@ -149,6 +154,57 @@ public class Repository {
 				.map(remote -> fromRemote(localDir.resolve(repoName), remote, repoName));
 	}
 
+	/**
+	 * Creates a repository from a remote repository that is cloned as a bare mirror.
+	 * A mirror has no working tree, so no files are checked out.
+	 * This saves time and disk space when only the history of a repository is analyzed.
+	 *
+	 * @param localPath Path to clone the repository to.
+	 * @param repoUri The address of the remote repository
+	 * @param repoName Name of the folder, where the git repository is cloned to
+	 * @return A repository from a remote location (e.g. Github repository)
+	 */
+	public static Repository fromRemoteMirror(Path localPath, URI repoUri, String repoName) {
+		return new Repository(
+				RepositoryLocationType.FROM_REMOTE_MIRROR,
+				localPath,
+				repoUri,
+				repoName);
+	}
+
+	/**
+	 * Creates a repository from a remote repository that is cloned as a bare mirror.
+	 *
+	 * @param localDir Directory to clone the repository to.
+	 * @param repoUri The address of the remote repository
+	 * @param repoName Name of the folder, where the git repository is cloned to
+	 * @return A repository from a remote location (e.g. Github repository)
+	 * @see Repository#fromRemoteMirror
+	 */
+	public static Optional<Repository> tryFromRemoteMirror(Path localDir, String repoUri, String repoName) {
+		return IO
+				.tryParseURI(repoUri)
+				.map(remote -> fromRemoteMirror(localDir.resolve(repoName), remote, repoName));
+	}
+
+	/**
+	 * Creates a repository from a local pack file.
+	 * The index and the refs of the pack have to be next to the pack with the same name but the extensions
+	 * <code>idx</code> and <code>refs</code>, respectively.
+	 *
+	 * @param packPath The path to the pack file (absolute or relative to {@code <WORKING_DIRECTORY>}).
+	 * @param repoName A name for the repository (currently not used)
+	 * @return A repository from a local pack file
+	 * @see GitLoader#fromPack
+	 */
+	public static Repository fromPack(Path packPath, String repoName) {
+		return new Repository(
+				RepositoryLocationType.FROM_PACK,
+				packPath,
+				null,
+				repoName);
+	}
+
 	/**
 	 * @return the location type indicating how this repository is stored.
 	 */
@@ -160,8 +216,9 @@ public class Repository {
 	 * The path to the repository on disk.
 	 * The path points to the root directory of the repository if the repository is stored in a directory.
 	 * The path points to a zip file if the repository is stored in a zip file.
+	 * The path points to a pack file if the repository is stored in a pack file.
 	 * The path points to a (possibly not existing) directory to which the repository should be cloned to if the
-	 * repository is stored on a remote server.
+	 * repository is stored on a remote server. For a mirror, this directory is a bare repository.
 	 * @see Repository#getRepoLocation()
 	 * @see RepositoryLocationType
 	 * @return The path to the repository on disk.
@@ -220,6 +277,32 @@ public class Repository {
 		return parseOptions;
 	}
 
+	/**
+	 * Set the options for JGit's cache of pack files (e.g., the maximum number of bytes of packs held in
+	 * memory, the size of each window, the size of the delta base cache, and whether packs should be
+	 * memory mapped).
+	 * The options are installed when this repository is loaded.
+	 * Note that JGit uses a single cache for all repositories, so the options affect all
+	 * repositories of this JVM.
+	 * @param windowCacheOptions Options to install when loading, or <code>null</code> to keep the
+	 *                           installed options.
+	 * @return this
+	 * @see WindowCacheOptions#install()
+	 */
+	public Repository setWindowCacheOptions(final WindowCacheOptions windowCacheOptions) {
+		this.windowCacheOptions = windowCacheOptions;
+		return this;
+	}
+
+	/**
+	 * The options for JGit's cache of pack files that are installed when loading this repository.
+	 * May be <code>null</code>.
+	 * @see Repository#setWindowCacheOptions
+	 */
+	public WindowCacheOptions getWindowCacheOptions() {
+		return windowCacheOptions;
+	}
+
 	/**
 	 * Returns the internal jgit representation of this repository that allows to inspect the repositories history and content.
 	 */
@@ -232,10 +315,15 @@ public class Repository {
 	 */
 	private Git load() {
 		Logger.info("Loading git at {} ...", getLocalPath());
+		if (windowCacheOptions != null) {
+			windowCacheOptions.install();
+		}
 		return switch (getRepoLocation()) {
 			case FROM_DIR -> GitLoader.fromDirectory(getLocalPath());
 			case FROM_ZIP -> GitLoader.fromZip(getLocalPath());
 			case FROM_REMOTE -> GitLoader.fromRemote(getLocalPath(), getRemoteURI());
+			case FROM_REMOTE_MIRROR -> GitLoader.fromRemote(getLocalPath(), getRemoteURI(), true);
+			case FROM_PACK -> GitLoader.fromPack(getLocalPath());
 			default -> throw new UnsupportedOperationException("Unknown git repo source");
 		};
 	}
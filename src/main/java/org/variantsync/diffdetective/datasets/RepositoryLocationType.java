@@ -1,7 +1,7 @@
 package org.variantsync.diffdetective.datasets;
 
 /**
- * Read the input from a local directory, a local zip file or a remote repository.
+ * Read the input from a local directory, a local zip file, a local pack file or a remote repository.
  * 
  * @author Kevin Jedelhauser
  */
@@ -19,5 +19,15 @@ public enum RepositoryLocationType {
 	/**
 	 * Load repository from a remote location.
 	 */
-	FROM_REMOTE
+	FROM_REMOTE,
+
+	/**
+	 * Load repository from a remote location as a bare mirror without a working tree.
+	 */
+	FROM_REMOTE_MIRROR,
+
+	/**
+	 * Load repository from a local pack file and its index without any working tree.
+	 */
+	FROM_PACK
 }
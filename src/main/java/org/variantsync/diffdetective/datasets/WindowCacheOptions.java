@@ -0,0 +1,122 @@
+package org.variantsync.diffdetective.datasets;
+
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.tinylog.Logger;
+
+/**
+ * Options for JGit's cache of pack files.
+ * Reading commits and files from a repository mostly means inflating objects from pack files and
+ * resolving deltas against their bases.
+ * These options decide how much of the pack files is held in memory for doing so.
+ * <p>
+ * JGit uses a single cache for all repositories of a JVM.
+ * Installing options thus affects all repositories and clears the cache.
+ * @param packedGitLimit The maximum number of bytes of pack files held in memory.
+ * @param packedGitWindowSize The number of bytes of a pack file read at once.
+ *                            Has to be a power of two.
+ * @param packedGitMMAP Whether pack files are memory mapped instead of read into the heap.
+ * @param deltaBaseCacheLimit The maximum number of bytes of inflated delta bases held in memory.
+ * @param streamFileThreshold The size in bytes from which on objects are streamed instead of being
+ *                            loaded into memory as a whole.
+ */
+public record WindowCacheOptions(
+        long packedGitLimit,
+        int packedGitWindowSize,
+        boolean packedGitMMAP,
+        int deltaBaseCacheLimit,
+        int streamFileThreshold
+) {
+    /**
+     * The options that were installed last.
+     * Used to avoid clearing the cache when the same options are installed again.
+     */
+    private static WindowCacheOptions installed = null;
+
+    /**
+     * Default options as chosen by JGit.
+     */
+    public static final WindowCacheOptions Default = from(new WindowCacheConfig());
+
+    /**
+     * Creates options with the values of the given JGit configuration.
+     */
+    public static WindowCacheOptions from(final WindowCacheConfig config) {
+        return new WindowCacheOptions(
+                config.getPackedGitLimit(),
+                config.getPackedGitWindowSize(),
+                config.isPackedGitMMAP(),
+                config.getDeltaBaseCacheLimit(),
+                config.getStreamFileThreshold()
+        );
+    }
+
+    /**
+     * Creates options with the given limit for pack files held in memory.
+     * @see WindowCacheOptions#packedGitLimit()
+     */
+    public WindowCacheOptions withPackedGitLimit(long packedGitLimit) {
+        return new WindowCacheOptions(packedGitLimit, this.packedGitWindowSize, this.packedGitMMAP, this.deltaBaseCacheLimit, this.streamFileThreshold);
+    }
+
+    /**
+     * Creates options with the given window size.
+     * @see WindowCacheOptions#packedGitWindowSize()
+     */
+    public WindowCacheOptions withPackedGitWindowSize(int packedGitWindowSize) {
+        return new WindowCacheOptions(this.packedGitLimit, packedGitWindowSize, this.packedGitMMAP, this.deltaBaseCacheLimit, this.streamFileThreshold);
+    }
+
+    /**
+     * Creates options that do or do not memory map pack files.
+     * @see WindowCacheOptions#packedGitMMAP()
+     */
+    public WindowCacheOptions withPackedGitMMAP(boolean packedGitMMAP) {
+        return new WindowCacheOptions(this.packedGitLimit, this.packedGitWindowSize, packedGitMMAP, this.deltaBaseCacheLimit, this.streamFileThreshold);
+    }
+
+    /**
+     * Creates options with the given limit for cached delta bases.
+     * @see WindowCacheOptions#deltaBaseCacheLimit()
+     */
+    public WindowCacheOptions withDeltaBaseCacheLimit(int deltaBaseCacheLimit) {
+        return new WindowCacheOptions(this.packedGitLimit, this.packedGitWindowSize, this.packedGitMMAP, deltaBaseCacheLimit, this.streamFileThreshold);
+    }
+
+    /**
+     * Creates options with the given threshold for streaming large objects.
+     * @see WindowCacheOptions#streamFileThreshold()
+     */
+    public WindowCacheOptions withStreamFileThreshold(int streamFileThreshold) {
+        return new WindowCacheOptions(this.packedGitLimit, this.packedGitWindowSize, this.packedGitMMAP, this.deltaBaseCacheLimit, streamFileThreshold);
+    }
+
+    /**
+     * Converts these options to a JGit configuration.
+     */
+    public WindowCacheConfig toWindowCacheConfig() {
+        final WindowCacheConfig config = new WindowCacheConfig();
+        config.setPackedGitLimit(packedGitLimit);
+        config.setPackedGitWindowSize(packedGitWindowSize);
+        config.setPackedGitMMAP(packedGitMMAP);
+        config.setDeltaBaseCacheLimit(deltaBaseCacheLimit);
+        config.setStreamFileThreshold(streamFileThreshold);
+        return config;
+    }
+
+    /**
+     * Configures JGit's cache of pack files for all repositories with these options.
+     * Does nothing if these options are installed already.
+     * Should be invoked before any repository is opened because the cache is cleared.
+     */
+    public void install() {
+        synchronized (WindowCacheOptions.class) {
+            if (this.equals(installed)) {
+                return;
+            }
+
+            Logger.info("Installing {}", this);
+            toWindowCacheConfig().install();
+            installed = this;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package org.variantsync.diffdetective.diff;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.variantsync.diffdetective.analysis.MetadataKeys;
+import org.variantsync.diffdetective.metadata.CacheStatistics;
+import org.variantsync.diffdetective.util.StripedLruCache;
+
+import java.io.IOException;
+
+/**
+ * A bounded cache for the lines of git blobs.
+ * Blobs are immutable and identified by their {@link ObjectId}, so a file that is not changed
+ * by a commit (e.g., a header that is touched by many consecutive commits) only has to be
+ * inflated and decoded once as long as it remains in the cache.
+ * <p>
+ * Blobs are cached as {@link LineText}s which are split into lines but decoded only on demand.
+ * The cache is bounded by an estimate of the memory occupied by the cached blobs.
+ * It is safe to be shared between threads.
+ * See {@link StripedLruCache} for how blobs are evicted.
+ */
+public class BlobCache {
+    /**
+     * Default capacity of a cache in bytes.
+     */
+    public static final long DEFAULT_CAPACITY_IN_BYTES = 64L * 1024 * 1024;
+
+    /**
+     * Opens a blob to load when it is not cached.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        ObjectLoader open() throws IOException;
+    }
+
+    private final StripedLruCache<AnyObjectId, LineText> blobs;
+
+    /**
+     * Creates a cache with {@link #DEFAULT_CAPACITY_IN_BYTES} and
+     * {@link StripedLruCache#DEFAULT_NUMBER_OF_STRIPES}.
+     */
+    public BlobCache() {
+        this(DEFAULT_CAPACITY_IN_BYTES, StripedLruCache.DEFAULT_NUMBER_OF_STRIPES);
+    }
+
+    /**
+     * Creates a cache that holds at most the given amount of bytes.
+     * @param capacityInBytes Estimated amount of memory in bytes this cache might occupy at most.
+     * @param numberOfStripes Number of independently locked parts of this cache.
+     *                        Has to be a power of two.
+     */
+    public BlobCache(long capacityInBytes, int numberOfStripes) {
+        this.blobs = new StripedLruCache<>(capacityInBytes, numberOfStripes, LineText::estimateSizeInBytes);
+    }
+
+    /**
+     * Creates new statistics to which lookups in blob caches can be reported.
+     */
+    public static CacheStatistics.Recorder newStatistics() {
+        return new CacheStatistics.Recorder(MetadataKeys.BLOB_CACHE);
+    }
+
+    /**
+     * The same as {@link BlobCache#get(AnyObjectId, Loader, CacheStatistics.Recorder)} but loads
+     * missing blobs from the given reader.
+     */
+    public LineText get(final ObjectReader reader, final AnyObjectId blobId, final CacheStatistics.Recorder statistics) throws IOException {
+        return get(blobId, () -> reader.open(blobId), statistics);
+    }
+
+    /**
+     * Returns the lines of the blob with the given id.
+     * If the blob is not cached yet, it is loaded with the given loader and cached afterwards.
+     * The returned text is shared between all users of this cache.
+     *
+     * @param blobId The id of the blob to load.
+     * @param loader Opens the blob in case it is not cached.
+     * @param statistics Records the outcome of this lookup.
+     * @return The lines of the requested blob.
+     * @throws IOException If the blob is not cached and could not be loaded.
+     */
+    public LineText get(final AnyObjectId blobId, final Loader loader, final CacheStatistics.Recorder statistics) throws IOException {
+        final LineText cached = blobs.get(blobId, statistics);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Do not block other threads while inflating the blob.
+        return blobs.putIfAbsent(blobId.copy(), LineText.load(loader.open()), statistics);
+    }
+
+    /**
+     * Removes all blobs from this cache.
+     */
+    public void clear() {
+        blobs.clear();
+    }
+}
@@ -3,10 +3,16 @@ package org.variantsync.diffdetective.diff;
 import org.apache.commons.io.FilenameUtils;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * A filter for commits and patches.
@@ -62,6 +68,12 @@ public class DiffFilter {
      */
     private final boolean allowMerge;
 
+    /**
+     * When set to true, only the first parent of each commit is followed when walking the history.
+     * Commits that were only merged into the history are not considered at all.
+     */
+    private final boolean firstParentOnly;
+
     /**
      * Builder for a DiffFilter.
      *
@@ -75,6 +87,7 @@ public class DiffFilter {
         private final List<String> allowedPaths;
         private final List<String> blockedPaths;
         private boolean allowMerge;
+        private boolean firstParentOnly;
 
         /**
          * Create a new builder that is used to construct a DiffFilter.
@@ -86,6 +99,7 @@ public class DiffFilter {
             allowedPaths = new ArrayList<>();
             blockedPaths = new ArrayList<>();
             allowMerge = true;
+            firstParentOnly = false;
         }
 
         /**
@@ -99,6 +113,7 @@ public class DiffFilter {
             allowedPaths = new ArrayList<>(other.allowedPaths);
             blockedPaths = new ArrayList<>(other.blockedPaths);
             allowMerge = other.allowMerge;
+            firstParentOnly = other.firstParentOnly;
         }
 
         /**
@@ -166,6 +181,17 @@ public class DiffFilter {
             return this;
         }
 
+        /**
+         * Specifies whether only the first parent of each commit should be followed when walking the history.
+         * @param firstParentOnly True iff commits that are only reachable via the second or later parent of a
+         *                        merge commit should be ignored.
+         * @return this
+         */
+        public Builder firstParentOnly(boolean firstParentOnly) {
+            this.firstParentOnly = firstParentOnly;
+            return this;
+        }
+
         /**
          * Resets the list of allowed change types to allow all change types.
          * @return this
@@ -202,6 +228,7 @@ public class DiffFilter {
         this.allowedPaths = builder.allowedPaths;
         this.blockedPaths = builder.blockedPaths;
         this.allowMerge = builder.allowMerge;
+        this.firstParentOnly = builder.firstParentOnly;
     }
 
     /**
@@ -264,6 +291,36 @@ public class DiffFilter {
         return true;
     }
 
+    /**
+     * Compiles the parts of this filter that only depend on the path and the change type of a patch into
+     * a filter for JGit's {@link TreeWalk}.
+     * When installed on a {@link org.eclipse.jgit.diff.DiffFormatter} via
+     * {@link org.eclipse.jgit.diff.DiffFormatter#setPathFilter(TreeFilter)}, subtrees that cannot contain any
+     * allowed path are not descended and filtered files are neither diffed nor considered for rename detection.
+     * <p>
+     * The returned filter only excludes paths for which {@link DiffFilter#filter(DiffEntry)} would reject each
+     * patch that contains them, so it is meant as a pre-filter and does not replace {@link DiffFilter#filter(DiffEntry)}.
+     * As filtered files are not considered for rename detection, a file renamed from a filtered path is
+     * reported as added.
+     * @return A filter for paths that have to be diffed or {@link TreeFilter#ALL} if no path can be excluded.
+     */
+    public TreeFilter toTreeFilter() {
+        final boolean onlyModifications =
+                !allowedChangeTypes.isEmpty()
+                && allowedChangeTypes.stream().allMatch(changeType -> changeType == DiffEntry.ChangeType.MODIFY);
+
+        if (allowedPaths.isEmpty()
+                && blockedPaths.isEmpty()
+                && allowedFileExtensions.isEmpty()
+                && blockedFileExtensions.isEmpty()
+                && !onlyModifications)
+        {
+            return TreeFilter.ALL;
+        }
+
+        return new PathAndChangeTypeFilter(this, onlyModifications);
+    }
+
     /**
      * Applies this filter to the given commit.
      * The given RevCommit remains unmodifed.
@@ -274,6 +331,26 @@ public class DiffFilter {
         return this.allowMerge || commit.getParentCount() <= 1;
     }
 
+    /**
+     * Compiles the parts of this filter that only depend on the header of a commit into a filter for JGit's
+     * {@link RevWalk}.
+     * When installed via {@link RevWalk#setRevFilter(RevFilter)}, filtered commits are skipped by the walk
+     * before they are handed to the caller.
+     * The returned filter is consistent with {@link DiffFilter#filter(RevCommit)}.
+     * @return A filter for commits that should be considered or {@link RevFilter#ALL} if no commit can be excluded.
+     */
+    public RevFilter toRevFilter() {
+        return allowMerge ? RevFilter.ALL : RevFilter.NO_MERGES;
+    }
+
+    /**
+     * Returns true iff only the first parent of each commit should be followed when walking the history.
+     * @see RevWalk#setFirstParent(boolean)
+     */
+    public boolean isFirstParentOnly() {
+        return firstParentOnly;
+    }
+
     private boolean isAllowedPath(String filename) {
         return allowedPaths.stream().anyMatch(filename::matches);
     }
@@ -293,4 +370,86 @@ public class DiffFilter {
     private String getFileExtension(String path){
         return FilenameUtils.getExtension(path).toLowerCase();
     }
+
+    /**
+     * The path and change type restrictions of a {@link DiffFilter} as {@link TreeFilter}.
+     * @see DiffFilter#toTreeFilter()
+     */
+    private static class PathAndChangeTypeFilter extends TreeFilter {
+        private final DiffFilter filter;
+        private final List<Pattern> allowedPaths;
+        private final List<Pattern> blockedPaths;
+        private final boolean onlyModifications;
+
+        private PathAndChangeTypeFilter(final DiffFilter filter, boolean onlyModifications) {
+            this.filter = filter;
+            this.allowedPaths = filter.allowedPaths.stream().map(Pattern::compile).toList();
+            this.blockedPaths = filter.blockedPaths.stream().map(Pattern::compile).toList();
+            this.onlyModifications = onlyModifications;
+        }
+
+        @Override
+        public boolean include(final TreeWalk walker) {
+            final String path = walker.getPathString();
+
+            if (walker.isSubtree()) {
+                return mayContainAllowedPath(path + "/");
+            }
+
+            if (onlyModifications && walker.getTreeCount() == 2
+                    && (walker.getRawMode(0) == 0 || walker.getRawMode(1) == 0)) {
+                // The file was added or deleted.
+                return false;
+            }
+
+            if (!allowedPaths.isEmpty() && allowedPaths.stream().noneMatch(p -> p.matcher(path).matches())) {
+                return false;
+            }
+            if (blockedPaths.stream().anyMatch(p -> p.matcher(path).matches())) {
+                return false;
+            }
+            if (!filter.allowedFileExtensions.isEmpty() && !filter.hasAllowedExtension(path)) {
+                return false;
+            }
+            if (filter.hasBlockedExtension(path)) {
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Returns false iff no path starting with the given directory can match any allowed path.
+         */
+        private boolean mayContainAllowedPath(final String directory) {
+            if (allowedPaths.isEmpty()) {
+                return true;
+            }
+
+            for (final Pattern allowedPath : allowedPaths) {
+                final Matcher matcher = allowedPath.matcher(directory);
+                // If the end of the input was not hit, appending more characters cannot produce a match.
+                if (matcher.matches() || matcher.hitEnd()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean shouldBeRecursive() {
+            // Regular expressions may span multiple directories.
+            return !allowedPaths.isEmpty() || !blockedPaths.isEmpty();
+        }
+
+        @Override
+        public TreeFilter clone() {
+            // This filter is stateless.
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "DIFF_FILTER";
+        }
+    }
 }
@@ -0,0 +1,220 @@
+package org.variantsync.diffdetective.diff;
+
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates the lines of a full diff without building the diff as text.
+ * A full diff is a unified diff that contains the complete file before the change as context
+ * (see {@link GitDiffer#getFullDiff(String[], java.io.BufferedReader)}).
+ * <p>
+ * The lines are produced directly from the list of edits computed by JGit and the lines of the
+ * files before and after the change.
+ * To stay compatible with full diffs built from unified diffs formatted by JGit's
+ * {@link org.eclipse.jgit.diff.DiffFormatter}, this iterator walks the edits in the same hunks as
+ * the formatter does.
+ * A missing newline at the end of a file inside a hunk thus still produces two empty lines.
+ * Byte order marks are removed from all lines.
+ */
+public class FullDiffIterator implements Iterator<String> {
+    private static final String BOM = "\uFEFF";
+
+    private final LineText before;
+    private final LineText after;
+    private final EditList edits;
+    private final int context;
+
+    // current position in before and after
+    private int aCur = 0;
+    private int bCur = 0;
+
+    // index of the current edit in edits
+    private int curIdx = 0;
+    private Edit curEdit = null;
+
+    // the current hunk if inHunk is true
+    private boolean inHunk = false;
+    private int endIdx;
+    private int aEnd;
+    private int bEnd;
+
+    // emulation of the "\ No newline at end of file" marker
+    private int pendingEmptyLines = 0;
+    private boolean endsWithLinebreak = false;
+    private String lookahead = null;
+
+    private String next;
+
+    /**
+     * Creates an iterator over the full diff between two files.
+     * @param before The file before the change.
+     * @param after The file after the change.
+     * @param edits The edits that transform before into after.
+     * @param context The number of lines of context a hunk has around its edits.
+     */
+    public FullDiffIterator(final LineText before, final LineText after, final EditList edits, int context) {
+        this.before = before;
+        this.after = after;
+        this.edits = edits;
+        this.context = context;
+        if (!edits.isEmpty()) {
+            curEdit = edits.get(0);
+        }
+        this.next = computeNext();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+
+        final String current = next;
+        next = computeNext();
+        return current;
+    }
+
+    /**
+     * Returns true iff the textual representation of this full diff ends with an additional line break.
+     * This is the case if the full diff ends within a hunk with a line that misses its newline.
+     * Only valid after all lines have been iterated.
+     */
+    public boolean endsWithLinebreak() {
+        return endsWithLinebreak;
+    }
+
+    private String computeNext() {
+        if (lookahead != null) {
+            final String line = lookahead;
+            lookahead = null;
+            return line;
+        }
+
+        if (pendingEmptyLines == 2) {
+            pendingEmptyLines = 1;
+            return "";
+        }
+
+        if (pendingEmptyLines == 1) {
+            pendingEmptyLines = 0;
+            // The second empty line only exists if it is followed by another line.
+            lookahead = computeNextLine();
+            if (lookahead == null) {
+                endsWithLinebreak = true;
+                return null;
+            }
+            return "";
+        }
+
+        return computeNextLine();
+    }
+
+    private String computeNextLine() {
+        while (true) {
+            if (inHunk) {
+                if (aCur < aEnd || bCur < bEnd) {
+                    final String line = nextHunkLine();
+                    if (line != null) {
+                        return line;
+                    }
+                    continue;
+                }
+                inHunk = false;
+            }
+
+            if (curIdx < edits.size()) {
+                final int hunkBeginA = Math.max(0, curEdit.getBeginA() - context);
+                if (aCur < hunkBeginA) {
+                    // unchanged line between two hunks
+                    ++bCur;
+                    return " " + lineOf(before, aCur++);
+                }
+
+                // begin the next hunk
+                endIdx = findCombinedEnd(curIdx);
+                final Edit endEdit = edits.get(endIdx);
+                aCur = hunkBeginA;
+                bCur = Math.max(0, curEdit.getBeginB() - context);
+                aEnd = Math.min(before.size(), endEdit.getEndA() + context);
+                bEnd = Math.min(after.size(), endEdit.getEndB() + context);
+                inHunk = true;
+                continue;
+            }
+
+            // unchanged lines after the last hunk
+            if (aCur < before.size()) {
+                return " " + lineOf(before, aCur++);
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Performs a single step within the current hunk in the same way as
+     * {@link org.eclipse.jgit.diff.DiffFormatter#format(EditList, org.eclipse.jgit.diff.RawText, org.eclipse.jgit.diff.RawText)}.
+     * @return The produced line or null if this step did not produce a line.
+     */
+    private String nextHunkLine() {
+        String line = null;
+
+        if (aCur < curEdit.getBeginA() || endIdx + 1 < curIdx) {
+            line = " " + lineOf(before, aCur);
+            markMissingNewline(before, aCur);
+            ++aCur;
+            ++bCur;
+        } else if (aCur < curEdit.getEndA()) {
+            line = "-" + lineOf(before, aCur);
+            markMissingNewline(before, aCur);
+            ++aCur;
+        } else if (bCur < curEdit.getEndB()) {
+            line = "+" + lineOf(after, bCur);
+            markMissingNewline(after, bCur);
+            ++bCur;
+        }
+
+        if (curEdit.getEndA() <= aCur && curEdit.getEndB() <= bCur && ++curIdx < edits.size()) {
+            curEdit = edits.get(curIdx);
+        }
+
+        return line;
+    }
+
+    private void markMissingNewline(final LineText text, int line) {
+        if (line + 1 == text.size() && text.isMissingNewlineAtEnd()) {
+            pendingEmptyLines = 2;
+        }
+    }
+
+    private int findCombinedEnd(int i) {
+        int end = i + 1;
+        while (end < edits.size() && (combineA(end) || combineB(end))) {
+            end++;
+        }
+        return end - 1;
+    }
+
+    private boolean combineA(int i) {
+        return edits.get(i).getBeginA() - edits.get(i - 1).getEndA() <= 2 * context;
+    }
+
+    private boolean combineB(int i) {
+        return edits.get(i).getBeginB() - edits.get(i - 1).getEndB() <= 2 * context;
+    }
+
+    private static String lineOf(final LineText text, int i) {
+        final String line = text.getLine(i);
+        if (!line.contains(BOM)) {
+            return line;
+        }
+        return line.replace(BOM, "");
+    }
+}
@@ -2,19 +2,35 @@ package org.variantsync.diffdetective.diff;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.ContentSource;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffConfig;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.storage.pack.PackConfig;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.FileTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.tinylog.Logger;
 import org.variantsync.diffdetective.datasets.ParseOptions;
 import org.variantsync.diffdetective.datasets.Repository;
@@ -23,6 +39,10 @@ import org.variantsync.diffdetective.diff.difftree.parse.DiffTreeParser;
 import org.variantsync.diffdetective.diff.result.CommitDiffResult;
 import org.variantsync.diffdetective.diff.result.DiffError;
 import org.variantsync.diffdetective.diff.result.DiffResult;
+import org.variantsync.diffdetective.feature.ConditionStatistics;
+import org.variantsync.diffdetective.metadata.CacheStatistics;
+import org.variantsync.diffdetective.parallel.CpuBoundWork;
+import org.variantsync.diffdetective.parallel.VirtualThreads;
 import org.variantsync.diffdetective.preliminary.GitDiff;
 import org.variantsync.diffdetective.util.StringUtils;
 import org.variantsync.functjonal.Result;
@@ -33,10 +53,23 @@ import org.variantsync.functjonal.iteration.Yield;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -60,15 +93,40 @@ public class GitDiffer {
     private final Git git;
     private final DiffFilter diffFilter;
     private final ParseOptions parseOptions;
+    private final BlobCache blobCache;
+    private final CpuBoundWork cpuBoundWork;
+    private final AtomicInteger commitsFilteredAtWalkTime = new AtomicInteger(0);
 
     /**
      * Create a differ operating on the given repository.
+     * All sessions of this differ share a new {@link BlobCache} with default capacity.
      * @param repository The repository for whose history to obtain diffs.
      */
     public GitDiffer(final Repository repository) {
+        this(repository, new BlobCache());
+    }
+
+    /**
+     * Create a differ operating on the given repository.
+     * @param repository The repository for whose history to obtain diffs.
+     * @param blobCache Cache for the files before a commit that is shared by all sessions of this differ.
+     */
+    public GitDiffer(final Repository repository, final BlobCache blobCache) {
+        this(repository, blobCache, CpuBoundWork.UNLIMITED);
+    }
+
+    /**
+     * Create a differ operating on the given repository.
+     * @param repository The repository for whose history to obtain diffs.
+     * @param blobCache Cache for the files before a commit that is shared by all sessions of this differ.
+     * @param cpuBoundWork Limits the threads that diff and parse patches at the same time.
+     */
+    public GitDiffer(final Repository repository, final BlobCache blobCache, final CpuBoundWork cpuBoundWork) {
         this.git = repository.getGitRepo().run();
         this.diffFilter = repository.getDiffFilter();
         this.parseOptions = repository.getParseOptions();
+        this.blobCache = blobCache;
+        this.cpuBoundWork = cpuBoundWork;
     }
 
     /**
@@ -105,17 +163,11 @@ public class GitDiffer {
 
     /**
      * Returns all commits in the repository's history.
+     * The returned commits do not retain their messages.
+     * @see GitDiffer#getNumberOfCommitsFilteredAtWalkTime()
      */
     public Yield<RevCommit> yieldRevCommits() {
-        final Iterable<RevCommit> commitsIterable;
-        try {
-            commitsIterable = git.log().call();
-        } catch (GitAPIException e) {
-            Logger.warn("Could not get log for git repository {}", git.toString());
-            return null;
-        }
-
-        return yieldAllValidIn(commitsIterable.iterator());
+        return yieldRevCommitsAfter(Function.identity());
     }
 
     /**
@@ -126,15 +178,210 @@ public class GitDiffer {
      * @return All commits in the repository's history after applying the given function to each commit.
      */
     public Yield<RevCommit> yieldRevCommitsAfter(final Function<RevCommit, RevCommit> f) {
-        Iterable<RevCommit> commitsIterable;
+        final RevWalk revWalk;
         try {
-            commitsIterable = git.log().call();
-        } catch (GitAPIException e) {
-            Logger.warn("Could not get log for git repository {}", git.toString());
+            revWalk = walkHistory();
+        } catch (IOException e) {
+            Logger.warn(e, "Could not get log for git repository {}", git.toString());
+            return null;
+        }
+
+        if (revWalk == null) {
+            Logger.warn("Could not get log for git repository {} because it has no HEAD", git.toString());
+            return null;
+        }
+
+        return yieldAllValidIn(new MappedIterator<>(revWalk.iterator(), f));
+    }
+
+    /**
+     * Collects the ids of all commits in the repository's history that should not be filtered.
+     * In contrast to {@link GitDiffer#yieldRevCommits()}, the whole history is walked at once by a
+     * single {@link RevWalk} that does not retain commit messages.
+     * The returned ids can then be partitioned and parsed independently on different threads
+     * (see {@link GitDiffer#parseCommits(ObjectId[], int, int)}).
+     * @return The ids of all commits in the repository's history in the same order as {@link GitDiffer#yieldRevCommits()}.
+     */
+    public ObjectId[] collectCommitIds() {
+        return collectCommitIdsAfter(Function.identity());
+    }
+
+    /**
+     * The same as {@link GitDiffer#collectCommitIds()} but applies the given function f to each commit
+     * of the history before it is filtered.
+     * @param f A function to map over all commits before they are filtered.
+     *          Each commit is processed by f exactly once.
+     * @return The ids of all commits in the repository's history that should not be filtered.
+     */
+    public ObjectId[] collectCommitIdsAfter(final Function<RevCommit, RevCommit> f) {
+        return collectCommitIdsAfter(List.of(), commit -> false, f);
+    }
+
+    /**
+     * The same as {@link GitDiffer#collectCommitIdsAfter(Function)} but skips all commits that are already known.
+     * The history of known heads is not walked at all, so the cost of this method only depends on the number
+     * of unknown commits.
+     * Known heads that do not exist (anymore) in the repository are ignored.
+     * @param knownHeads Commits whose history should be skipped entirely (including the heads themselves).
+     * @param isKnown Decides for each walked commit whether it should be skipped.
+     * @param f A function to map over all commits that are not skipped before they are filtered.
+     *          Each of these commits is processed by f exactly once.
+     * @return The ids of all unknown commits in the repository's history that should not be filtered.
+     */
+    public ObjectId[] collectCommitIdsAfter(
+            final Collection<? extends AnyObjectId> knownHeads,
+            final Predicate<? super RevCommit> isKnown,
+            final Function<RevCommit, RevCommit> f)
+    {
+        final List<ObjectId> commitIds = new ArrayList<>();
+
+        try (final RevWalk revWalk = walkHistory()) {
+            if (revWalk == null) {
+                Logger.warn("Could not get log for git repository {} because it has no HEAD", git.toString());
+                return new ObjectId[0];
+            }
+
+            for (final AnyObjectId knownHead : knownHeads) {
+                try {
+                    revWalk.markUninteresting(revWalk.parseCommit(knownHead));
+                } catch (MissingObjectException e) {
+                    Logger.debug("Ignoring known head {} that does not exist in {}", knownHead.getName(), git.toString());
+                }
+            }
+
+            for (final RevCommit c : revWalk) {
+                if (isKnown.test(c)) {
+                    continue;
+                }
+
+                if (isValid(f.apply(c))) {
+                    // Do not hold on to the RevCommit which is part of the object pool of revWalk.
+                    commitIds.add(c.copy());
+                }
+            }
+        } catch (IOException e) {
+            Logger.warn(e, "Could not get log for git repository {}", git.toString());
+            return new ObjectId[0];
+        }
+
+        return commitIds.toArray(ObjectId[]::new);
+    }
+
+    /**
+     * Returns the number of commits that were skipped by all walks over the history of this differ so far
+     * because they are filtered by {@link DiffFilter#toRevFilter()}.
+     * These commits are neither parsed completely nor passed to the functions given to
+     * {@link GitDiffer#yieldRevCommitsAfter(Function)} or {@link GitDiffer#collectCommitIdsAfter(Function)}.
+     * This class is thread safe.
+     */
+    public int getNumberOfCommitsFilteredAtWalkTime() {
+        return commitsFilteredAtWalkTime.get();
+    }
+
+    /**
+     * Opens a walk over the history of HEAD as configured by the {@link DiffFilter} of this differ.
+     * The walk does not retain commit messages and skips commits filtered by {@link DiffFilter#toRevFilter()}
+     * before they are handed out.
+     * If configured, only the first parent of each commit is followed.
+     * @return A walk starting at HEAD or null if the repository has no HEAD.
+     * @throws IOException if HEAD could not be parsed.
+     */
+    private RevWalk walkHistory() throws IOException {
+        final ObjectId head = git.getRepository().resolve(Constants.HEAD);
+        if (head == null) {
             return null;
         }
 
-        return yieldAllValidIn(new MappedIterator<>(commitsIterable.iterator(), f));
+        final RevWalk revWalk = new RevWalk(git.getRepository());
+        try {
+            // We only need the trees and parents of commits but not their messages.
+            revWalk.setRetainBody(false);
+            revWalk.sort(RevSort.NONE);
+            revWalk.setFirstParent(diffFilter.isFirstParentOnly());
+            final RevFilter revFilter = diffFilter.toRevFilter();
+            if (revFilter != RevFilter.ALL) {
+                revWalk.setRevFilter(new CountingRevFilter(revFilter, commitsFilteredAtWalkTime));
+            }
+            revWalk.markStart(revWalk.parseCommit(head));
+        } catch (IOException e) {
+            revWalk.close();
+            throw e;
+        }
+        return revWalk;
+    }
+
+    /**
+     * A {@link RevFilter} that counts the commits excluded by another filter.
+     */
+    private static class CountingRevFilter extends RevFilter {
+        private final RevFilter filter;
+        private final AtomicInteger numberOfExcludedCommits;
+
+        private CountingRevFilter(final RevFilter filter, final AtomicInteger numberOfExcludedCommits) {
+            this.filter = filter;
+            this.numberOfExcludedCommits = numberOfExcludedCommits;
+        }
+
+        @Override
+        public boolean include(final RevWalk walker, final RevCommit commit) throws IOException {
+            if (filter.include(walker, commit)) {
+                return true;
+            }
+
+            numberOfExcludedCommits.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public boolean requiresCommitBody() {
+            return filter.requiresCommitBody();
+        }
+
+        @Override
+        public RevFilter clone() {
+            return new CountingRevFilter(filter.clone(), numberOfExcludedCommits);
+        }
+
+        @Override
+        public String toString() {
+            return filter.toString();
+        }
+    }
+
+    /**
+     * Lazily parses the commits with the given ids.
+     * Each iteration over the returned commits uses its own {@link RevWalk}, which is opened when the
+     * iteration starts. Hence, the returned commits can be iterated on any thread as long as each
+     * iterator is used by a single thread only.
+     * @param commitIds Ids of commits (e.g., obtained from {@link GitDiffer#collectCommitIds()}).
+     * @param from The index in commitIds of the first commit to parse (inclusive).
+     * @param to The index in commitIds of the last commit to parse (exclusive).
+     * @return The parsed commits commitIds[from] to commitIds[to - 1] without their messages.
+     */
+    public Iterable<RevCommit> parseCommits(final ObjectId[] commitIds, int from, int to) {
+        Objects.checkFromToIndex(from, to, commitIds.length);
+
+        return () -> {
+            final RevWalk revWalk = new RevWalk(git.getRepository());
+            revWalk.setRetainBody(false);
+
+            final int[] next = {from};
+            return new Yield<>(
+                    () -> {
+                        if (next[0] >= to) {
+                            revWalk.close();
+                            return null;
+                        }
+
+                        try {
+                            return revWalk.parseCommit(commitIds[next[0]++]);
+                        } catch (IOException e) {
+                            revWalk.close();
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+            );
+        };
     }
 
     /**
@@ -149,19 +396,9 @@ public class GitDiffer {
                 () -> {
                     while (commitsIterator.hasNext()) {
                         final RevCommit c = commitsIterator.next();
-                        // If this commit is filtered, go to the next one.
-                        // filter returns true if we want to include the commit
-                        // so if we do not want to filter it, we do not want to have it. Thus skip.
-                        if (!diffFilter.filter(c)) {
-                            continue;
-                        }
-
-                        if (c.getParentCount() == 0) {
-//                            Logger.debug("Warning: Cannot create CommitDiff for commit {} because it does not have parents!", c.getId().getName());
-                            continue;
+                        if (isValid(c)) {
+                            return c;
                         }
-
-                        return c;
                     }
 
                     return null;
@@ -169,8 +406,54 @@ public class GitDiffer {
         );
     }
 
+    /**
+     * Returns true iff a {@link CommitDiff} should be created for the given commit.
+     * This is the case if the given commit is not filtered by the {@link DiffFilter} of this differ
+     * and if the commit has at least one parent.
+     */
+    private boolean isValid(final RevCommit c) {
+        // If this commit is filtered, go to the next one.
+        // filter returns true if we want to include the commit
+        // so if we do not want to filter it, we do not want to have it. Thus skip.
+        if (!diffFilter.filter(c)) {
+            return false;
+        }
+
+        if (c.getParentCount() == 0) {
+//            Logger.debug("Warning: Cannot create CommitDiff for commit {} because it does not have parents!", c.getId().getName());
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates a CommitDiff from the given commit relative to its first parent.
+     * This opens a {@link Session} just for the given commit.
+     * When processing more than a single commit, prefer {@link #openSession()} instead.
+     * @see Session#createCommitDiff(RevCommit)
+     */
     public CommitDiffResult createCommitDiff(final RevCommit revCommit) {
-        return createCommitDiffFromFirstParent(git, diffFilter, revCommit, parseOptions);
+        try (final Session session = openSession()) {
+            return session.createCommitDiff(revCommit);
+        }
+    }
+
+    /**
+     * Opens a new {@link Session} on this differ's repository.
+     * A session is not thread-safe and should thus be used by a single thread only.
+     * The returned session has to be closed after use.
+     * @return A new session that reuses its JGit resources for all diffs it creates.
+     */
+    public Session openSession() {
+        return new Session(git, diffFilter, parseOptions, blobCache, cpuBoundWork);
+    }
+
+    /**
+     * Returns the limit of threads that diff and parse patches of this differ at the same time.
+     */
+    public CpuBoundWork getCpuBoundWork() {
+        return cpuBoundWork;
     }
 
     /**
@@ -182,24 +465,16 @@ public class GitDiffer {
      * @param currentCommit The commit from which to create a CommitDiff
      * @param parseOptions
      * @return The CommitDiff of the given commit
+     * @see Session#createCommitDiff(RevCommit)
      */
     public static CommitDiffResult createCommitDiffFromFirstParent(
             Git git,
             DiffFilter diffFilter,
             RevCommit currentCommit,
             final ParseOptions parseOptions) {
-        if (currentCommit.getParentCount() == 0) {
-            return CommitDiffResult.Failure(
-                    DiffError.COMMIT_HAS_NO_PARENTS, "Commit " + currentCommit.getId().getName() + " does not have parents");
-        }
-
-        final RevCommit parent;
-        try {
-            parent = new RevWalk(git.getRepository()).parseCommit(currentCommit.getParent(0).getId());
-        } catch (IOException e) {
-            return CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Could not parse parent commit of " + currentCommit.getId().getName() + "!");
+        try (final Session session = new Session(git, diffFilter, parseOptions)) {
+            return session.createCommitDiff(currentCommit);
         }
-        return createCommitDiff(git, diffFilter, parent, currentCommit, parseOptions);
     }
 
     /**
@@ -208,6 +483,7 @@ public class GitDiffer {
      *
      * @param git The git repo which the commits stem from.
      * @return The CommitDiff describing all changes between the two commits.
+     * @see Session#createCommitDiff(RevCommit, RevCommit)
      */
     public static CommitDiffResult createCommitDiff(
             Git git,
@@ -215,26 +491,9 @@ public class GitDiffer {
             RevCommit parentCommit,
             RevCommit childCommit,
             final ParseOptions parseOptions) {
-        // get TreeParsers
-        final CanonicalTreeParser currentTreeParser = new CanonicalTreeParser();
-        final CanonicalTreeParser prevTreeParser = new CanonicalTreeParser();
-        try (ObjectReader reader = git.getRepository().newObjectReader()) {
-            if (childCommit.getTree() == null) {
-                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Could not obtain RevTree from child commit " + childCommit.getId());
-            }
-            if (parentCommit.getTree() == null) {
-                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Could not obtain RevTree from parent commit " + parentCommit.getId());
-            }
-
-            try {
-                currentTreeParser.reset(reader, childCommit.getTree());
-                prevTreeParser.reset(reader, parentCommit.getTree());
-            } catch (IOException e) {
-                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, e.toString());
-            }
+        try (final Session session = new Session(git, diffFilter, parseOptions)) {
+            return session.createCommitDiff(parentCommit, childCommit);
         }
-
-        return getPatchDiffs(git, diffFilter, parseOptions, prevTreeParser, currentTreeParser, parentCommit, childCommit);
     }
 
     /**
@@ -245,88 +504,16 @@ public class GitDiffer {
      * @param commit The commit which the working tree is compared with
      * @param parseOptions {@link ParseOptions}
      * @return The CommitDiff of the given commit
+     * @see Session#createWorkingTreeDiff(RevCommit)
      */
     public static CommitDiffResult createWorkingTreeDiff(
     		Git git,
     		DiffFilter diffFilter,
     		RevCommit commit,
     		final ParseOptions parseOptions) {
-		// get TreeParsers
-        final AbstractTreeIterator workingTreeParser = new FileTreeIterator(git.getRepository());
-        final CanonicalTreeParser prevTreeParser = new CanonicalTreeParser();
-        try (ObjectReader reader = git.getRepository().newObjectReader()) {
-            if (commit.getTree() == null) {
-                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Could not obtain RevTree from child commit " + commit.getId());
-            }
-
-            try {
-                prevTreeParser.reset(reader, commit.getTree());
-            } catch (IOException e) {
-                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, e.toString());
-            }
+        try (final Session session = new Session(git, diffFilter, parseOptions)) {
+            return session.createWorkingTreeDiff(commit);
         }
-        
-        return getPatchDiffs(git, diffFilter, parseOptions, prevTreeParser, workingTreeParser, commit, commit);
-    }
-    
-    /**
-     * Obtains the CommitDiff between two commit's trees.
-     *
-     * @param git The git repo which the commit stems from
-     * @param diffFilter {@link DiffFilter}
-     * @param parseOptions {@link ParseOptions}
-     * @param prevTreeParser The tree parser for parentCommit
-     * @param currentTreeParser The tree parser for childCommit or the working tree
-     * @param parentCommit The {@link RevCommit} for the parent commit
-     * @param childCommit The {@link RevCommit} for the child commit (equal to parentCommit if working tree is requested)
-     * @return {@link CommitDiffResult}
-     */
-    private static CommitDiffResult getPatchDiffs(
-    		Git git,
-    		DiffFilter diffFilter,
-    		final ParseOptions parseOptions,
-    		AbstractTreeIterator prevTreeParser,
-    		AbstractTreeIterator currentTreeParser,
-    		RevCommit parentCommit,
-    		RevCommit childCommit) {
-    	final CommitDiff commitDiff = new CommitDiff(childCommit, parentCommit);
-        final List<DiffError> errors = new ArrayList<>();
-
-        // get PatchDiffs
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-             DiffFormatter diffFormatter = new DiffFormatter(outputStream))
-        {
-            diffFormatter.setRepository(git.getRepository());
-            diffFormatter.setDetectRenames(true);
-            diffFormatter.getRenameDetector().setRenameScore(50);
-
-            List<DiffEntry> entries = diffFormatter.scan(prevTreeParser, currentTreeParser);
-            for (DiffEntry diffEntry : entries) {
-                if (!diffFilter.filter(diffEntry)) {
-                    continue;
-                }
-
-                diffFormatter.format(diffEntry);
-                final String gitDiff = outputStream.toString(StandardCharsets.UTF_8);
-                final Result<PatchDiff, DiffError> patchDiff =
-                        getBeforeFullFile(git, parentCommit, diffEntry.getOldPath()).unwrap()
-                        .bind(file -> createPatchDiff(
-                                commitDiff,
-                                diffEntry,
-                                gitDiff,
-                                file,
-                                parseOptions).unwrap()
-                        );
-
-                patchDiff.ifSuccess(commitDiff::addPatchDiff);
-                patchDiff.ifFailure(errors::add);
-                outputStream.reset();
-            }
-        } catch (IOException e) {
-            return CommitDiffResult.Failure(DiffError.JGIT_ERROR, e.toString());
-        }
-
-        return new CommitDiffResult(Optional.of(commitDiff), errors);
     }
     
     /**
@@ -344,14 +531,7 @@ public class GitDiffer {
             String gitDiff,
             BufferedReader beforeFullFile,
             final ParseOptions parseOptions) {
-        final Matcher matcher = DIFF_HEADER_PATTERN.matcher(gitDiff);
-        final String strippedDiff;
-        if (matcher.find()) {
-            strippedDiff = gitDiff.substring(matcher.end() + 1);
-        } else {
-            strippedDiff = gitDiff;
-        }
-
+        final String strippedDiff = stripHeader(gitDiff);
         final String fullDiff = getFullDiff(beforeFullFile, new BufferedReader(new StringReader(strippedDiff)));
         final DiffResult<DiffTree> diffTree = DiffTreeParser.createDiffTree(fullDiff, true, true, parseOptions.annotationParser());
 
@@ -373,6 +553,20 @@ public class GitDiffer {
         });
     }
 
+    /**
+     * Removes the header (i.e., everything up to and including the line starting with <code>+++</code>)
+     * from the given git diff.
+     * @param gitDiff A unified diff of a single file formatted by git.
+     * @return The hunks of the given diff or the given diff if it does not have a header.
+     */
+    private static String stripHeader(final String gitDiff) {
+        final Matcher matcher = DIFF_HEADER_PATTERN.matcher(gitDiff);
+        if (matcher.find()) {
+            return gitDiff.substring(matcher.end() + 1);
+        }
+        return gitDiff;
+    }
+
     /**
      * Creates a full git diff from a file before the change and the git diff containing only the
      * changed lines.
@@ -382,8 +576,21 @@ public class GitDiffer {
      * @return A full git diff containing the complete file and all changes
      */
     public static String getFullDiff(BufferedReader beforeFile, BufferedReader gitDiff) {
+        return getFullDiff(beforeFile.lines().toArray(String[]::new), gitDiff);
+    }
+
+    /**
+     * The same as {@link GitDiffer#getFullDiff(BufferedReader, BufferedReader)} but for a file
+     * before the change that is already split into lines.
+     *
+     * @param beforeFile The lines of the full file before the change
+     * @param gitDiff    The git diff containing only the changed lines
+     * @return A full git diff containing the complete file and all changes
+     */
+    public static String getFullDiff(String[] beforeFile, BufferedReader gitDiff) {
         try {
-            LineNumberReader before = new LineNumberReader(beforeFile);
+            // index of the next line to read from beforeFile
+            int before = 0;
 
             List<String> fullDiffLines = new ArrayList<>();
 
@@ -397,22 +604,21 @@ public class GitDiffer {
                     // subtract 1 because line numbers start at 1
                     int beforeDiffIndex = Integer.parseInt(matcher.group(1)) - 1;
 
-                    while (before.getLineNumber() < beforeDiffIndex) {
-                        fullDiffLines.add(" " + before.readLine());
+                    while (before < beforeDiffIndex) {
+                        fullDiffLines.add(" " + lineAt(beforeFile, before++));
                     }
                 } else if (diffLine.equals(NO_NEW_LINE)) {
                     fullDiffLines.add(StringUtils.LINEBREAK);
                 } else {
                     fullDiffLines.add(diffLine);
                     if (!diffLine.startsWith("+")) {
-                        before.readLine();
+                        ++before;
                     }
                 }
             }
 
-            String beforeLine;
-            while ((beforeLine = before.readLine()) != null) {
-                fullDiffLines.add(" " + beforeLine);
+            for (; before < beforeFile.length; ++before) {
+                fullDiffLines.add(" " + beforeFile[before]);
             }
             String fullDiff = String.join(StringUtils.LINEBREAK, fullDiffLines);
 
@@ -428,31 +634,25 @@ public class GitDiffer {
         }
     }
 
+    /**
+     * Returns the line at the given index or null if the index is out of bounds,
+     * just as {@link BufferedReader#readLine()} returns null at the end of a file.
+     */
+    private static String lineAt(final String[] lines, int index) {
+        return index < lines.length ? lines[index] : null;
+    }
+
     /**
      * Gets the full content of a file before a commit.
      *
      * @param commit   The commit in which the file was changed
      * @param filename The name of the file
      * @return The full content of the file before the commit
+     * @see Session#getBeforeFullFile(RevCommit, String)
      */
     public static DiffResult<BufferedReader> getBeforeFullFile(Git git, RevCommit commit, String filename) {
-        RevTree tree = commit.getTree();
-
-        try (TreeWalk treeWalk = new TreeWalk(git.getRepository())) {
-            treeWalk.addTree(tree);
-            treeWalk.setRecursive(true);
-            treeWalk.setFilter(PathFilter.create(filename));
-
-            // Look for the first file that matches filename.
-            if (!treeWalk.next()) {
-                return DiffResult.Failure(DiffError.COULD_NOT_OBTAIN_FULLDIFF, "Could not obtain full diff of file " + filename + " before commit " + commit + "!");
-            }
-
-            ObjectId objectId = treeWalk.getObjectId(0);
-            ObjectLoader loader = git.getRepository().open(objectId);
-            return DiffResult.Success(new BufferedReader(new InputStreamReader(loader.openStream())));
-        } catch (IOException e) {
-            return DiffResult.Failure(DiffError.COULD_NOT_OBTAIN_FULLDIFF, "Could not obtain full diff of file " + filename + " before commit " + commit + "!");
+        try (final Session session = new Session(git, DiffFilter.ALLOW_ALL, ParseOptions.Default)) {
+            return session.getBeforeFullFile(commit, filename);
         }
     }
 
@@ -462,4 +662,772 @@ public class GitDiffer {
     public Git getJGitRepo() {
     	return git;
     }
+
+    /**
+     * A session bundles all JGit resources that are required to create diffs
+     * (i.e., an {@link ObjectReader}, a {@link RevWalk}, a {@link DiffFormatter}, and a {@link TreeWalk}).
+     * Creating these resources for each commit anew is expensive on large histories
+     * because each new reader starts with cold pack file windows and inflaters.
+     * Thus, a session should be opened once per thread (e.g., for the lifetime of a
+     * {@link org.variantsync.diffdetective.analysis.CommitHistoryAnalysisTask}) and be reused for
+     * all commits processed by that thread.
+     * <p>
+     * Sessions may share a {@link BlobCache} for the files before a commit.
+     * Each session counts its own lookups in the cache (see {@link #getBlobCacheStatistics()}).
+     * The annotation parser of a session records its lookups in the condition cache per session, too
+     * (see {@link #getConditionStatistics()}).
+     * In addition, each session caches the trees it reads, so diffing several pairs of commits that share
+     * trees (e.g., all parents of a merge or a series of releases) does not start cold.
+     * <p>
+     * Commits with at least {@link ParseOptions#parallelPatchThreshold()} patches are diffed and parsed in
+     * parallel by helper sessions.
+     * Apart from that, a session is not thread-safe and has to be closed after use.
+     *
+     * @see GitDiffer#openSession()
+     */
+    public static class Session implements AutoCloseable {
+        /**
+         * Number of unchanged lines around each hunk as formatted by {@link DiffFormatter} by default.
+         */
+        private static final int CONTEXT = 3;
+        /**
+         * Files larger than this number of bytes are considered binary as done by {@link DiffFormatter} by default.
+         */
+        private static final int BINARY_FILE_THRESHOLD = PackConfig.DEFAULT_BIG_FILE_THRESHOLD;
+        /**
+         * Minimum similarity in percent of two files to be considered a rename.
+         */
+        private static final int RENAME_SCORE = 50;
+
+        private final Git git;
+        private final DiffFilter diffFilter;
+        private final ParseOptions parseOptions;
+        private final BlobCache blobCache;
+        private final CpuBoundWork cpuBoundWork;
+        private final CacheStatistics.Recorder blobCacheStatistics;
+        private final ConditionStatistics.Recorder conditionStatistics;
+        private int commitsOverRenameLimit;
+
+        private final ObjectReader reader;
+        private final RevWalk revWalk;
+        private final ByteArrayOutputStream patchBuffer;
+        private final DiffFormatter diffFormatter;
+        private final TreeFilter pathFilter;
+        private final DiffConfig diffConfig;
+        private final TreeWalk treeWalk;
+        private final CanonicalTreeParser prevTreeParser;
+        private final CanonicalTreeParser currentTreeParser;
+        private final DiffAlgorithm diffAlgorithm;
+        /**
+         * Source of the files of the commit (or working tree) that is currently diffed.
+         */
+        private ContentSource.Pair contentSource;
+        /**
+         * Sessions used to diff and parse the patches of huge commits in parallel.
+         * Each session is used by at most one thread at a time.
+         * @see ParseOptions#parallelPatchThreshold()
+         */
+        private final Queue<Session> helpers = new ConcurrentLinkedQueue<>();
+        /**
+         * Runs helper sessions if this session is not used within a {@link ForkJoinPool}.
+         * Created on first use.
+         */
+        private ExecutorService helperThreads = null;
+
+        /**
+         * Opens a new session on the given repository that does not cache any files.
+         * @see Session#Session(Git, DiffFilter, ParseOptions, BlobCache)
+         */
+        public Session(final Git git, final DiffFilter diffFilter, final ParseOptions parseOptions) {
+            this(git, diffFilter, parseOptions, null);
+        }
+
+        /**
+         * Opens a new session on the given repository whose CPU-bound work is not limited.
+         * @see Session#Session(Git, DiffFilter, ParseOptions, BlobCache, CpuBoundWork)
+         */
+        public Session(final Git git, final DiffFilter diffFilter, final ParseOptions parseOptions, final BlobCache blobCache) {
+            this(git, diffFilter, parseOptions, blobCache, CpuBoundWork.UNLIMITED);
+        }
+
+        /**
+         * Opens a new session on the given repository.
+         * @param git The git repo from which diffs should be created.
+         * @param diffFilter {@link DiffFilter} that decides which patches to consider.
+         * @param parseOptions {@link ParseOptions} that should be used when parsing patches.
+         * @param blobCache Cache for the files before a commit. May be null to disable caching.
+         * @param cpuBoundWork Limits the threads that diff and parse patches at the same time.
+         */
+        public Session(final Git git, final DiffFilter diffFilter, final ParseOptions parseOptions, final BlobCache blobCache, final CpuBoundWork cpuBoundWork) {
+            this(git, diffFilter, parseOptions, blobCache, cpuBoundWork, BlobCache.newStatistics(), new ConditionStatistics.Recorder());
+        }
+
+        /**
+         * Opens a new session that records its lookups in the given statistics.
+         * Helper sessions share the statistics of their session.
+         */
+        private Session(final Git git, final DiffFilter diffFilter, final ParseOptions parseOptions, final BlobCache blobCache, final CpuBoundWork cpuBoundWork, final CacheStatistics.Recorder blobCacheStatistics, final ConditionStatistics.Recorder conditionStatistics) {
+            this.git = git;
+            this.diffFilter = diffFilter;
+            this.parseOptions = parseOptions.withAnnotationParser(parseOptions.annotationParser().reportingTo(conditionStatistics));
+            this.blobCache = blobCache;
+            this.cpuBoundWork = cpuBoundWork;
+            this.blobCacheStatistics = blobCacheStatistics;
+            this.conditionStatistics = conditionStatistics;
+
+            final org.eclipse.jgit.lib.Repository repository = git.getRepository();
+            // Trees are cached so that trees shared by the commits diffed in this session are only read once.
+            this.reader = new TreeCachingReader(repository.newObjectReader(), TreeCachingReader.DEFAULT_CAPACITY_IN_BYTES);
+
+            this.revWalk = new RevWalk(reader);
+            // We only need the trees and parents of commits but not their messages.
+            this.revWalk.setRetainBody(false);
+
+            this.patchBuffer = new ByteArrayOutputStream();
+            this.diffFormatter = new DiffFormatter(patchBuffer);
+            this.diffFormatter.setReader(reader, repository.getConfig());
+            // Do not diff files that would be filtered anyway.
+            this.pathFilter = diffFilter.toTreeFilter();
+            this.diffFormatter.setPathFilter(pathFilter);
+            // Renames are detected per commit depending on the parse options.
+            this.diffConfig = repository.getConfig().get(DiffConfig.KEY);
+            // Use the same algorithm as the diff formatter for computing edits.
+            this.diffAlgorithm = DiffAlgorithm.getAlgorithm(repository.getConfig().getEnum(
+                    ConfigConstants.CONFIG_DIFF_SECTION,
+                    null,
+                    ConfigConstants.CONFIG_KEY_ALGORITHM,
+                    DiffAlgorithm.SupportedAlgorithm.HISTOGRAM));
+
+            this.treeWalk = new TreeWalk(repository, reader);
+            this.treeWalk.setRecursive(true);
+
+            this.prevTreeParser = new CanonicalTreeParser();
+            this.currentTreeParser = new CanonicalTreeParser();
+        }
+
+        /**
+         * Creates a CommitDiff from a given commit relative to its first parent.
+         * For this, the git diff is retrieved using JGit.
+         * For each file in the diff, a PatchDiff is created.
+         *
+         * @param currentCommit The commit from which to create a CommitDiff
+         * @return The CommitDiff of the given commit
+         */
+        public CommitDiffResult createCommitDiff(final RevCommit currentCommit) {
+            if (currentCommit.getParentCount() == 0) {
+                return CommitDiffResult.Failure(
+                        DiffError.COMMIT_HAS_NO_PARENTS, "Commit " + currentCommit.getId().getName() + " does not have parents");
+            }
+
+            final RevCommit parent;
+            try {
+                parent = revWalk.parseCommit(currentCommit.getParent(0).getId());
+            } catch (IOException e) {
+                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Could not parse parent commit of " + currentCommit.getId().getName() + "!");
+            }
+            return createCommitDiff(parent, currentCommit);
+        }
+
+        /**
+         * Creates a CommitDiff that describes all changes made by the
+         * given childCommit to the given parentCommit.
+         *
+         * @return The CommitDiff describing all changes between the two commits.
+         */
+        public CommitDiffResult createCommitDiff(final RevCommit parentCommit, final RevCommit childCommit) {
+            if (childCommit.getTree() == null) {
+                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Could not obtain RevTree from child commit " + childCommit.getId());
+            }
+            if (parentCommit.getTree() == null) {
+                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Could not obtain RevTree from parent commit " + parentCommit.getId());
+            }
+
+            try {
+                currentTreeParser.reset(reader, childCommit.getTree());
+                prevTreeParser.reset(reader, parentCommit.getTree());
+            } catch (IOException e) {
+                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, e.toString());
+            }
+
+            return getPatchDiffs(prevTreeParser, currentTreeParser, parentCommit, childCommit);
+        }
+
+        /**
+         * Creates a CommitDiff for each parent of the given commit that describes all changes made by the
+         * given commit to that parent.
+         * For a merge commit, this describes the changes that were merged into each parent.
+         *
+         * @param commit The commit from which to create the CommitDiffs
+         * @return One CommitDiff for each parent in the order of the parents of the given commit.
+         *         The list is empty if the commit does not have parents.
+         */
+        public List<CommitDiffResult> createCommitDiffsFromAllParents(final RevCommit commit) {
+            final List<CommitDiffResult> commitDiffs = new ArrayList<>(commit.getParentCount());
+
+            for (int i = 0; i < commit.getParentCount(); ++i) {
+                final RevCommit parent;
+                try {
+                    parent = revWalk.parseCommit(commit.getParent(i).getId());
+                } catch (IOException e) {
+                    commitDiffs.add(CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Could not parse parent " + i + " of commit " + commit.getId().getName() + "!"));
+                    continue;
+                }
+
+                commitDiffs.add(createCommitDiff(parent, commit));
+            }
+
+            return commitDiffs;
+        }
+
+        /**
+         * Creates a CommitDiff that describes all changes between the two given revisions.
+         * In contrast to <code>git log A..B</code>, the revisions do not have to be related and the changes
+         * of all commits in between are combined into a single diff (as done by <code>git diff A..B</code>).
+         * Thus, this is suitable to compare releases.
+         * Tags are peeled to the commits they point to.
+         *
+         * @param from The older revision (e.g., the previous release)
+         * @param to The newer revision
+         * @return The CommitDiff describing all changes from the first to the second revision.
+         */
+        public CommitDiffResult createRangeDiff(final AnyObjectId from, final AnyObjectId to) {
+            final RevCommit fromCommit;
+            final RevCommit toCommit;
+            try {
+                fromCommit = revWalk.parseCommit(from);
+                toCommit = revWalk.parseCommit(to);
+            } catch (IOException e) {
+                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Could not parse range " + from.getName() + ".." + to.getName() + ": " + e);
+            }
+
+            return createCommitDiff(fromCommit, toCommit);
+        }
+
+        /**
+         * The same as {@link Session#createRangeDiff(AnyObjectId, AnyObjectId)} but resolves the revisions from
+         * the given range.
+         *
+         * @param range A range of the form <code>A..B</code> where <code>A</code> and <code>B</code> are
+         *              revisions as understood by {@link org.eclipse.jgit.lib.Repository#resolve(String)}
+         *              (e.g., commit hashes, branches, or tags).
+         * @return The CommitDiff describing all changes from <code>A</code> to <code>B</code>.
+         */
+        public CommitDiffResult createRangeDiff(final String range) {
+            final int separator = range.indexOf("..");
+            if (separator < 0 || range.startsWith(".", separator + 2)) {
+                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Expected a range of the form A..B but got " + range);
+            }
+
+            final String fromRevision = range.substring(0, separator);
+            final String toRevision = range.substring(separator + 2);
+            final ObjectId from;
+            final ObjectId to;
+            try {
+                from = git.getRepository().resolve(fromRevision);
+                to = git.getRepository().resolve(toRevision);
+            } catch (IOException e) {
+                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Could not resolve range " + range + ": " + e);
+            }
+
+            if (from == null || to == null) {
+                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Could not resolve " + (from == null ? fromRevision : toRevision));
+            }
+
+            return createRangeDiff(from, to);
+        }
+
+        /**
+         * The same as {@link Session#createCommitDiff(RevCommit, RevCommit)}
+         * but diffs the given commit against the current working tree.
+         *
+         * @param commit The commit which the working tree is compared with
+         * @return The CommitDiff of the given commit
+         */
+        public CommitDiffResult createWorkingTreeDiff(final RevCommit commit) {
+            if (commit.getTree() == null) {
+                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, "Could not obtain RevTree from child commit " + commit.getId());
+            }
+
+            final AbstractTreeIterator workingTreeParser = new FileTreeIterator(git.getRepository());
+            try {
+                prevTreeParser.reset(reader, commit.getTree());
+            } catch (IOException e) {
+                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, e.toString());
+            }
+
+            return getPatchDiffs(prevTreeParser, workingTreeParser, commit, commit);
+        }
+
+        /**
+         * The same as {@link Session#createWorkingTreeDiff(RevCommit)} but only diffs the given paths.
+         * All other files of the working tree are neither read nor compared, so the cost of this method only
+         * depends on the number and size of the given paths.
+         * A path of a directory includes all files within that directory.
+         *
+         * @param commit The commit which the working tree is compared with
+         * @param paths Paths relative to the root of the working tree using <code>/</code> as separator.
+         * @return The CommitDiff of the given paths
+         */
+        public CommitDiffResult createWorkingTreeDiff(final RevCommit commit, final Collection<String> paths) {
+            final List<String> nonEmptyPaths = paths.stream().filter(path -> !path.isEmpty()).toList();
+            if (nonEmptyPaths.isEmpty()) {
+                return new CommitDiffResult(Optional.of(new CommitDiff(commit, commit)), List.of());
+            }
+
+            diffFormatter.setPathFilter(AndTreeFilter.create(PathFilterGroup.createFromStrings(nonEmptyPaths), pathFilter));
+            try {
+                return createWorkingTreeDiff(commit);
+            } finally {
+                diffFormatter.setPathFilter(pathFilter);
+            }
+        }
+
+        /**
+         * Obtains the CommitDiff between two commit's trees.
+         *
+         * @param prevTreeParser The tree parser for parentCommit
+         * @param currentTreeParser The tree parser for childCommit or the working tree
+         * @param parentCommit The {@link RevCommit} for the parent commit
+         * @param childCommit The {@link RevCommit} for the child commit (equal to parentCommit if working tree is requested)
+         * @return {@link CommitDiffResult}
+         */
+        private CommitDiffResult getPatchDiffs(
+                AbstractTreeIterator prevTreeParser,
+                AbstractTreeIterator currentTreeParser,
+                RevCommit parentCommit,
+                RevCommit childCommit) {
+            final CommitDiff commitDiff = new CommitDiff(childCommit, parentCommit);
+            final List<DiffError> errors = new ArrayList<>();
+
+            // get PatchDiffs
+            try {
+                contentSource = new ContentSource.Pair(contentSourceOf(prevTreeParser), contentSourceOf(currentTreeParser));
+                final List<DiffEntry> entries = detectRenames(diffFormatter.scan(prevTreeParser, currentTreeParser))
+                        .stream()
+                        .filter(diffFilter::filter)
+                        .toList();
+
+                final List<Result<PatchDiff, DiffError>> patchDiffs;
+                // Files of the working tree can only be read by the session that scanned them.
+                if (entries.size() >= parseOptions.parallelPatchThreshold() && !(currentTreeParser instanceof WorkingTreeIterator)) {
+                    patchDiffs = createPatchDiffsInParallel(commitDiff, entries, parentCommit);
+                } else {
+                    patchDiffs = new ArrayList<>(entries.size());
+                    for (final DiffEntry diffEntry : entries) {
+                        patchDiffs.add(createPatchDiff(commitDiff, diffEntry, parentCommit));
+                    }
+                }
+
+                for (final Result<PatchDiff, DiffError> patchDiff : patchDiffs) {
+                    patchDiff.ifSuccess(commitDiff::addPatchDiff);
+                    patchDiff.ifFailure(errors::add);
+                }
+            } catch (IOException | UncheckedIOException e) {
+                return CommitDiffResult.Failure(DiffError.JGIT_ERROR, e.toString());
+            } finally {
+                patchBuffer.reset();
+                contentSource = null;
+            }
+
+            return new CommitDiffResult(Optional.of(commitDiff), errors);
+        }
+
+        /**
+         * Creates the PatchDiffs of all given DiffEntries of a commit in parallel.
+         * The patches are distributed to this session and to helper sessions, because a session is not thread-safe.
+         * At most as many sessions work on the patches as there are threads available to the analysis
+         * (see {@link #getPatchParallelism()}).
+         * If this session is used within a {@link ForkJoinPool} (e.g., by a
+         * {@link org.variantsync.diffdetective.parallel.WorkStealingScheduler}), the helpers are forked into that
+         * pool. Otherwise, each helper runs on its own thread, but diffing and parsing are still limited by the
+         * {@link CpuBoundWork} of this session.
+         * Helper sessions are kept until this session is closed so that they can be reused for the next huge commit.
+         *
+         * @return The PatchDiffs or errors in the order of the given DiffEntries.
+         * @throws IOException if a file could not be read from the repository
+         */
+        private List<Result<PatchDiff, DiffError>> createPatchDiffsInParallel(
+                final CommitDiff commitDiff,
+                final List<DiffEntry> entries,
+                final RevCommit parentCommit) throws IOException {
+            final AtomicReferenceArray<Result<PatchDiff, DiffError>> patchDiffs = new AtomicReferenceArray<>(entries.size());
+            final AtomicInteger nextEntry = new AtomicInteger();
+
+            final int numberOfHelpers = Math.min(entries.size(), getPatchParallelism()) - 1;
+            final List<Future<Void>> helperTasks = new ArrayList<>(numberOfHelpers);
+            for (int i = 0; i < numberOfHelpers; ++i) {
+                final Callable<Void> helperTask = () -> {
+                    Session helper = helpers.poll();
+                    if (helper == null) {
+                        helper = new Session(git, diffFilter, parseOptions, blobCache, cpuBoundWork, blobCacheStatistics, conditionStatistics);
+                    }
+
+                    try {
+                        helper.contentSource = new ContentSource.Pair(ContentSource.create(helper.reader), ContentSource.create(helper.reader));
+                        helper.createPatchDiffs(commitDiff, entries, parentCommit, nextEntry, patchDiffs);
+                        return null;
+                    } finally {
+                        helper.contentSource = null;
+                        helpers.add(helper);
+                    }
+                };
+                helperTasks.add(ForkJoinTask.inForkJoinPool()
+                        ? ForkJoinTask.adapt(helperTask).fork()
+                        : getHelperThreads().submit(helperTask));
+            }
+
+            Exception failure = null;
+            try {
+                createPatchDiffs(commitDiff, entries, parentCommit, nextEntry, patchDiffs);
+            } catch (IOException | RuntimeException e) {
+                // Stop the helpers as soon as possible.
+                nextEntry.set(entries.size());
+                failure = e;
+            }
+
+            // Wait for all helpers because they might still read the files of this commit.
+            for (final Future<Void> helperTask : helperTasks) {
+                try {
+                    if (helperTask instanceof ForkJoinTask<Void> forked) {
+                        forked.join();
+                    } else {
+                        helperTask.get();
+                    }
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof Exception cause ? cause : e;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if (failure == null) {
+                        failure = new InterruptedIOException("Interrupted while waiting for helper sessions");
+                    }
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+
+            if (failure instanceof IOException e) {
+                throw e;
+            } else if (failure instanceof RuntimeException e) {
+                throw e;
+            } else if (failure != null) {
+                throw new IOException(failure);
+            }
+
+            final List<Result<PatchDiff, DiffError>> orderedPatchDiffs = new ArrayList<>(entries.size());
+            for (int i = 0; i < entries.size(); ++i) {
+                orderedPatchDiffs.add(patchDiffs.get(i));
+            }
+            return orderedPatchDiffs;
+        }
+
+        /**
+         * Creates the PatchDiffs of the given DiffEntries that are not claimed by another session yet.
+         * @param nextEntry The index of the next DiffEntry that was not claimed by any session yet.
+         * @param patchDiffs The PatchDiffs that were created so far by all sessions.
+         */
+        private void createPatchDiffs(
+                final CommitDiff commitDiff,
+                final List<DiffEntry> entries,
+                final RevCommit parentCommit,
+                final AtomicInteger nextEntry,
+                final AtomicReferenceArray<Result<PatchDiff, DiffError>> patchDiffs) throws IOException {
+            for (int i = nextEntry.getAndIncrement(); i < entries.size(); i = nextEntry.getAndIncrement()) {
+                patchDiffs.set(i, createPatchDiff(commitDiff, entries.get(i), parentCommit));
+            }
+        }
+
+        /**
+         * Returns the number of sessions that create the PatchDiffs of a huge commit in parallel.
+         * This is the parallelism of the {@link ForkJoinPool} running the current thread if there is one and
+         * the number of threads that may work on CPU-bound tasks otherwise.
+         */
+        private int getPatchParallelism() {
+            final ForkJoinPool pool = ForkJoinTask.getPool();
+            return pool == null ? cpuBoundWork.getParallelism() : pool.getParallelism();
+        }
+
+        /**
+         * Returns the executor on which helper sessions run if this session is not used within a {@link ForkJoinPool}.
+         */
+        private ExecutorService getHelperThreads() {
+            if (helperThreads == null) {
+                helperThreads = VirtualThreads.newThreadPerTaskExecutor();
+            }
+            return helperThreads;
+        }
+
+        /**
+         * Pairs added and deleted files in the given changes of a single commit to renames
+         * as configured by {@link ParseOptions#renameDetection()}.
+         * If the commit exceeds the rename limit, only exact renames are detected and the commit is
+         * counted in {@link #getNumberOfCommitsOverRenameLimit()}.
+         * @param entries All changes of a single commit.
+         * @return The changes of the commit where detected renames replace the corresponding additions and deletions.
+         * @throws IOException if the files to compare could not be read.
+         */
+        private List<DiffEntry> detectRenames(final List<DiffEntry> entries) throws IOException {
+            if (parseOptions.renameDetection() == ParseOptions.RenameDetection.OFF) {
+                return entries;
+            }
+
+            // JGit does not reset whether the rename limit was exceeded, so each commit needs its own detector.
+            final RenameDetector renameDetector = new RenameDetector(reader, diffConfig);
+            renameDetector.setRenameScore(RENAME_SCORE);
+            if (parseOptions.renameDetection() == ParseOptions.RenameDetection.ADAPTIVE) {
+                renameDetector.setRenameLimit(parseOptions.renameLimit());
+            }
+
+            renameDetector.addAll(entries);
+            final List<DiffEntry> renamedEntries = renameDetector.compute(reader, NullProgressMonitor.INSTANCE);
+            if (renameDetector.isOverRenameLimit()) {
+                ++commitsOverRenameLimit;
+            }
+            return renamedEntries;
+        }
+
+        /**
+         * Creates a PatchDiff from a given DiffEntry of a commit.
+         * By default (see {@link ParseOptions.FullDiffConstruction#EDIT_LIST}), the full diff of the patch is
+         * streamed directly from the edits between the files before and after the change into the {@link DiffTreeParser}.
+         * Patches that are not a textual modification (e.g., binary files or pure renames) or that contain
+         * lone carriage returns are parsed from the unified diff formatted by JGit instead.
+         *
+         * @param commitDiff The CommitDiff the created PatchDiff belongs to
+         * @param diffEntry The DiffEntry of the file that was changed in the commit
+         * @param parentCommit The commit whose files are considered to be the files before the change
+         * @return The PatchDiff of the given DiffEntry or an error
+         * @throws IOException if a file could not be read from the repository
+         */
+        private Result<PatchDiff, DiffError> createPatchDiff(
+                final CommitDiff commitDiff,
+                final DiffEntry diffEntry,
+                final RevCommit parentCommit) throws IOException {
+            if (parseOptions.fullDiffConstruction() == ParseOptions.FullDiffConstruction.EDIT_LIST
+                    && isTextModification(diffEntry)) {
+                final LineText before = getText(diffEntry, DiffEntry.Side.OLD);
+                final LineText after = diffEntry.getChangeType() == DiffEntry.ChangeType.DELETE
+                        ? LineText.EMPTY
+                        : getText(diffEntry, DiffEntry.Side.NEW);
+
+                // A BufferedReader splits lines at lone carriage returns but JGit does not.
+                // Parse such files from the unified diff to get the same lines as before.
+                if (isText(before) && isText(after) && !before.hasLoneCarriageReturn() && !after.hasLoneCarriageReturn()) {
+                    // Diffing and parsing are CPU-bound while loading the files above is not.
+                    final Result<PatchDiff, DiffError> patchDiff = cpuBoundWork.run(() -> {
+                        final EditList edits = diffAlgorithm.diff(RawTextComparator.DEFAULT, before, after);
+                        return edits.isEmpty() ? null : createPatchDiff(commitDiff, diffEntry, before, after, edits).unwrap();
+                    });
+                    if (patchDiff != null) {
+                        return patchDiff;
+                    }
+                }
+            }
+
+            return getBeforeFullFile(parentCommit, diffEntry.getOldPath()).unwrap()
+                    .bind(file -> {
+                        final String gitDiff = formatPatch(diffEntry);
+                        return cpuBoundWork.run(() -> GitDiffer.createPatchDiff(commitDiff, diffEntry, gitDiff, file, parseOptions).unwrap());
+                    });
+        }
+
+        /**
+         * Creates a PatchDiff by parsing the full diff described by the given edits.
+         * The full diff is only built as text if the {@link ParseOptions.DiffStoragePolicy} requires it.
+         */
+        private DiffResult<PatchDiff> createPatchDiff(
+                final CommitDiff commitDiff,
+                final DiffEntry diffEntry,
+                final LineText before,
+                final LineText after,
+                final EditList edits) {
+            final ParseOptions.DiffStoragePolicy diffStoragePolicy = parseOptions.diffStoragePolicy();
+            final FullDiffIterator fullDiff = new FullDiffIterator(before, after, edits, CONTEXT);
+
+            final List<String> fullDiffLines;
+            final Iterator<String> lines;
+            if (diffStoragePolicy == ParseOptions.DiffStoragePolicy.REMEMBER_FULL_DIFF) {
+                fullDiffLines = new ArrayList<>();
+                lines = new SideEffectIterator<>(fullDiff, fullDiffLines::add);
+            } else {
+                fullDiffLines = null;
+                lines = fullDiff;
+            }
+
+            final DiffResult<DiffTree> diffTree = DiffTreeParser.createDiffTree(lines, true, true, parseOptions.annotationParser());
+
+            return diffTree.map(t -> {
+                final String diffToRemember = switch (diffStoragePolicy) {
+                    case DO_NOT_REMEMBER -> "";
+                    case REMEMBER_DIFF -> formatPatch(diffEntry);
+                    case REMEMBER_FULL_DIFF -> {
+                        final String text = String.join(StringUtils.LINEBREAK, fullDiffLines);
+                        yield fullDiff.endsWithLinebreak() ? text + StringUtils.LINEBREAK : text;
+                    }
+                    case REMEMBER_STRIPPED_DIFF -> stripHeader(formatPatch(diffEntry));
+                };
+
+                return new PatchDiff(commitDiff, diffEntry, diffToRemember, t);
+            });
+        }
+
+        /**
+         * Returns true iff both sides of the given DiffEntry are blobs that can be read
+         * from this session's content source.
+         * Added files are excluded because there is no file before the change.
+         */
+        private static boolean isTextModification(final DiffEntry diffEntry) {
+            if (diffEntry.getChangeType() == DiffEntry.ChangeType.ADD) {
+                return false;
+            }
+
+            return isBlob(diffEntry, DiffEntry.Side.OLD)
+                    && (diffEntry.getChangeType() == DiffEntry.ChangeType.DELETE || isBlob(diffEntry, DiffEntry.Side.NEW));
+        }
+
+        private static boolean isBlob(final DiffEntry diffEntry, final DiffEntry.Side side) {
+            return diffEntry.getMode(side).getObjectType() == Constants.OBJ_BLOB
+                    && diffEntry.getId(side).isComplete();
+        }
+
+        /**
+         * Returns true iff JGit would format the given file as text.
+         */
+        private static boolean isText(final LineText text) {
+            return text.getRawContent().length <= BINARY_FILE_THRESHOLD && !text.isBinaryContent();
+        }
+
+        /**
+         * Loads the given side of the given DiffEntry via the {@link BlobCache} if there is one.
+         */
+        private LineText getText(final DiffEntry diffEntry, final DiffEntry.Side side) throws IOException {
+            final ObjectId id = diffEntry.getId(side).toObjectId();
+            final BlobCache.Loader loader = () -> contentSource.open(side, diffEntry);
+            if (blobCache == null) {
+                return LineText.load(loader.open());
+            }
+            return blobCache.get(id, loader, blobCacheStatistics);
+        }
+
+        private ContentSource contentSourceOf(final AbstractTreeIterator iterator) {
+            if (iterator instanceof WorkingTreeIterator workingTreeIterator) {
+                return ContentSource.create(workingTreeIterator);
+            }
+            return ContentSource.create(reader);
+        }
+
+        /**
+         * Formats the given DiffEntry as unified diff.
+         */
+        private String formatPatch(final DiffEntry diffEntry) {
+            try {
+                patchBuffer.reset();
+                diffFormatter.format(diffEntry);
+                diffFormatter.flush();
+                return patchBuffer.toString(StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                // The files of the patch were already read successfully before, so this should not happen.
+                throw new UncheckedIOException(e);
+            } finally {
+                patchBuffer.reset();
+            }
+        }
+
+        /**
+         * Gets the full content of a file before a commit.
+         *
+         * @param commit   The commit in which the file was changed
+         * @param filename The name of the file
+         * @return The full content of the file before the commit
+         */
+        public DiffResult<BufferedReader> getBeforeFullFile(final RevCommit commit, final String filename) {
+            return getBeforeFullFileText(commit, filename).map(
+                    text -> new BufferedReader(new InputStreamReader(new ByteArrayInputStream(text.getRawContent()), StandardCharsets.UTF_8))
+            );
+        }
+
+        /**
+         * The same as {@link Session#getBeforeFullFile(RevCommit, String)} but returns the file split into lines.
+         * The file is looked up in this session's {@link BlobCache} first.
+         *
+         * @param commit   The commit in which the file was changed
+         * @param filename The name of the file
+         * @return The lines of the file before the commit
+         */
+        public DiffResult<LineText> getBeforeFullFileText(final RevCommit commit, final String filename) {
+            try {
+                treeWalk.reset(commit.getTree());
+                treeWalk.setFilter(PathFilter.create(filename));
+
+                // Look for the first file that matches filename.
+                if (!treeWalk.next()) {
+                    return DiffResult.Failure(DiffError.COULD_NOT_OBTAIN_FULLDIFF, "Could not obtain full diff of file " + filename + " before commit " + commit + "!");
+                }
+
+                final ObjectId objectId = treeWalk.getObjectId(0);
+                if (blobCache == null) {
+                    return DiffResult.Success(LineText.load(reader.open(objectId)));
+                }
+                return DiffResult.Success(blobCache.get(reader, objectId, blobCacheStatistics));
+            } catch (IOException e) {
+                return DiffResult.Failure(DiffError.COULD_NOT_OBTAIN_FULLDIFF, "Could not obtain full diff of file " + filename + " before commit " + commit + "!");
+            }
+        }
+
+        /**
+         * Returns the number of hits, misses, and evictions of all lookups in the {@link BlobCache}
+         * that were performed by this session (including its helpers for huge commits) so far.
+         */
+        public CacheStatistics getBlobCacheStatistics() {
+            return blobCacheStatistics.getStatistics();
+        }
+
+        /**
+         * Returns the number of hits, misses, and evictions of all lookups in the
+         * {@link org.variantsync.diffdetective.feature.ConditionCache ConditionCache} that were performed by the
+         * annotation parser of this session so far.
+         * This includes feature mappings of the parsed diffs that were parsed on demand by any thread.
+         */
+        public ConditionStatistics getConditionStatistics() {
+            return conditionStatistics.getStatistics();
+        }
+
+        /**
+         * Returns the number of commits diffed by this session so far for which rename detection was
+         * limited to exact renames because too many files were added or deleted.
+         * @see ParseOptions#renameLimit()
+         */
+        public int getNumberOfCommitsOverRenameLimit() {
+            return commitsOverRenameLimit;
+        }
+
+        /**
+         * Returns the {@link RevWalk} of this session.
+         * Commits parsed with this walk share the object cache of this session.
+         */
+        public RevWalk getRevWalk() {
+            return revWalk;
+        }
+
+        /**
+         * Releases all JGit resources of this session.
+         */
+        @Override
+        public void close() {
+            if (helperThreads != null) {
+                helperThreads.shutdown();
+            }
+            for (final Session helper : helpers) {
+                helper.close();
+            }
+            helpers.clear();
+            diffFormatter.close();
+            treeWalk.close();
+            revWalk.close();
+            reader.close();
+        }
+    }
 }
@@ -0,0 +1,153 @@
+package org.variantsync.diffdetective.diff;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A list of lines that are stored as slices of a shared UTF-8 encoded buffer and decoded only on demand.
+ * Thus, parsing a large diff does not require a {@link String} for each of its lines.
+ * <p>
+ * Slices of the same buffer can be appended without decoding them.
+ * Any other modification decodes all lines once, after which this list behaves like an {@link ArrayList}.
+ * Note that each list keeps its whole buffer in memory as long as it was not modified in this way.
+ */
+public class LineSlices extends AbstractList<String> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 2;
+
+    private final byte[] buffer;
+    private int[] starts;
+    private int[] ends;
+    private int size;
+    /**
+     * The decoded lines or <code>null</code> as long as this list consists of slices only.
+     */
+    private List<String> decoded;
+
+    /**
+     * Creates an empty list of slices of the given buffer.
+     * @param buffer UTF-8 encoded text that is shared by all slices.
+     */
+    public LineSlices(final byte[] buffer) {
+        this.buffer = buffer;
+        this.starts = new int[INITIAL_CAPACITY];
+        this.ends = new int[INITIAL_CAPACITY];
+        this.size = 0;
+        this.decoded = null;
+    }
+
+    /**
+     * Appends the line consisting of the bytes <code>[from, to)</code> of the buffer of this list.
+     * @param from The index of the first byte of the line.
+     * @param to The index behind the last byte of the line (excluding any line break).
+     */
+    public void addSlice(int from, int to) {
+        if (decoded != null) {
+            decoded.add(decode(from, to));
+            ++modCount;
+            return;
+        }
+
+        if (size == starts.length) {
+            final int capacity = 2 * size;
+            final int[] newStarts = new int[capacity];
+            final int[] newEnds = new int[capacity];
+            System.arraycopy(starts, 0, newStarts, 0, size);
+            System.arraycopy(ends, 0, newEnds, 0, size);
+            starts = newStarts;
+            ends = newEnds;
+        }
+        starts[size] = from;
+        ends[size] = to;
+        ++size;
+        ++modCount;
+    }
+
+    private String decode(int from, int to) {
+        return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes all lines of this list so that it can be modified arbitrarily.
+     */
+    private List<String> decoded() {
+        if (decoded == null) {
+            final List<String> lines = new ArrayList<>(size);
+            for (int i = 0; i < size; ++i) {
+                lines.add(decode(starts[i], ends[i]));
+            }
+            decoded = lines;
+            starts = null;
+            ends = null;
+        }
+        return decoded;
+    }
+
+    /**
+     * Decodes the line at the given index.
+     * Lines are not cached, so each invocation decodes the line again as long as this list was not modified.
+     */
+    @Override
+    public String get(int index) {
+        if (decoded != null) {
+            return decoded.get(index);
+        }
+
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return decode(starts[index], ends[index]);
+    }
+
+    @Override
+    public int size() {
+        return decoded == null ? size : decoded.size();
+    }
+
+    @Override
+    public String set(int index, String line) {
+        return decoded().set(index, line);
+    }
+
+    @Override
+    public void add(int index, String line) {
+        decoded().add(index, line);
+        ++modCount;
+    }
+
+    @Override
+    public String remove(int index) {
+        final String removed = decoded().remove(index);
+        ++modCount;
+        return removed;
+    }
+
+    /**
+     * Appends the given lines.
+     * If the given lines are slices of the same buffer, they are appended without decoding them.
+     */
+    @Override
+    public boolean addAll(final Collection<? extends String> lines) {
+        if (decoded == null && lines instanceof LineSlices other && other.buffer == buffer && other.decoded == null) {
+            final int added = other.size;
+            for (int i = 0; i < added; ++i) {
+                addSlice(other.starts[i], other.ends[i]);
+            }
+            return added > 0;
+        }
+
+        return super.addAll(lines);
+    }
+
+    @Override
+    public void clear() {
+        decoded = new ArrayList<>();
+        starts = null;
+        ends = null;
+        size = 0;
+        ++modCount;
+    }
+}
@@ -0,0 +1,119 @@
+package org.variantsync.diffdetective.diff;
+
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.lib.ObjectLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The raw content of a text file that is split into lines but decoded only on demand.
+ * Lines are separated by line feeds.
+ * A carriage return directly before a line feed is considered to be part of the line break.
+ * Other carriage returns are kept within the lines (see {@link #hasLoneCarriageReturn()}).
+ * <p>
+ * This is the representation in which {@link BlobCache} caches files.
+ * As a {@link RawText}, it can directly be compared with JGit's diff algorithms.
+ */
+public class LineText extends RawText {
+    /**
+     * A text without any lines.
+     */
+    public static final LineText EMPTY = new LineText(new byte[0]);
+
+    /**
+     * Estimated number of bytes occupied by the index of a single line.
+     */
+    private static final long BYTES_PER_LINE = Integer.BYTES;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte NO = 1;
+    private static final byte YES = 2;
+
+    /**
+     * Caches {@link #hasLoneCarriageReturn()}.
+     * Computing it twice on concurrent access does no harm.
+     */
+    private byte hasLoneCarriageReturn = UNKNOWN;
+
+    /**
+     * Splits the given UTF-8 encoded content into lines.
+     * @param content The raw content of a text file.
+     */
+    public LineText(final byte[] content) {
+        super(content);
+    }
+
+    /**
+     * Loads the whole content of the given object.
+     * @param loader The object to load.
+     * @return The content of the given object split into lines.
+     * @throws IOException if the object could not be read.
+     */
+    public static LineText load(final ObjectLoader loader) throws IOException {
+        return new LineText(loader.getCachedBytes(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Decodes the line with the given index without its line break.
+     * @param i The zero-based index of the line to decode.
+     * @return The content of the requested line.
+     */
+    public String getLine(int i) {
+        final int start = lines.get(i + 1);
+        int end = lines.get(i + 2);
+        if (end > start && content[end - 1] == '\n') {
+            --end;
+            if (end > start && content[end - 1] == '\r') {
+                --end;
+            }
+        }
+        return new String(content, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes all lines of this text.
+     * @see LineText#getLine(int)
+     */
+    public String[] getLines() {
+        final String[] decoded = new String[size()];
+        for (int i = 0; i < decoded.length; ++i) {
+            decoded[i] = getLine(i);
+        }
+        return decoded;
+    }
+
+    /**
+     * Returns true iff this text looks like the content of a binary file to git.
+     * @see RawText#isBinary(byte[])
+     */
+    public boolean isBinaryContent() {
+        return RawText.isBinary(content);
+    }
+
+    /**
+     * Returns true iff this text contains a carriage return that is not directly followed by a line feed.
+     * Such a carriage return does not end a line of this text, but it ends a line for a
+     * {@link java.io.BufferedReader}.
+     */
+    public boolean hasLoneCarriageReturn() {
+        if (hasLoneCarriageReturn == UNKNOWN) {
+            boolean found = false;
+            for (int i = 0; i < content.length; ++i) {
+                if (content[i] == '\r' && (i + 1 == content.length || content[i + 1] != '\n')) {
+                    found = true;
+                    break;
+                }
+            }
+            hasLoneCarriageReturn = found ? YES : NO;
+        }
+        return hasLoneCarriageReturn == YES;
+    }
+
+    /**
+     * Estimates the number of bytes this text occupies in memory.
+     */
+    public long estimateSizeInBytes() {
+        return content.length + BYTES_PER_LINE * size();
+    }
+}
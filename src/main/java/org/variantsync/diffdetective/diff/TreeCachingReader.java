@@ -0,0 +1,81 @@
+package org.variantsync.diffdetective.diff;
+
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An {@link ObjectReader} that keeps the raw content of recently read trees in memory.
+ * All other objects are read from the wrapped reader.
+ * <p>
+ * Diffing two commits parses the root trees of both commits and all subtrees that differ.
+ * When many pairs of commits share trees (e.g., all parents of a merge commit, or consecutive releases),
+ * these trees only have to be inflated once as long as they remain in the cache.
+ * The cache is bounded by the size of the cached trees and evicts the least recently used trees first.
+ * Like any {@link ObjectReader}, this reader is not thread-safe.
+ */
+class TreeCachingReader extends ObjectReader.Filter {
+    /**
+     * Default capacity of the cache in bytes.
+     */
+    static final long DEFAULT_CAPACITY_IN_BYTES = 16L * 1024 * 1024;
+
+    private final ObjectReader reader;
+    private final long capacityInBytes;
+    /**
+     * Entries in access order such that the first entry is the least recently used one.
+     */
+    private final LinkedHashMap<ObjectId, byte[]> trees = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeInBytes = 0;
+
+    /**
+     * Wraps the given reader such that trees are cached.
+     * Closing this reader closes the given reader.
+     * @param reader The reader to read objects with.
+     * @param capacityInBytes The maximum number of bytes of all cached trees.
+     */
+    TreeCachingReader(final ObjectReader reader, long capacityInBytes) {
+        this.reader = reader;
+        this.capacityInBytes = capacityInBytes;
+    }
+
+    @Override
+    protected ObjectReader delegate() {
+        return reader;
+    }
+
+    @Override
+    public ObjectLoader open(final AnyObjectId objectId, int typeHint) throws IOException {
+        if (typeHint != Constants.OBJ_TREE) {
+            return super.open(objectId, typeHint);
+        }
+
+        byte[] tree = trees.get(objectId);
+        if (tree == null) {
+            tree = super.open(objectId, typeHint).getCachedBytes();
+            cache(objectId, tree);
+        }
+        return new ObjectLoader.SmallObject(Constants.OBJ_TREE, tree);
+    }
+
+    private void cache(final AnyObjectId treeId, final byte[] tree) {
+        if (tree.length > capacityInBytes) {
+            return;
+        }
+
+        trees.put(treeId.copy(), tree);
+        sizeInBytes += tree.length;
+        final Iterator<Map.Entry<ObjectId, byte[]>> lruOrder = trees.entrySet().iterator();
+        while (sizeInBytes > capacityInBytes) {
+            sizeInBytes -= lruOrder.next().getValue().length;
+            lruOrder.remove();
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.variantsync.diffdetective.diff.difftree;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import org.variantsync.diffdetective.diff.difftree.parse.DiffLineClassifier;
 
 /**
  * The type of nodes in a {@link DiffTree}.
@@ -39,29 +38,15 @@ public enum CodeType {
         return this != ROOT && this != CODE;
     }
 
-    final static Pattern annotationRegex = Pattern.compile("^[+-]?\\s*#\\s*(if|endif|else|elif)");
-
     /**
      * Parses the code type from a line taken from a text-based diff.
+     * A line is a preprocessor annotation if it matches <code>^[+-]?\s*#\s*(if|endif|else|elif)</code>.
      * @param line A line in a patch.
      * @return The type of edit of <code>line</code>.
+     * @see DiffLineClassifier
      */
     public static CodeType ofDiffLine(String line) {
-        Matcher matcher = annotationRegex.matcher(line);
-        if (matcher.find()) {
-            String id = matcher.group(1);
-            if (id.equals(IF.name)) {
-                return IF;
-            } else if (id.equals(ENDIF.name)) {
-                return ENDIF;
-            } else if (id.equals(ELSE.name)) {
-                return ELSE;
-            } else if (id.equals(ELIF.name)) {
-                return ELIF;
-            }
-        }
-
-        return CODE;
+        return DiffLineClassifier.codeType(DiffLineClassifier.classify(line));
     }
 
     /**
@@ -4,6 +4,7 @@ import org.prop4j.And;
 import org.prop4j.Node;
 import org.variantsync.diffdetective.diff.DiffLineNumber;
 import org.variantsync.diffdetective.diff.Lines;
+import org.variantsync.diffdetective.feature.CPPAnnotationParser;
 import org.variantsync.diffdetective.util.Assert;
 import org.variantsync.diffdetective.util.StringUtils;
 import org.variantsync.diffdetective.util.fide.FixTrueFalse;
@@ -44,6 +45,12 @@ public class DiffNode {
     private final DiffLineNumber to = DiffLineNumber.Invalid();
 
     private Node featureMapping;
+    /**
+     * The condition from which {@link #featureMapping} is parsed when it is first requested or null if the
+     * feature mapping was given directly or is already parsed.
+     */
+    private String unparsedFeatureMapping;
+    private CPPAnnotationParser featureMappingParser;
     private List<String> lines;
 
     /**
@@ -106,6 +113,28 @@ public class DiffNode {
         this.lines = lines;
     }
 
+    /**
+     * Creates a mapping node whose feature mapping is parsed from the given condition only when it is first
+     * requested by {@link #getDirectFeatureMapping()}.
+     * Thus, the potentially expensive parsing of formulas is skipped for nodes whose feature mapping is never
+     * inspected (e.g., because their tree is filtered).
+     * For the other parameters, see {@link DiffNode#DiffNode(DiffType, CodeType, DiffLineNumber, DiffLineNumber, Node, List)}.
+     * @param condition The condition of the annotation represented by the new node as
+     *                  {@link CPPAnnotationParser#deferCondition extracted} by <code>conditionParser</code>.
+     * @param conditionParser The parser that parses <code>condition</code> on demand.
+     * @see CPPAnnotationParser#parseDeferredCondition
+     */
+    public static DiffNode createMappingWithDeferredFeatureMapping(
+            DiffType diffType, CodeType codeType,
+            DiffLineNumber fromLines, DiffLineNumber toLines,
+            String condition, CPPAnnotationParser conditionParser,
+            List<String> lines) {
+        final DiffNode node = new DiffNode(diffType, codeType, fromLines, toLines, null, lines);
+        node.unparsedFeatureMapping = condition;
+        node.featureMappingParser = conditionParser;
+        return node;
+    }
+
     /**
      * Creates a new root node.
      * The root is a neutral annotation (i.e., its feature mapping is "true").
@@ -659,6 +688,11 @@ public class DiffNode {
      * @see CodeType#isMacro
      */
     public Node getDirectFeatureMapping() {
+        if (unparsedFeatureMapping != null) {
+            featureMapping = featureMappingParser.parseDeferredCondition(unparsedFeatureMapping);
+            unparsedFeatureMapping = null;
+            featureMappingParser = null;
+        }
         return featureMapping;
     }
 
@@ -821,7 +855,7 @@ public class DiffNode {
         } else {
             clauses = parent.getPresenceCondition(parentOf);
         }
-        clauses.add(featureMapping);
+        clauses.add(getDirectFeatureMapping());
         return clauses;
     }
 
@@ -1129,7 +1163,7 @@ public class DiffNode {
             s = "ROOT";
         } else {
             s = String.format("%s_%s from %d to %d with \"%s\"", diffType, codeType,
-                    from.inDiff, to.inDiff, featureMapping);
+                    from.inDiff, to.inDiff, getDirectFeatureMapping());
         }
         return s;
     }
@@ -1139,11 +1173,26 @@ public class DiffNode {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         DiffNode diffNode = (DiffNode) o;
-        return isMultilineMacro == diffNode.isMultilineMacro && diffType == diffNode.diffType && codeType == diffNode.codeType && from.equals(diffNode.from) && to.equals(diffNode.to) && Objects.equals(featureMapping, diffNode.featureMapping) && lines.equals(diffNode.lines);
+        return isMultilineMacro == diffNode.isMultilineMacro && diffType == diffNode.diffType && codeType == diffNode.codeType && from.equals(diffNode.from) && to.equals(diffNode.to) && lines.equals(diffNode.lines) && featureMappingEquals(diffNode);
+    }
+
+    /**
+     * Compares the feature mappings of this node and the given node.
+     * Deferred feature mappings are not parsed if both are the same condition for parsers that parse alike.
+     */
+    private boolean featureMappingEquals(DiffNode other) {
+        if (unparsedFeatureMapping != null && other.unparsedFeatureMapping != null
+                && unparsedFeatureMapping.equals(other.unparsedFeatureMapping)
+                && featureMappingParser.parsesLike(other.featureMappingParser)) {
+            return true;
+        }
+        return Objects.equals(getDirectFeatureMapping(), other.getDirectFeatureMapping());
     }
 
     /**
-     * Compute a hash using all available attributes.
+     * Compute a hash using all available attributes except for the feature mapping.
+     * The feature mapping is left out so that {@link #createMappingWithDeferredFeatureMapping deferred feature
+     * mappings} are not parsed for hashing.
      *
      * This implementation doesn't strictly adhere to the contract required by {@code Object},
      * because some attributes (for example the line numbers) can be changed during the lifetime of
@@ -1152,6 +1201,6 @@ public class DiffNode {
      */
     @Override
     public int hashCode() {
-        return Objects.hash(diffType, codeType, isMultilineMacro, from, to, featureMapping, lines);
+        return Objects.hash(diffType, codeType, isMultilineMacro, from, to, lines);
     }
 }
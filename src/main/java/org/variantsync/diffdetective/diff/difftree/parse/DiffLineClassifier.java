@@ -0,0 +1,265 @@
+package org.variantsync.diffdetective.diff.difftree.parse;
+
+import org.variantsync.diffdetective.diff.difftree.CodeType;
+import org.variantsync.diffdetective.diff.difftree.DiffType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Classifies lines of text-based diffs in a single pass without allocating.
+ * The classification of a line is packed into an <code>int</code> that can be queried with the static
+ * accessors of this class.
+ * Thus, {@link DiffTreeParser}, {@link MultiLineMacroParser} and {@link DiffNodeParser} can share the
+ * classification of a line instead of scanning it again.
+ * <p>
+ * A classification consists of
+ * <ul>
+ *     <li>the {@link DiffType} of the line (see {@link DiffType#ofDiffLine}),
+ *     <li>the {@link CodeType} of the line (see {@link CodeType#ofDiffLine}),
+ *     <li>whether the line is blank apart from its diff symbol,
+ *     <li>whether the line continues a multiline macro (see {@link MultiLineMacroParser#continuesMultilineDefinition}),
+ *     <li>and the offset of the <code>#</code> of a preprocessor annotation.
+ * </ul>
+ */
+public final class DiffLineClassifier {
+    private static final DiffType[] DIFF_TYPES = DiffType.values();
+    private static final CodeType[] CODE_TYPES = CodeType.values();
+
+    private static final int DIFF_TYPE_MASK = 0b11;
+    private static final int CODE_TYPE_SHIFT = 2;
+    private static final int CODE_TYPE_MASK = 0b111;
+    private static final int BLANK = 1 << 5;
+    private static final int CONTINUES_MULTILINE_DEFINITION = 1 << 6;
+    private static final int DIRECTIVE_OFFSET_SHIFT = 7;
+    /**
+     * The largest directive offset that can be packed into a classification.
+     */
+    private static final int MAX_DIRECTIVE_OFFSET = Integer.MAX_VALUE >>> DIRECTIVE_OFFSET_SHIFT;
+
+    private DiffLineClassifier() {}
+
+    /**
+     * Classifies the given line of a text-based diff.
+     * @param line A line in a patch without a line break.
+     * @return The packed classification of <code>line</code>.
+     */
+    public static int classify(final String line) {
+        final int length = line.length();
+        final char first = length == 0 ? '\0' : line.charAt(0);
+
+        final DiffType diffType;
+        if (first == '+') {
+            diffType = DiffType.ADD;
+        } else if (first == '-') {
+            diffType = DiffType.REM;
+        } else {
+            diffType = DiffType.NON;
+        }
+
+        int classification = diffType.ordinal();
+
+        // Preprocessor annotation: an optional diff symbol, whitespace, '#', whitespace, and a keyword.
+        int i = (first == '+' || first == '-') ? 1 : 0;
+        while (i < length && isRegexWhitespace(line.charAt(i))) {
+            ++i;
+        }
+        CodeType codeType = CodeType.CODE;
+        if (i < length && line.charAt(i) == '#' && i <= MAX_DIRECTIVE_OFFSET) {
+            final int directiveOffset = i;
+            ++i;
+            while (i < length && isRegexWhitespace(line.charAt(i))) {
+                ++i;
+            }
+            codeType = directiveAt(line, i);
+            if (codeType != CodeType.CODE) {
+                classification |= directiveOffset << DIRECTIVE_OFFSET_SHIFT;
+            }
+        }
+        classification |= codeType.ordinal() << CODE_TYPE_SHIFT;
+
+        // Blank: everything behind the diff symbol is whitespace.
+        boolean blank = true;
+        for (int j = 1; j < length; ++j) {
+            if (!Character.isWhitespace(line.charAt(j))) {
+                blank = false;
+                break;
+            }
+        }
+        if (blank) {
+            classification |= BLANK;
+        }
+
+        // Continuation: the last character that String::trim would keep is a backslash.
+        int last = length - 1;
+        while (last >= 0 && line.charAt(last) <= ' ') {
+            --last;
+        }
+        if (last >= 0 && line.charAt(last) == '\\') {
+            classification |= CONTINUES_MULTILINE_DEFINITION;
+        }
+
+        return classification;
+    }
+
+    /**
+     * Classifies the line consisting of the bytes <code>[from, to)</code> of the given UTF-8 encoded buffer
+     * without decoding it.
+     * The classification equals the classification of the decoded line by {@link #classify(String)}.
+     * The {@link #directiveOffset directive offset} is relative to <code>from</code>.
+     * @param buffer UTF-8 encoded text.
+     * @param from The index of the first byte of the line.
+     * @param to The index behind the last byte of the line (excluding any line break).
+     * @return The packed classification of the line.
+     */
+    public static int classify(final byte[] buffer, int from, int to) {
+        final int length = to - from;
+        final byte first = length == 0 ? 0 : buffer[from];
+
+        final DiffType diffType;
+        if (first == '+') {
+            diffType = DiffType.ADD;
+        } else if (first == '-') {
+            diffType = DiffType.REM;
+        } else {
+            diffType = DiffType.NON;
+        }
+
+        int classification = diffType.ordinal();
+
+        // All characters relevant for preprocessor annotations are ASCII, so bytes can be compared directly.
+        int i = (first == '+' || first == '-') ? 1 : 0;
+        while (i < length && isRegexWhitespace((char) buffer[from + i])) {
+            ++i;
+        }
+        CodeType codeType = CodeType.CODE;
+        if (i < length && buffer[from + i] == '#' && i <= MAX_DIRECTIVE_OFFSET) {
+            final int directiveOffset = i;
+            ++i;
+            while (i < length && isRegexWhitespace((char) buffer[from + i])) {
+                ++i;
+            }
+            codeType = directiveAt(buffer, from + i, to);
+            if (codeType != CodeType.CODE) {
+                classification |= directiveOffset << DIRECTIVE_OFFSET_SHIFT;
+            }
+        }
+        classification |= codeType.ordinal() << CODE_TYPE_SHIFT;
+
+        boolean blank = true;
+        for (int j = from + 1; j < to; ++j) {
+            final int b = buffer[j] & 0xFF;
+            if (b >= 0x80) {
+                // Some non-ASCII characters are whitespace, too. This is rare enough to simply decode the line.
+                return classify(new String(buffer, from, length, StandardCharsets.UTF_8));
+            }
+            if (!Character.isWhitespace(b)) {
+                blank = false;
+                break;
+            }
+        }
+        if (blank) {
+            classification |= BLANK;
+        }
+
+        // Bytes of non-ASCII characters are never below ' ' or a backslash.
+        int last = to - 1;
+        while (last >= from && (buffer[last] & 0xFF) <= ' ') {
+            --last;
+        }
+        if (last >= from && buffer[last] == '\\') {
+            classification |= CONTINUES_MULTILINE_DEFINITION;
+        }
+
+        return classification;
+    }
+
+    private static CodeType directiveAt(final byte[] buffer, int offset, int to) {
+        if (startsWith(buffer, offset, to, "if")) {
+            return CodeType.IF;
+        } else if (startsWith(buffer, offset, to, "endif")) {
+            return CodeType.ENDIF;
+        } else if (startsWith(buffer, offset, to, "else")) {
+            return CodeType.ELSE;
+        } else if (startsWith(buffer, offset, to, "elif")) {
+            return CodeType.ELIF;
+        }
+        return CodeType.CODE;
+    }
+
+    /**
+     * Returns true iff the bytes starting at <code>offset</code> (and before <code>to</code>) are the given ASCII
+     * keyword.
+     */
+    private static boolean startsWith(final byte[] buffer, int offset, int to, final String keyword) {
+        if (to - offset < keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); ++i) {
+            if (buffer[offset + i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the type of the preprocessor annotation whose keyword starts at the given offset.
+     * Like the keywords of the original regex, <code>if</code> also matches <code>ifdef</code> and
+     * <code>ifndef</code>.
+     */
+    private static CodeType directiveAt(final String line, int offset) {
+        if (line.startsWith("if", offset)) {
+            return CodeType.IF;
+        } else if (line.startsWith("endif", offset)) {
+            return CodeType.ENDIF;
+        } else if (line.startsWith("else", offset)) {
+            return CodeType.ELSE;
+        } else if (line.startsWith("elif", offset)) {
+            return CodeType.ELIF;
+        }
+        return CodeType.CODE;
+    }
+
+    /**
+     * Returns true iff the given character is matched by <code>\s</code> in a {@link java.util.regex.Pattern}.
+     */
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Returns the diff type of a classified line.
+     */
+    public static DiffType diffType(int classification) {
+        return DIFF_TYPES[classification & DIFF_TYPE_MASK];
+    }
+
+    /**
+     * Returns the code type of a classified line.
+     */
+    public static CodeType codeType(int classification) {
+        return CODE_TYPES[(classification >>> CODE_TYPE_SHIFT) & CODE_TYPE_MASK];
+    }
+
+    /**
+     * Returns true iff a classified line is empty or consists of whitespace after its diff symbol.
+     */
+    public static boolean isBlank(int classification) {
+        return (classification & BLANK) != 0;
+    }
+
+    /**
+     * Returns true iff a classified line ends with a backslash, ignoring trailing whitespace.
+     */
+    public static boolean continuesMultilineDefinition(int classification) {
+        return (classification & CONTINUES_MULTILINE_DEFINITION) != 0;
+    }
+
+    /**
+     * Returns the offset of the <code>#</code> of a classified preprocessor annotation.
+     * @return the offset of <code>#</code> or <code>-1</code> if the line is not a preprocessor annotation.
+     */
+    public static int directiveOffset(int classification) {
+        return codeType(classification).isMacro() ? classification >>> DIRECTIVE_OFFSET_SHIFT : -1;
+    }
+}
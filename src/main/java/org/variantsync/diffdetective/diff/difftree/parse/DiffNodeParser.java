@@ -1,11 +1,11 @@
 package org.variantsync.diffdetective.diff.difftree.parse;
 
-import org.prop4j.Node;
 import org.variantsync.diffdetective.diff.DiffLineNumber;
 import org.variantsync.diffdetective.diff.difftree.CodeType;
 import org.variantsync.diffdetective.diff.difftree.DiffNode;
 import org.variantsync.diffdetective.diff.difftree.DiffType;
 import org.variantsync.diffdetective.feature.CPPAnnotationParser;
+import org.variantsync.diffdetective.feature.ConditionStatistics;
 
 import java.util.ArrayList;
 
@@ -19,6 +19,14 @@ public record DiffNodeParser(CPPAnnotationParser annotationParser) {
      */
     public static final DiffNodeParser Default = new DiffNodeParser(CPPAnnotationParser.Default);
 
+    /**
+     * Creates a node parser whose annotation parser records its lookups in the given statistics.
+     * @see CPPAnnotationParser#reportingTo
+     */
+    public DiffNodeParser reportingTo(final ConditionStatistics.Recorder conditionStatistics) {
+        return new DiffNodeParser(annotationParser.reportingTo(conditionStatistics));
+    }
+
     /**
      * Parses the given line from a text-based diff to a DiffNode.
      *
@@ -26,23 +34,38 @@ public record DiffNodeParser(CPPAnnotationParser annotationParser) {
      * @return A DiffNode with a code type, diff type, label, and feature mapping.
      */
     public DiffNode fromDiffLine(String diffLine) throws IllFormedAnnotationException {
-        DiffType diffType = DiffType.ofDiffLine(diffLine);
-        CodeType codeType = CodeType.ofDiffLine(diffLine);
+        return fromDiffLine(diffLine, DiffLineClassifier.classify(diffLine));
+    }
+
+    /**
+     * Parses the given line from a text-based diff to a DiffNode.
+     * Behaves like {@link #fromDiffLine(String)} but reuses a classification of the line.
+     *
+     * @param diffLine The line which the new node represents.
+     * @param classification The classification of <code>diffLine</code> by {@link DiffLineClassifier#classify}.
+     * @return A DiffNode with a code type, diff type, label, and feature mapping.
+     */
+    public DiffNode fromDiffLine(String diffLine, int classification) throws IllFormedAnnotationException {
+        DiffType diffType = DiffLineClassifier.diffType(classification);
+        CodeType codeType = DiffLineClassifier.codeType(classification);
         String label = diffLine.isEmpty() ? diffLine : diffLine.substring(1);
-        Node featureMapping;
+
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add(label);
 
         if (codeType == CodeType.CODE || codeType == CodeType.ENDIF || codeType == CodeType.ELSE) {
-            featureMapping = null;
-        } else {
-            featureMapping = annotationParser.parseDiffLine(diffLine);
+            return new DiffNode(
+                    diffType, codeType,
+                    DiffLineNumber.Invalid(), DiffLineNumber.Invalid(),
+                    null,
+                    lines);
         }
 
-        ArrayList<String> lines = new ArrayList<>();
-        lines.add(label);
-        return new DiffNode(
+        // Ill-formed annotations are still detected while parsing but the formula is only parsed when needed.
+        return DiffNode.createMappingWithDeferredFeatureMapping(
                 diffType, codeType,
                 DiffLineNumber.Invalid(), DiffLineNumber.Invalid(),
-                featureMapping,
+                annotationParser.deferCondition(diffLine), annotationParser,
                 lines);
     }
 }
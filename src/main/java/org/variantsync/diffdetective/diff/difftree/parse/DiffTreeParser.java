@@ -3,12 +3,13 @@ package org.variantsync.diffdetective.diff.difftree.parse;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.revwalk.RevWalk;
 import org.variantsync.diffdetective.datasets.Repository;
 import org.variantsync.diffdetective.diff.CommitDiff;
 import org.variantsync.diffdetective.diff.DiffLineNumber;
 import org.variantsync.diffdetective.diff.GitDiffer;
+import org.variantsync.diffdetective.diff.LineSlices;
 import org.variantsync.diffdetective.diff.PatchDiff;
+import org.variantsync.diffdetective.diff.difftree.CodeType;
 import org.variantsync.diffdetective.diff.difftree.DiffNode;
 import org.variantsync.diffdetective.diff.difftree.DiffTree;
 import org.variantsync.diffdetective.diff.difftree.DiffType;
@@ -19,7 +20,11 @@ import org.variantsync.diffdetective.util.Assert;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Stack;
 import java.util.concurrent.atomic.AtomicReference;
@@ -67,6 +72,215 @@ public class DiffTreeParser {
             boolean collapseMultipleCodeLines,
             boolean ignoreEmptyLines,
             DiffNodeParser nodeParser) throws IOException
+    {
+        try {
+            return createDiffTree(fullDiff.lines().iterator(), collapseMultipleCodeLines, ignoreEmptyLines, nodeParser);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * The same as {@link DiffTreeParser#createDiffTree(BufferedReader, boolean, boolean, DiffNodeParser)}
+     * but with the diff given as a sequence of lines.
+     * This allows to parse diffs that are produced line by line without building the diff as text first
+     * (e.g., {@link org.variantsync.diffdetective.diff.FullDiffIterator}).
+     *
+     * @param fullDiff The lines of the full diff of a patch without line breaks.
+     */
+    public static DiffResult<DiffTree> createDiffTree(
+            Iterator<String> fullDiff,
+            boolean collapseMultipleCodeLines,
+            boolean ignoreEmptyLines,
+            DiffNodeParser nodeParser)
+    {
+        return createDiffTree(new StringLines(fullDiff), collapseMultipleCodeLines, ignoreEmptyLines, nodeParser);
+    }
+
+    /**
+     * The same as {@link DiffTreeParser#createDiffTree(BufferedReader, boolean, boolean, DiffNodeParser)}
+     * but with the diff given as UTF-8 encoded bytes.
+     * Lines are only decoded if they are preprocessor annotations or part of multiline macros.
+     * The lines of code nodes are stored as {@link LineSlices slices} of the given buffer and are decoded only
+     * when they are accessed (e.g., by {@link DiffNode#getLabel()}).
+     * Thus, the parsed tree keeps the given buffer in memory and the buffer must not be modified afterwards.
+     *
+     * @param fullDiff A buffer containing the full diff of a patch.
+     * @param offset The index of the first byte of the diff in <code>fullDiff</code>.
+     * @param length The number of bytes of the diff.
+     */
+    public static DiffResult<DiffTree> createDiffTree(
+            byte[] fullDiff,
+            int offset,
+            int length,
+            boolean collapseMultipleCodeLines,
+            boolean ignoreEmptyLines,
+            DiffNodeParser nodeParser)
+    {
+        return createDiffTree(new Utf8Lines(fullDiff, offset, offset + length), collapseMultipleCodeLines, ignoreEmptyLines, nodeParser);
+    }
+
+    /**
+     * The same as {@link DiffTreeParser#createDiffTree(byte[], int, int, boolean, boolean, DiffNodeParser)}
+     * but with the diff given as the remaining bytes of a buffer.
+     * The position of the given buffer is not changed.
+     * Buffers without an accessible array (e.g., direct buffers) are copied.
+     *
+     * @param fullDiff A buffer whose remaining bytes are the UTF-8 encoded full diff of a patch.
+     */
+    public static DiffResult<DiffTree> createDiffTree(
+            ByteBuffer fullDiff,
+            boolean collapseMultipleCodeLines,
+            boolean ignoreEmptyLines,
+            DiffNodeParser nodeParser)
+    {
+        if (fullDiff.hasArray()) {
+            return createDiffTree(fullDiff.array(), fullDiff.arrayOffset() + fullDiff.position(), fullDiff.remaining(), collapseMultipleCodeLines, ignoreEmptyLines, nodeParser);
+        }
+
+        final byte[] copy = new byte[fullDiff.remaining()];
+        fullDiff.duplicate().get(copy);
+        return createDiffTree(copy, 0, copy.length, collapseMultipleCodeLines, ignoreEmptyLines, nodeParser);
+    }
+
+    /**
+     * The lines of a diff which are classified by {@link DiffLineClassifier} and decoded on demand.
+     */
+    private interface DiffLines {
+        /**
+         * Advances to the next line.
+         * @return false iff there are no more lines.
+         */
+        boolean next();
+
+        /**
+         * Returns the {@link DiffLineClassifier classification} of the current line.
+         */
+        int classification();
+
+        /**
+         * Returns the current line including its diff symbol.
+         */
+        String line();
+
+        /**
+         * Returns the current line without its diff symbol as the mutable lines of a code node.
+         */
+        List<String> codeLines();
+    }
+
+    /**
+     * Lines of a diff which are already decoded.
+     */
+    private static class StringLines implements DiffLines {
+        private final Iterator<String> lines;
+        private String line;
+        private int classification;
+
+        private StringLines(final Iterator<String> lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public boolean next() {
+            if (!lines.hasNext()) {
+                return false;
+            }
+            line = lines.next();
+            classification = DiffLineClassifier.classify(line);
+            return true;
+        }
+
+        @Override
+        public int classification() {
+            return classification;
+        }
+
+        @Override
+        public String line() {
+            return line;
+        }
+
+        @Override
+        public List<String> codeLines() {
+            final List<String> codeLines = new ArrayList<>();
+            // substring(1) here because of diff symbol ('+', '-', ' ') at the beginning of a line.
+            codeLines.add(line.isEmpty() ? line : line.substring(1));
+            return codeLines;
+        }
+    }
+
+    /**
+     * Lines of a UTF-8 encoded diff which are only decoded when needed.
+     * Lines are terminated by a line feed, a carriage return, or a carriage return followed by a line feed as
+     * for {@link BufferedReader#readLine()}.
+     */
+    private static class Utf8Lines implements DiffLines {
+        private final byte[] buffer;
+        private final int end;
+        private int position;
+        private int lineStart;
+        private int lineEnd;
+        private int classification;
+
+        private Utf8Lines(final byte[] buffer, int from, int to) {
+            this.buffer = buffer;
+            this.position = from;
+            this.end = to;
+        }
+
+        @Override
+        public boolean next() {
+            if (position >= end) {
+                return false;
+            }
+
+            lineStart = position;
+            int i = position;
+            while (i < end && buffer[i] != '\n' && buffer[i] != '\r') {
+                ++i;
+            }
+            lineEnd = i;
+            if (i < end && buffer[i] == '\r') {
+                ++i;
+            }
+            if (i < end && buffer[i] == '\n' && (i == lineEnd || buffer[i - 1] == '\r')) {
+                ++i;
+            }
+            position = i;
+
+            classification = DiffLineClassifier.classify(buffer, lineStart, lineEnd);
+            return true;
+        }
+
+        @Override
+        public int classification() {
+            return classification;
+        }
+
+        @Override
+        public String line() {
+            return new String(buffer, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public List<String> codeLines() {
+            final LineSlices codeLines = new LineSlices(buffer);
+            // skip the diff symbol ('+', '-', ' ') at the beginning of a line.
+            codeLines.addSlice(Math.min(lineStart + 1, lineEnd), lineEnd);
+            return codeLines;
+        }
+    }
+
+    /**
+     * Parses the given lines of a diff.
+     * @see DiffTreeParser#createDiffTree(BufferedReader, boolean, boolean, DiffNodeParser)
+     */
+    private static DiffResult<DiffTree> createDiffTree(
+            final DiffLines fullDiff,
+            boolean collapseMultipleCodeLines,
+            boolean ignoreEmptyLines,
+            DiffNodeParser nodeParser)
     {
         final List<DiffNode> nodes = new ArrayList<>();
         final Stack<DiffNode> beforeStack = new Stack<>();
@@ -88,29 +302,32 @@ public class DiffTreeParser {
         beforeStack.push(root);
         afterStack.push(root);
 
-        String currentLine;
-        for (int i = 0; (currentLine = fullDiff.readLine()) != null; i++) {
-            final DiffType diffType = DiffType.ofDiffLine(currentLine);
+        for (int i = 0; fullDiff.next(); i++) {
+            // The line is classified once for all parsing stages below.
+            final int classification = fullDiff.classification();
+            final DiffType diffType = DiffLineClassifier.diffType(classification);
 
             // count line numbers
             lastLineNo.set(lineNo);
             lineNo.inDiff = i + 1;
             diffType.matchBeforeAfter(() -> ++lineNo.beforeEdit, () -> ++lineNo.afterEdit);
 
-            // Ignore line if it is empty.
-            if (ignoreEmptyLines && (currentLine.isEmpty()
-                    // substring(1) here because of diff symbol ('+', '-', ' ') at the beginning of a line.
-                    || currentLine.substring(1).isBlank())) {
+            // Ignore line if it is empty (apart from the diff symbol ('+', '-', ' ') at the beginning of a line).
+            if (ignoreEmptyLines && DiffLineClassifier.isBlank(classification)) {
                 // discard empty lines
                 continue;
             }
 
             // check if this is a multiline macro
             final ParseResult isMLMacro;
-            try {
-                isMLMacro = mlMacroParser.consume(lineNo, currentLine, beforeStack, afterStack, nodes);
-            } catch (IllFormedAnnotationException e) {
-                return DiffResult.Failure(e);
+            if (DiffLineClassifier.continuesMultilineDefinition(classification) || mlMacroParser.isInMultilineMacro()) {
+                try {
+                    isMLMacro = mlMacroParser.consume(lineNo, fullDiff.line(), classification, beforeStack, afterStack, nodes);
+                } catch (IllFormedAnnotationException e) {
+                    return DiffResult.Failure(e);
+                }
+            } else {
+                isMLMacro = ParseResult.NOT_MY_DUTY;
             }
 
             switch (isMLMacro.type()) {
@@ -132,10 +349,16 @@ public class DiffTreeParser {
             // This gets the code type and diff type of the current line and creates a node
             // Note that the node is not yet added to the diff tree.
             final DiffNode newNode;
-            try {
-                newNode = nodeParser.fromDiffLine(currentLine);
-            } catch (IllFormedAnnotationException e) {
-                return DiffResult.Failure(e);
+            if (DiffLineClassifier.codeType(classification) == CodeType.CODE) {
+                // Code lines do not have to be decoded because they are not parsed any further.
+                newNode = DiffNode.createCode(diffType, DiffLineNumber.Invalid(), DiffLineNumber.Invalid(), fullDiff.codeLines());
+            } else {
+                final String currentLine = fullDiff.line();
+                try {
+                    newNode = nodeParser.fromDiffLine(currentLine, classification);
+                } catch (IllFormedAnnotationException e) {
+                    return DiffResult.Failure(e);
+                }
             }
 
             // collapse multiple code lines
@@ -157,7 +380,6 @@ public class DiffTreeParser {
             if (newNode.isCode()) {
                 lastCode = newNode;
             } else if (newNode.isEndif()) {
-                final String currentLineFinal = currentLine;
                 diffType.matchBeforeAfter(beforeStack, afterStack,
                         stack -> {
                             // Set corresponding line of now closed annotation.
@@ -169,7 +391,7 @@ public class DiffTreeParser {
                             popIf(stack);
 
                             if (stack.isEmpty()) {
-                                errorPropagation.accept(DiffError.ENDIF_WITHOUT_IF, "ENDIF without IF at line \"" + currentLineFinal + "\"!");
+                                errorPropagation.accept(DiffError.ENDIF_WITHOUT_IF, "ENDIF without IF at line \"" + fullDiff.line() + "\"!");
                             }
                         });
                 if (error.get() != null) { return error.get(); }
@@ -288,21 +510,12 @@ public class DiffTreeParser {
     public static CommitDiff parseCommit(Repository repo, String commitHash) throws IOException {
         final Git git = repo.getGitRepo().run();
         Assert.assertNotNull(git);
-        final RevWalk revWalk = new RevWalk(git.getRepository());
-        final RevCommit childCommit = revWalk.parseCommit(ObjectId.fromString(commitHash));
-        final RevCommit parentCommit = revWalk.parseCommit(childCommit.getParent(0).getId());
-
-        final CommitDiff commitDiff =
-                GitDiffer.createCommitDiff(
-                                git,
-                                repo.getDiffFilter(),
-                                parentCommit,
-                                childCommit,
-                                repo.getParseOptions())
-                        .diff().orElseThrow();
-
-        revWalk.close();
-        return commitDiff;
+
+        try (GitDiffer.Session session = new GitDiffer.Session(git, repo.getDiffFilter(), repo.getParseOptions())) {
+            final RevCommit childCommit = session.getRevWalk().parseCommit(ObjectId.fromString(commitHash));
+            final RevCommit parentCommit = session.getRevWalk().parseCommit(childCommit.getParent(0).getId());
+            return session.createCommitDiff(parentCommit, childCommit).diff().orElseThrow();
+        }
     }
 
     /**
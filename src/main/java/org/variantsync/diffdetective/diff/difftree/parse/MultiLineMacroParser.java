@@ -53,11 +53,21 @@ public class MultiLineMacroParser {
         return node;
     }
 
+    /**
+     * Returns true iff the definition of a multiline macro was started but not finished yet.
+     * As long as this is false, {@link #consume} only consumes lines that
+     * {@link #continuesMultilineDefinition continue a multiline definition}.
+     */
+    boolean isInMultilineMacro() {
+        return beforeMLMacro != null || afterMLMacro != null;
+    }
+
     /**
      * Consumes the next line a text-based diff and determines if that line
      * is part of a multi-line macro definition or not.
      * @param lineNo The line number of the currently parsed line.
      * @param line The line to parse.
+     * @param classification The classification of <code>line</code> by {@link DiffLineClassifier#classify}.
      * @param beforeStack The current before stack as defined by Sören's algorithm.
      * @param afterStack The current after stack as defined by Sören's algorithm.
      * @param nodes The list of all DiffNodes that where already parsed.
@@ -71,17 +81,18 @@ public class MultiLineMacroParser {
     ParseResult consume(
             final DiffLineNumber lineNo,
             final String line,
+            int classification,
             final Stack<DiffNode> beforeStack,
             final Stack<DiffNode> afterStack,
             final List<DiffNode> nodes
     ) throws IllFormedAnnotationException {
-        final DiffType diffType = DiffType.ofDiffLine(line);
+        final DiffType diffType = DiffLineClassifier.diffType(classification);
         final boolean isAdd = diffType == DiffType.ADD;
         final boolean isRem = diffType == DiffType.REM;
 
-        if (continuesMultilineDefinition(line)) {
+        if (DiffLineClassifier.continuesMultilineDefinition(classification)) {
             // If this multiline macro line is a header...
-            final CodeType codeType = CodeType.ofDiffLine(line);
+            final CodeType codeType = DiffLineClassifier.codeType(classification);
             if (codeType.isConditionalMacro()) {
                 // ... create a new multi line macro to complete.
                 if (!isAdd) {
@@ -198,6 +209,6 @@ public class MultiLineMacroParser {
      * @return True iff the line ends with a backslash.
      */
     public static boolean continuesMultilineDefinition(String line) {
-        return line.trim().endsWith("\\");
+        return DiffLineClassifier.continuesMultilineDefinition(DiffLineClassifier.classify(line));
     }
 }
@@ -1,10 +1,7 @@
 package org.variantsync.diffdetective.feature;
 
-import org.variantsync.functjonal.Functjonal;
-
 import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.function.Function;
 import java.util.regex.Pattern;
 
 /**
@@ -13,6 +10,7 @@ import java.util.regex.Pattern;
  * higher-order logic (e.g., including arithmetics of function calls)
  * to a propositional formula.
  * Non-boolean expressions are replaced by respectively named variables.
+ * {@link CPPDiffLineFormulaExtractor} applies the same abstraction in a single scan.
  * @author Paul Bittner
  */
 public class BooleanAbstraction {
@@ -43,20 +41,23 @@ public class BooleanAbstraction {
     /** Abstraction value for clsong brackets <code>)</code>. */
     public static final String BRACKET_R = "__RB__";
 
-    private static final Map<Pattern, String> ARITHMETICS;
+    /**
+     * Regexes of operators and their abstractions in the order in which they are replaced.
+     * Longer operators are replaced first such that, for example, <code>&gt;=</code> is not abstracted as
+     * <code>&gt;</code> followed by <code>=</code>.
+     */
+    private static final Map<Pattern, String> ARITHMETICS = new LinkedHashMap<>();
     static {
-        ARITHMETICS = compile(Map.of(
-                "==", EQ,
-                ">=", GEQ,
-                "<=", LEQ,
-                ">", GT,
-                "<", LT,
-                Pattern.quote("+"), ADD,
-                "-", SUB,
-                Pattern.quote("*"), MUL,
-                "/", DIV,
-                "%", MOD
-        ));
+        ARITHMETICS.put(Pattern.compile("=="), EQ);
+        ARITHMETICS.put(Pattern.compile(">="), GEQ);
+        ARITHMETICS.put(Pattern.compile("<="), LEQ);
+        ARITHMETICS.put(Pattern.compile(">"), GT);
+        ARITHMETICS.put(Pattern.compile("<"), LT);
+        ARITHMETICS.put(Pattern.compile(Pattern.quote("+")), ADD);
+        ARITHMETICS.put(Pattern.compile("-"), SUB);
+        ARITHMETICS.put(Pattern.compile(Pattern.quote("*")), MUL);
+        ARITHMETICS.put(Pattern.compile("/"), DIV);
+        ARITHMETICS.put(Pattern.compile("%"), MOD);
     }
     private static final Pattern COMMA = Pattern.compile(",");
     private static final String COMMA_REPLACEMENT = "__";
@@ -67,16 +68,6 @@ public class BooleanAbstraction {
     private static final Pattern CALL = Pattern.compile("(\\w+)\\((\\w*)\\)");
     private static final String CALL_REPLACEMENT = "$1__$2";
 
-    private static Map<Pattern, String> compile(final Map<String, String> regex_replace) {
-        return Functjonal.bimap(
-                regex_replace,
-                Pattern::compile,
-                Function.identity(),
-                // Use a linked hashmap here to ensure that regexes are always replaced in the same order.
-                LinkedHashMap::new
-        );
-    }
-
     private static String abstractAll(String formula, final Map<Pattern, String> regex_replace) {
         for (Map.Entry<Pattern, String> regex : regex_replace.entrySet()) {
             formula = regex.getKey().matcher(formula).replaceAll(regex.getValue());
@@ -92,9 +83,6 @@ public class BooleanAbstraction {
      * @return A copy of the formula with abstracted arithmetics.
      */
     public static String arithmetics(final String formula) {
-        // TODO: The extra call for BRACKETS could be avoided by adding it to the ARITHMETICS map.
-        //       This requires a sorted map (e.g., LinkedHashMap) though which is not yet supported by the smart
-        //       constructor Map.of.
         return BRACKETS.matcher(abstractAll(formula, ARITHMETICS)).replaceAll(BRACKETS_REPLACEMENT);
     }
 
@@ -16,6 +16,8 @@ public class CPPAnnotationParser {
 
     private final PropositionalFormulaParser formulaParser;
     private final CPPDiffLineFormulaExtractor extractor;
+    private final ConditionCache conditionCache;
+    private final ConditionStatistics.Recorder conditionStatistics;
 
     /**
      * Invokes {@link #CPPAnnotationParser(PropositionalFormulaParser, CPPDiffLineFormulaExtractor)} with
@@ -31,8 +33,48 @@ public class CPPAnnotationParser {
      * @param extractor An extractor that extracts the formula part of a preprocessor annotation that is then given to the formulaParser.
      */
     public CPPAnnotationParser(final PropositionalFormulaParser formulaParser, CPPDiffLineFormulaExtractor extractor) {
+        this(formulaParser, extractor, new ConditionCache());
+    }
+
+    /**
+     * Creates a new preprocessor annotation parser.
+     * @param formulaParser Parser that is used to parse propositional formulas in conditional annotations (e.g., the formula <code>f</code> in <code>#if f</code>).
+     * @param extractor An extractor that extracts the formula part of a preprocessor annotation that is then given to the formulaParser.
+     * @param conditionCache A cache for the formulas parsed by this parser.
+     *                       Must not be shared with parsers that use a different formulaParser.
+     */
+    public CPPAnnotationParser(final PropositionalFormulaParser formulaParser, CPPDiffLineFormulaExtractor extractor, final ConditionCache conditionCache) {
+        this(formulaParser, extractor, conditionCache, new ConditionStatistics.Recorder());
+    }
+
+    private CPPAnnotationParser(final PropositionalFormulaParser formulaParser, CPPDiffLineFormulaExtractor extractor, final ConditionCache conditionCache, final ConditionStatistics.Recorder conditionStatistics) {
         this.formulaParser = formulaParser;
         this.extractor = extractor;
+        this.conditionCache = conditionCache;
+        this.conditionStatistics = conditionStatistics;
+    }
+
+    /**
+     * Creates a parser that parses like this parser and shares its cache but records its lookups in the given
+     * statistics.
+     * Analyses use a separate recorder per task such that the lookups are attributed to the task's result,
+     * regardless of the thread that parses a condition.
+     * @param conditionStatistics Records the lookups of the returned parser.
+     * @return A parser that reports to <code>conditionStatistics</code>.
+     */
+    public CPPAnnotationParser reportingTo(final ConditionStatistics.Recorder conditionStatistics) {
+        if (this.conditionStatistics == conditionStatistics) {
+            return this;
+        }
+        return new CPPAnnotationParser(formulaParser, extractor, conditionCache, conditionStatistics);
+    }
+
+    /**
+     * Returns the lookups in the condition cache and the deferred conditions of this parser and all parsers
+     * {@link #reportingTo reporting} to the same recorder.
+     */
+    public ConditionStatistics getConditionStatistics() {
+        return conditionStatistics.getStatistics();
     }
 
     /**
@@ -43,7 +85,52 @@ public class CPPAnnotationParser {
      * @throws IllFormedAnnotationException when {@link CPPDiffLineFormulaExtractor#extractFormula(String)} throws.
      */
     public Node parseDiffLine(String line) throws IllFormedAnnotationException {
-        return parseCondition(extractor.extractFormula(line));
+        return parseCondition(extractCondition(line));
+    }
+
+    /**
+     * Extracts the condition of the given line of source code that contains a preprocessor macro
+     * (i.e., IF, IFDEF, ELIF) without parsing it.
+     * The result can be parsed later with {@link #parseCondition}.
+     * @param line The line of code of a preprocessor annotation.
+     * @return The condition of the macro in the given line.
+     * @throws IllFormedAnnotationException when {@link CPPDiffLineFormulaExtractor#extractFormula(String)} throws.
+     */
+    public String extractCondition(String line) throws IllFormedAnnotationException {
+        return extractor.extractFormula(line);
+    }
+
+    /**
+     * Extracts the condition of the given line like {@link #extractCondition} for parsing it later with
+     * {@link #parseDeferredCondition}.
+     * The condition is counted as {@link ConditionStatistics#deferredConditions deferred}.
+     * @param line The line of code of a preprocessor annotation.
+     * @return The condition of the macro in the given line.
+     * @throws IllFormedAnnotationException when {@link CPPDiffLineFormulaExtractor#extractFormula(String)} throws.
+     */
+    public String deferCondition(String line) throws IllFormedAnnotationException {
+        final String condition = extractCondition(line);
+        conditionStatistics.defer();
+        return condition;
+    }
+
+    /**
+     * Parses a condition that was {@link #deferCondition deferred} like {@link #parseCondition}.
+     * The condition is counted as {@link ConditionStatistics#parsedDeferredConditions parsed on demand}.
+     * @param condition A condition returned by {@link #deferCondition}.
+     * @return The formula of the condition, which is owned by the caller.
+     */
+    public Node parseDeferredCondition(String condition) {
+        conditionStatistics.parseDeferred();
+        return parseCondition(condition);
+    }
+
+    /**
+     * Returns true iff this parser and the given parser parse each condition to equal formulas.
+     * This is the case if both use the same formula parser, regardless of the statistics they report to.
+     */
+    public boolean parsesLike(CPPAnnotationParser other) {
+        return formulaParser == other.formulaParser;
     }
 
     /**
@@ -51,11 +138,16 @@ public class CPPAnnotationParser {
      * The given input should not start with preprocessor annotations.
      * If the input starts with a preprocessor annotation, use {@link #parseDiffLine} instead.
      * The input should have been prepared by {@link CPPDiffLineFormulaExtractor}.
+     * Formulas are cached, so each distinct condition is parsed only once as long as it stays in the cache.
      * @param condition The condition of a preprocessor annotation.
-     * @return The formula of the condition.
+     * @return The formula of the condition, which is owned by the caller.
      *         If no such formula could be parsed, returns a Literal with the condition as name.
      */
     public Node parseCondition(String condition) {
+        return conditionCache.get(condition, this::parseUncached, conditionStatistics.lookups);
+    }
+
+    private Node parseUncached(String condition) {
         Node formula = formulaParser.parse(condition);
 
         if (formula == null) {
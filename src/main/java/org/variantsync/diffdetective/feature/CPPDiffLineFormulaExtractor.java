@@ -2,6 +2,7 @@ package org.variantsync.diffdetective.feature;
 
 import org.variantsync.diffdetective.diff.difftree.parse.IllFormedAnnotationException;
 
+import java.util.Arrays;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -11,14 +12,68 @@ import java.util.regex.Pattern;
  * "A || B". The extractor detects if, ifdef, ifndef and elif annotations.
  * (Other annotations do not have expressions.)
  * The given pre processor statement might also a line in a diff (i.e., preceeded by a - or +).
+ * <p>
+ * The extraction scans the annotation twice: once to remove comments, whitespace, and <code>defined</code>
+ * (before {@link #resolveFeatureMacroFunctions resolving feature macros}) and once to apply the
+ * {@link BooleanAbstraction boolean abstraction} of arithmetics, brackets, and function calls.
+ * Both scans write to a reusable buffer, so apart from the result only the input of
+ * {@link #resolveFeatureMacroFunctions} is allocated.
+ * The result is the same as applying the regular expressions of {@link BooleanAbstraction} in sequence.
  * @author Paul Bittner, Sören Viegener, Benjamin Moosherr
  */
 public class CPPDiffLineFormulaExtractor {
     // ^[+-]?\s*#\s*(if|ifdef|ifndef|elif)(\s+(.*)|\((.*)\))$
     private static final String CPP_ANNOTATION_REGEX = "^[+-]?\\s*#\\s*(if|ifdef|ifndef|elif)(\\s+(.*)|\\((.*)\\))$";
+    /**
+     * Only used for lines containing line terminators, which are handled specially by regular expressions.
+     */
     private static final Pattern CPP_ANNOTATION_REGEX_PATTERN = Pattern.compile(CPP_ANNOTATION_REGEX);
-    private static final Pattern COMMENT_PATTERN = Pattern.compile("/\\*.*\\*/");
-    private static final Pattern DEFINED_PATTERN = Pattern.compile("defined\\(([^)]*)\\)");
+    /**
+     * The keywords of {@link #CPP_ANNOTATION_REGEX} in the order in which the regex tries them.
+     */
+    private static final String[] KEYWORDS = {"if", "ifdef", "ifndef", "elif"};
+    private static final String DEFINED = "defined(";
+    private static final String COMMA_REPLACEMENT = "__";
+    private static final String CALL_REPLACEMENT = "__";
+    private static final long NO_CONDITION = -1;
+    private static final long NEEDS_REGEX = -2;
+
+    /**
+     * Flag of an open bracket that directly follows a word, so it might be the bracket of a call.
+     */
+    private static final int CALLABLE = 1;
+    /**
+     * Flag of an open bracket that is only followed by word characters so far.
+     */
+    private static final int BRACKET_PENDING = 2;
+
+    private static final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+
+    /**
+     * Memory reused by all extractions of a thread.
+     * Each bracket that was not closed yet has a frame consisting of its position in the text, the number of
+     * non-word characters within the brackets, and its flags.
+     */
+    private static final class Buffers {
+        private final StringBuilder text = new StringBuilder();
+        private int[] frameStarts = new int[8];
+        private int[] frameNonWords = new int[8];
+        private int[] frameFlags = new int[8];
+        private int depth = 0;
+
+        private void push(int start, int flags) {
+            if (depth == frameStarts.length) {
+                final int capacity = 2 * depth;
+                frameStarts = Arrays.copyOf(frameStarts, capacity);
+                frameNonWords = Arrays.copyOf(frameNonWords, capacity);
+                frameFlags = Arrays.copyOf(frameFlags, capacity);
+            }
+            frameStarts[depth] = start;
+            frameNonWords[depth] = 0;
+            frameFlags[depth] = flags;
+            ++depth;
+        }
+    }
 
     /**
      * Resolves any macros in the given formula that are relevant for feature annotations.
@@ -38,41 +93,295 @@ public class CPPDiffLineFormulaExtractor {
      * @return The feature mapping as a String of the given line
      */
     public String extractFormula(final String line) throws IllFormedAnnotationException {
-        // TODO: There still regexes here in replaceAll that could be optimized by precompiling the regexes once.
-        final Matcher matcher = CPP_ANNOTATION_REGEX_PATTERN.matcher(line);
+        final long bounds = conditionBounds(line);
+        final String source;
+        final int from, to;
+        if (bounds == NO_CONDITION) {
+            throw IllFormedAnnotationException.IfWithoutCondition("Could not extract formula from line \""+ line + "\".");
+        } else if (bounds == NEEDS_REGEX) {
+            source = conditionWithRegex(line);
+            from = 0;
+            to = source.length();
+        } else {
+            source = line;
+            from = (int) (bounds >>> 32);
+            to = (int) bounds;
+        }
+
+        final Buffers buffers = CPPDiffLineFormulaExtractor.buffers.get();
+        final StringBuilder text = buffers.text;
+
+        text.setLength(0);
+        removeCommentsWhitespaceAndDefined(source, from, to, text);
+        final String resolved = resolveFeatureMacroFunctions(text.toString());
 
-        String fm;
-        if (matcher.find()) {
-            if (matcher.group(3) != null) {
-                fm = matcher.group(3);
-            } else {
-                fm = matcher.group(4);
+        text.setLength(0);
+        // negate for ifndef
+        final boolean negate = line.contains("ifndef");
+        if (negate) {
+            text.append("!(");
+        }
+        abstractArithmeticsAndCalls(resolved, buffers);
+        if (negate) {
+            text.append(')');
+        }
+
+        return text.toString();
+    }
+
+    /**
+     * Locates the condition of a preprocessor annotation like {@link #CPP_ANNOTATION_REGEX} but without a
+     * {@link Matcher}.
+     * @return the start of the condition in the upper and its end in the lower half,
+     *         {@link #NO_CONDITION} if the line is not a conditional annotation, or
+     *         {@link #NEEDS_REGEX} if the line contains a line terminator and has to be matched with the regex.
+     */
+    private static long conditionBounds(final String line) {
+        final int length = line.length();
+        for (int i = 0; i < length; ++i) {
+            final char c = line.charAt(i);
+            // The line terminators of java.util.regex, which cannot be matched by '.' and may precede '$'.
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return NEEDS_REGEX;
             }
-        } else {
+        }
+
+        int i = 0;
+        if (i < length && (line.charAt(i) == '+' || line.charAt(i) == '-')) {
+            ++i;
+        }
+        i = skipWhitespace(line, i, length);
+        if (i >= length || line.charAt(i) != '#') {
+            return NO_CONDITION;
+        }
+        i = skipWhitespace(line, i + 1, length);
+
+        for (final String keyword : KEYWORDS) {
+            if (!line.startsWith(keyword, i)) {
+                continue;
+            }
+
+            final int rest = i + keyword.length();
+            if (rest < length && isWhitespace(line.charAt(rest))) {
+                // \s+(.*)
+                return ((long) skipWhitespace(line, rest, length) << 32) | length;
+            }
+            if (rest < length - 1 && line.charAt(rest) == '(' && line.charAt(length - 1) == ')') {
+                // \((.*)\)
+                return ((long) (rest + 1) << 32) | (length - 1);
+            }
+        }
+
+        return NO_CONDITION;
+    }
+
+    private static String conditionWithRegex(final String line) throws IllFormedAnnotationException {
+        final Matcher matcher = CPP_ANNOTATION_REGEX_PATTERN.matcher(line);
+        if (!matcher.find()) {
             throw IllFormedAnnotationException.IfWithoutCondition("Could not extract formula from line \""+ line + "\".");
         }
+        return matcher.group(3) != null ? matcher.group(3) : matcher.group(4);
+    }
+
+    /**
+     * Writes the condition <code>source[from, to)</code> to <code>text</code> without
+     * <ul>
+     *     <li>everything after the first line comment (<code>//</code>),
+     *     <li>everything from the first <code>/*</code> to the last <code>*&#47;</code>,
+     *     <li>whitespace,
+     *     <li>and <code>defined(...)</code> around macro names.
+     * </ul>
+     */
+    private static void removeCommentsWhitespaceAndDefined(final String source, int from, int to, final StringBuilder text) {
+        final int lineComment = source.indexOf("//", from);
+        final int end = lineComment < 0 || lineComment + 2 > to ? to : lineComment;
 
-        // remove comments
-        fm = fm.split("//")[0];
-        fm = COMMENT_PATTERN.matcher(fm).replaceAll("");
+        int commentStart = source.indexOf("/*", from);
+        int commentEnd = -1;
+        if (commentStart >= 0 && commentStart + 2 <= end) {
+            final int lastClose = source.lastIndexOf("*/", end - 2);
+            if (lastClose >= commentStart + 2) {
+                commentEnd = lastClose + 2;
+            }
+        }
+        if (commentEnd < 0) {
+            commentStart = end;
+            commentEnd = end;
+        }
 
-        // remove whitespace
-        fm = fm.replaceAll("\\s", "");
+        // The start of the first "defined(" that was not closed yet, if any.
+        int defined = -1;
+        // Replacements are not searched for further occurrences of "defined(".
+        int searchDefinedFrom = 0;
+        for (int i = from; i < end; ++i) {
+            if (i == commentStart) {
+                i = commentEnd - 1;
+                continue;
+            }
 
-        // remove defined()
-        fm = DEFINED_PATTERN.matcher(fm).replaceAll("$1");
-        fm = fm.replaceAll("defined ", " ");
-        fm = resolveFeatureMacroFunctions(fm);
+            final char c = source.charAt(i);
+            if (isWhitespace(c)) {
+                continue;
+            }
 
-        ////// abstract arithmetics
-        fm = BooleanAbstraction.arithmetics(fm);
-        fm = BooleanAbstraction.functionCalls(fm);
+            if (c == ')' && defined >= 0) {
+                text.delete(defined, defined + DEFINED.length());
+                defined = -1;
+                searchDefinedFrom = text.length();
+                continue;
+            }
 
-        // negate for ifndef
-        if (line.contains("ifndef")) {
-            fm = "!(" + fm + ")";
+            text.append(c);
+            if (c == '(' && defined < 0 && endsWithDefined(text, searchDefinedFrom)) {
+                defined = text.length() - DEFINED.length();
+            }
         }
+    }
+
+    private static boolean endsWithDefined(final StringBuilder text, int from) {
+        final int start = text.length() - DEFINED.length();
+        if (start < from) {
+            return false;
+        }
+        for (int i = 0; i < DEFINED.length(); ++i) {
+            if (text.charAt(start + i) != DEFINED.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        return fm;
+    /**
+     * Appends the {@link BooleanAbstraction boolean abstraction} of the given formula to the text of the given
+     * buffers.
+     * The result is the same as {@link BooleanAbstraction#arithmetics} followed by
+     * {@link BooleanAbstraction#functionCalls}:
+     * <ol>
+     *     <li>operators are replaced by their abstraction (e.g., <code>&gt;=</code> by {@link BooleanAbstraction#GEQ}),
+     *     <li>brackets around a (possibly empty) word are replaced by {@link BooleanAbstraction#BRACKET_L} and
+     *         {@link BooleanAbstraction#BRACKET_R},
+     *     <li>commas are replaced by <code>__</code>,
+     *     <li>and calls of a word with a word as argument are inlined as long as there are such calls.
+     * </ol>
+     * Words consist of the characters matched by <code>\w</code> in regular expressions.
+     * Calls are inlined from the innermost to the outermost one with a stack of the brackets that are not
+     * closed yet.
+     */
+    private static void abstractArithmeticsAndCalls(final String formula, final Buffers buffers) {
+        final StringBuilder text = buffers.text;
+        buffers.depth = 0;
+        final int length = formula.length();
+        for (int i = 0; i < length; ++i) {
+            final char c = formula.charAt(i);
+            final char next = i + 1 < length ? formula.charAt(i + 1) : '\0';
+            final char afterNext = i + 2 < length ? formula.charAt(i + 2) : '\0';
+            switch (c) {
+                case '=' -> {
+                    if (next == '=') {
+                        text.append(BooleanAbstraction.EQ);
+                        ++i;
+                    } else {
+                        emit(c, buffers);
+                    }
+                }
+                // "==" is replaced before ">=" and "<=", so an '=' followed by another '=' does not belong to them.
+                case '>' -> {
+                    if (next == '=' && afterNext != '=') {
+                        text.append(BooleanAbstraction.GEQ);
+                        ++i;
+                    } else {
+                        text.append(BooleanAbstraction.GT);
+                    }
+                }
+                case '<' -> {
+                    if (next == '=' && afterNext != '=') {
+                        text.append(BooleanAbstraction.LEQ);
+                        ++i;
+                    } else {
+                        text.append(BooleanAbstraction.LT);
+                    }
+                }
+                case '+' -> text.append(BooleanAbstraction.ADD);
+                case '-' -> text.append(BooleanAbstraction.SUB);
+                case '*' -> text.append(BooleanAbstraction.MUL);
+                case '/' -> text.append(BooleanAbstraction.DIV);
+                case '%' -> text.append(BooleanAbstraction.MOD);
+                case ',' -> {
+                    // Commas are no word characters when brackets are abstracted but their replacement is one
+                    // when calls are inlined.
+                    if (buffers.depth > 0) {
+                        buffers.frameFlags[buffers.depth - 1] &= ~BRACKET_PENDING;
+                    }
+                    text.append(COMMA_REPLACEMENT);
+                }
+                case '(' -> {
+                    if (buffers.depth > 0) {
+                        buffers.frameFlags[buffers.depth - 1] &= ~BRACKET_PENDING;
+                    }
+                    final int start = text.length();
+                    final boolean callable = start > 0 && isWordCharacter(text.charAt(start - 1));
+                    text.append(c);
+                    buffers.push(start, BRACKET_PENDING | (callable ? CALLABLE : 0));
+                }
+                case ')' -> close(buffers);
+                default -> emit(c, buffers);
+            }
+        }
+    }
+
+    /**
+     * Handles a closing bracket, which closes the innermost open bracket, if any.
+     */
+    private static void close(final Buffers buffers) {
+        final StringBuilder text = buffers.text;
+        if (buffers.depth == 0) {
+            text.append(')');
+            return;
+        }
+
+        --buffers.depth;
+        final int start = buffers.frameStarts[buffers.depth];
+        final int flags = buffers.frameFlags[buffers.depth];
+        if ((flags & BRACKET_PENDING) != 0) {
+            text.replace(start, start + 1, BooleanAbstraction.BRACKET_L);
+            text.append(BooleanAbstraction.BRACKET_R);
+        } else if ((flags & CALLABLE) != 0 && buffers.frameNonWords[buffers.depth] == 0) {
+            text.replace(start, start + 1, CALL_REPLACEMENT);
+        } else {
+            text.append(')');
+            if (buffers.depth > 0) {
+                // The brackets remain, so the enclosing brackets can never be inlined.
+                ++buffers.frameNonWords[buffers.depth - 1];
+            }
+        }
+    }
+
+    private static void emit(char c, final Buffers buffers) {
+        buffers.text.append(c);
+        if (buffers.depth > 0 && !isWordCharacter(c)) {
+            buffers.frameFlags[buffers.depth - 1] &= ~BRACKET_PENDING;
+            ++buffers.frameNonWords[buffers.depth - 1];
+        }
+    }
+
+    private static int skipWhitespace(final String line, int i, int to) {
+        while (i < to && isWhitespace(line.charAt(i))) {
+            ++i;
+        }
+        return i;
+    }
+
+    /**
+     * Returns true iff the given character is matched by <code>\s</code> in a {@link Pattern}.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Returns true iff the given character is matched by <code>\w</code> in a {@link Pattern}.
+     */
+    private static boolean isWordCharacter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
     }
 }
@@ -0,0 +1,81 @@
+package org.variantsync.diffdetective.feature;
+
+import org.prop4j.Node;
+import org.variantsync.diffdetective.metadata.CacheStatistics;
+import org.variantsync.diffdetective.util.StripedLruCache;
+
+import java.util.function.Function;
+
+/**
+ * A bounded cache from conditions of preprocessor annotations to their parsed formulas.
+ * The same conditions (e.g., <code>CONFIG_SMP</code> or <code>defined(__KERNEL__)</code>) occur in many commits,
+ * so most of them have to be parsed only once per run.
+ * Conditions are expected to be normalized by a {@link CPPDiffLineFormulaExtractor} (e.g., without whitespace
+ * or comments) such that equivalent annotations share a cache entry.
+ * <p>
+ * Formulas are mutable (e.g., {@link org.variantsync.diffdetective.util.fide.FixTrueFalse#EliminateTrueAndFalseInplace}
+ * modifies its argument).
+ * Thus, the cache keeps a private copy of each formula and hands out a fresh {@link Node#clone() deep copy}
+ * on each lookup, which the caller may modify freely.
+ * <p>
+ * The cache holds at most a fixed number of formulas and is safe to be shared between threads.
+ * See {@link StripedLruCache} for how formulas are evicted.
+ */
+public class ConditionCache {
+    /**
+     * Default number of formulas a cache can hold.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private final StripedLruCache<String, Node> formulas;
+
+    /**
+     * Creates a cache with {@link #DEFAULT_CAPACITY} and {@link StripedLruCache#DEFAULT_NUMBER_OF_STRIPES}.
+     */
+    public ConditionCache() {
+        this(DEFAULT_CAPACITY, StripedLruCache.DEFAULT_NUMBER_OF_STRIPES);
+    }
+
+    /**
+     * Creates a cache that holds at most the given number of formulas.
+     * @param capacity The maximum number of cached formulas.
+     *                 A capacity smaller than the number of stripes disables caching.
+     * @param numberOfStripes Number of independently locked parts of this cache.
+     *                        Has to be a power of two.
+     */
+    public ConditionCache(int capacity, int numberOfStripes) {
+        this.formulas = new StripedLruCache<>(capacity, numberOfStripes, formula -> 1);
+    }
+
+    /**
+     * Returns the formula of the given condition.
+     * If the condition is not cached yet, it is parsed with the given parser and cached afterwards.
+     * The returned formula is never shared, so the caller may modify it.
+     *
+     * @param condition The normalized condition to parse.
+     * @param parser Parses the condition in case it is not cached. Must not return <code>null</code>.
+     * @param statistics Records the outcome of this lookup.
+     * @return A formula of the given condition that is owned by the caller.
+     */
+    public Node get(final String condition, final Function<String, Node> parser, final CacheStatistics.Recorder statistics) {
+        final Node cached = formulas.get(condition, statistics);
+        if (cached != null) {
+            return cached.clone();
+        }
+
+        // Do not block other threads while parsing.
+        final Node formula = parser.apply(condition);
+        if (formulas.canHold(1)) {
+            // Another thread might have parsed the same condition in the meantime, which does not matter.
+            formulas.putIfAbsent(condition, formula.clone(), statistics);
+        }
+        return formula;
+    }
+
+    /**
+     * Removes all formulas from this cache.
+     */
+    public void clear() {
+        formulas.clear();
+    }
+}
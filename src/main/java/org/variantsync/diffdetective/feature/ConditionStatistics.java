@@ -0,0 +1,89 @@
+package org.variantsync.diffdetective.feature;
+
+import org.variantsync.diffdetective.analysis.MetadataKeys;
+import org.variantsync.diffdetective.metadata.CacheStatistics;
+import org.variantsync.diffdetective.metadata.Metadata;
+import org.variantsync.functjonal.category.InplaceSemigroup;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the lookups in a {@link ConditionCache} and the conditions whose parsing was deferred until their
+ * formula was requested.
+ * @see Recorder
+ */
+public class ConditionStatistics implements Metadata<ConditionStatistics> {
+    /**
+     * Inplace semigroup that sums all counts and writes them to the first given statistics.
+     */
+    public static final InplaceSemigroup<ConditionStatistics> ISEMIGROUP = (a, b) -> {
+        a.lookups.append(b.lookups);
+        a.deferredConditions += b.deferredConditions;
+        a.parsedDeferredConditions += b.parsedDeferredConditions;
+    };
+
+    /**
+     * Lookups of conditions in the {@link ConditionCache}.
+     */
+    public final CacheStatistics lookups = new CacheStatistics(MetadataKeys.CONDITION_CACHE);
+
+    /**
+     * Number of conditions that were only parsed when their formula was requested.
+     * @see CPPAnnotationParser#deferCondition
+     */
+    public long deferredConditions = 0;
+
+    /**
+     * Number of {@link #deferredConditions deferred conditions} whose formula was requested.
+     * The difference to {@link #deferredConditions} is the number of parses that were avoided.
+     * @see CPPAnnotationParser#parseDeferredCondition
+     */
+    public long parsedDeferredConditions = 0;
+
+    @Override
+    public LinkedHashMap<String, Object> snapshot() {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>(lookups.snapshot());
+        map.put(MetadataKeys.DEFERRED_CONDITIONS, deferredConditions);
+        map.put(MetadataKeys.PARSED_DEFERRED_CONDITIONS, parsedDeferredConditions);
+        return map;
+    }
+
+    @Override
+    public InplaceSemigroup<ConditionStatistics> semigroup() {
+        return ISEMIGROUP;
+    }
+
+    /**
+     * Records lookups in a {@link ConditionCache} and deferred conditions.
+     * Conditions are usually parsed on demand (see {@link org.variantsync.diffdetective.diff.difftree.DiffNode#getDirectFeatureMapping()}),
+     * possibly by other threads than the one that parsed the diff.
+     * Thus, a recorder is bound to a {@link CPPAnnotationParser#reportingTo parser} instead of a thread
+     * and may be updated by multiple threads at once.
+     */
+    public static class Recorder {
+        final CacheStatistics.Recorder lookups = new CacheStatistics.Recorder(MetadataKeys.CONDITION_CACHE);
+        private final LongAdder deferredConditions = new LongAdder();
+        private final LongAdder parsedDeferredConditions = new LongAdder();
+
+        void defer() {
+            deferredConditions.increment();
+        }
+
+        void parseDeferred() {
+            parsedDeferredConditions.increment();
+        }
+
+        /**
+         * Returns the lookups and deferred conditions recorded so far.
+         * Events that happen concurrently to this method might be missing.
+         */
+        public ConditionStatistics getStatistics() {
+            final ConditionStatistics statistics = new ConditionStatistics();
+            statistics.lookups.append(lookups.getStatistics());
+            statistics.deferredConditions = deferredConditions.sum();
+            statistics.parsedDeferredConditions = parsedDeferredConditions.sum();
+            return statistics;
+        }
+    }
+}
@@ -5,6 +5,10 @@ import net.lingala.zip4j.exception.ZipException;
 import org.apache.commons.io.FilenameUtils;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.RefUpdate;
 import org.tinylog.Logger;
 import org.variantsync.diffdetective.util.Assert;
 import org.variantsync.diffdetective.util.FileUtils;
@@ -13,6 +17,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 
 /**
  * Class for loading Git repositories from several sources.
@@ -43,6 +48,20 @@ public class GitLoader {
      * @return a Git object of the repository
      */
     public static Git fromRemote(Path localPath, URI remoteURI) {
+        return fromRemote(localPath, remoteURI, false);
+    }
+
+    /**
+     * Loads a Git repository from a remote repository.
+     * A mirror is a bare clone of all refs of the remote (as done by <code>git clone --mirror</code>).
+     * It has no working tree so that no files have to be checked out, which saves a lot of time
+     * and disk space for large repositories.
+     * @param localPath directory where the remote repository is cloned to
+     * @param remoteURI URI of the remote git repository
+     * @param mirror whether to clone a bare mirror instead of a repository with a working tree
+     * @return a Git object of the repository
+     */
+    public static Git fromRemote(Path localPath, URI remoteURI, boolean mirror) {
         if (!Files.exists(localPath)) {
             Assert.assertTrue(localPath.toFile().mkdirs(), "Could not create directory for repository at " + localPath + "!");
         }
@@ -60,6 +79,7 @@ public class GitLoader {
                     .cloneRepository()
                     .setURI(remoteURI.toString())
                     .setDirectory(localPath.toFile())
+                    .setMirror(mirror)
                     .setProgressMonitor(new LoggingProgressMonitor())
                     .call();
         } catch (GitAPIException e) {
@@ -96,4 +116,150 @@ public class GitLoader {
 
         return fromDirectory(unzippedRepoName);
     }
+
+    /**
+     * Loads a Git repository from a pack file, its index (a file with the same name but the extension
+     * <code>idx</code>), and its refs (a file with the same name but the extension <code>refs</code>).
+     * The refs have to be given in the format of <code>git show-ref --head</code>, i.e., one object id
+     * followed by the name of a ref per line.
+     * The format of <code>packed-refs</code> files is accepted as well.
+     * A bare repository is created in a directory put beside the pack and named after the pack with the
+     * extension <code>git</code>.
+     * The repository is built in a temporary directory that is only renamed once the repository is complete,
+     * so a failed attempt does not leave a broken repository behind.
+     * The pack and its index are linked into the new repository if possible, so they are neither extracted
+     * nor copied.
+     * HEAD points to the commit of the ref <code>HEAD</code> if there is one and to the first ref otherwise.
+     *
+     * @param pathToPack path to a pack file
+     * @return a Git object of the repository
+     */
+    public static Git fromPack(Path pathToPack) {
+        return fromPack(pathToPack, null);
+    }
+
+    /**
+     * The same as {@link #fromPack(Path)} but HEAD points to the given commit.
+     * If a tip is given, the pack does not need to be shipped with its refs.
+     *
+     * @param pathToPack path to a pack file
+     * @param tip the commit HEAD should point to or null to import the refs shipped with the pack
+     * @return a Git object of the repository
+     */
+    public static Git fromPack(Path pathToPack, AnyObjectId tip) {
+        Assert.assertTrue(Files.isRegularFile(pathToPack), "Given path " + pathToPack + " is not a file!");
+        final String packWithoutExtension = FilenameUtils.removeExtension(pathToPack.toString());
+        final Path pathToIndex = Path.of(packWithoutExtension + ".idx");
+        Assert.assertTrue(Files.isRegularFile(pathToIndex), "Could not find index " + pathToIndex + " of pack " + pathToPack + "!");
+        final Path pathToRefs = Path.of(packWithoutExtension + ".refs");
+        Assert.assertTrue(tip != null || Files.isRegularFile(pathToRefs), "Could not find refs " + pathToRefs + " of pack " + pathToPack + "!");
+
+        final Path repoDir = Path.of(packWithoutExtension + ".git");
+
+        // If the repository was already created, use it.
+        if (Files.exists(repoDir) && !FileUtils.tryIsEmptyDirectory(repoDir)) {
+            return fromDirectory(repoDir);
+        }
+
+        final Path temporaryRepoDir = Path.of(packWithoutExtension + ".git.tmp");
+        Git git = null;
+        try {
+            Logger.info("Creating repository {} from pack {}.", repoDir, pathToPack);
+            // Remove the leftovers of an attempt that was interrupted.
+            org.apache.commons.io.FileUtils.deleteDirectory(temporaryRepoDir.toFile());
+            git = Git.init().setBare(true).setDirectory(temporaryRepoDir.toFile()).call();
+
+            // JGit only finds packs named pack-*.pack in the pack directory of a repository.
+            final Path packDir = temporaryRepoDir.resolve("objects").resolve("pack");
+            final String packName = FilenameUtils.getBaseName(pathToPack.toString());
+            final String packBaseName = packName.startsWith("pack-") ? packName : "pack-" + packName;
+            linkOrCopy(pathToIndex, packDir.resolve(packBaseName + ".idx"));
+            linkOrCopy(pathToPack, packDir.resolve(packBaseName + ".pack"));
+
+            if (tip == null) {
+                importRefs(git.getRepository(), pathToRefs);
+            } else {
+                updateRef(git.getRepository(), git.getRepository().getFullBranch(), tip);
+            }
+            git.close();
+            git = null;
+
+            Files.deleteIfExists(repoDir);
+            Files.move(temporaryRepoDir, repoDir, StandardCopyOption.ATOMIC_MOVE);
+            return fromDirectory(repoDir);
+        } catch (GitAPIException | IOException e) {
+            Logger.warn(e, "Failed to create git repo from pack {}", pathToPack);
+            if (git != null) {
+                git.close();
+            }
+            try {
+                org.apache.commons.io.FileUtils.deleteDirectory(temporaryRepoDir.toFile());
+            } catch (IOException deletionFailure) {
+                Logger.warn(deletionFailure, "Failed to delete {}", temporaryRepoDir);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Creates a hard link at the given link to the given existing file or copies the file if linking is not
+     * possible (e.g., because both paths are on different file systems).
+     */
+    private static void linkOrCopy(final Path existing, final Path link) throws IOException {
+        try {
+            Files.createLink(link, existing);
+        } catch (IOException | UnsupportedOperationException e) {
+            Logger.debug("Could not link {}. Copying it instead.", existing);
+            Files.copy(existing, link);
+        }
+    }
+
+    /**
+     * Creates all refs listed in the given file in the given repository.
+     * The current branch points to the commit of the ref <code>HEAD</code> or, if there is no such ref and
+     * the current branch is not listed, to the commit of the first ref.
+     * @see #fromPack(Path)
+     */
+    private static void importRefs(final org.eclipse.jgit.lib.Repository repository, final Path pathToRefs) throws IOException {
+        ObjectId head = null;
+        ObjectId firstRef = null;
+        for (final String line : Files.readAllLines(pathToRefs)) {
+            // skip comments and peeled tags of packed-refs files
+            if (line.isBlank() || line.startsWith("#") || line.startsWith("^")) {
+                continue;
+            }
+
+            final String[] idAndName = line.trim().split("\\s+", 2);
+            if (idAndName.length != 2 || !ObjectId.isId(idAndName[0])) {
+                throw new IOException("Invalid ref \"" + line + "\" in " + pathToRefs);
+            }
+
+            final ObjectId id = ObjectId.fromString(idAndName[0]);
+            if (Constants.HEAD.equals(idAndName[1])) {
+                head = id;
+            } else {
+                updateRef(repository, idAndName[1], id);
+                if (firstRef == null) {
+                    firstRef = id;
+                }
+            }
+        }
+
+        if (head != null) {
+            updateRef(repository, repository.getFullBranch(), head);
+        } else if (firstRef == null) {
+            Logger.warn("No refs found in {}.", pathToRefs);
+        } else if (repository.resolve(Constants.HEAD) == null) {
+            updateRef(repository, repository.getFullBranch(), firstRef);
+        }
+    }
+
+    private static void updateRef(final org.eclipse.jgit.lib.Repository repository, final String ref, final AnyObjectId id) throws IOException {
+        final RefUpdate update = repository.updateRef(ref);
+        update.setNewObjectId(id);
+        final RefUpdate.Result result = update.forceUpdate();
+        if (result != RefUpdate.Result.NEW && result != RefUpdate.Result.FORCED && result != RefUpdate.Result.NO_CHANGE) {
+            throw new IOException("Could not create " + ref + ": " + result);
+        }
+    }
 }
@@ -0,0 +1,155 @@
+package org.variantsync.diffdetective.metadata;
+
+import org.variantsync.functjonal.category.InplaceSemigroup;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the lookups in a cache.
+ * The entries of a {@link #snapshot() snapshot} are prefixed with the name of the cache.
+ * @see Recorder
+ */
+public class CacheStatistics implements Metadata<CacheStatistics> {
+    /**
+     * Suffix of the number of {@link #hits}.
+     */
+    public static final String HITS = " hits";
+    /**
+     * Suffix of the number of {@link #misses}.
+     */
+    public static final String MISSES = " misses";
+    /**
+     * Suffix of the number of {@link #evictions}.
+     */
+    public static final String EVICTIONS = " evictions";
+    /**
+     * Suffix of the {@link #getHitRate() hit rate}.
+     */
+    public static final String HIT_RATE = " hit rate";
+
+    /**
+     * Inplace semigroup that sums all counts and writes them to the first given statistics.
+     */
+    public static final InplaceSemigroup<CacheStatistics> ISEMIGROUP = (a, b) -> {
+        a.hits += b.hits;
+        a.misses += b.misses;
+        a.evictions += b.evictions;
+    };
+
+    private final String name;
+
+    /**
+     * Number of values that were found in the cache.
+     */
+    public long hits = 0;
+
+    /**
+     * Number of values that had to be computed because they were not cached.
+     */
+    public long misses = 0;
+
+    /**
+     * Number of values that were removed from the cache to make space for new values.
+     */
+    public long evictions = 0;
+
+    /**
+     * Creates empty statistics for the cache with the given name.
+     * @param name Prefix of the entries of a {@link #snapshot() snapshot} (e.g., <code>blob cache</code>).
+     */
+    public CacheStatistics(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the fraction of lookups that were hits.
+     * @return a value between 0 and 1 or 0 if there were no lookups.
+     */
+    public double getHitRate() {
+        final long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Parses an entry of a {@link #snapshot() snapshot} of statistics with the same name.
+     * @param key The key of the entry.
+     * @param value The value of the entry.
+     * @return true iff the given entry belongs to these statistics.
+     */
+    public boolean importEntry(final String key, final String value) {
+        if (!key.startsWith(name)) {
+            return false;
+        }
+
+        switch (key.substring(name.length())) {
+            case HITS -> hits = Long.parseLong(value);
+            case MISSES -> misses = Long.parseLong(value);
+            case EVICTIONS -> evictions = Long.parseLong(value);
+            case HIT_RATE -> { /* Do nothing because this value is derived. */ }
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public LinkedHashMap<String, Object> snapshot() {
+        final LinkedHashMap<String, Object> map = new LinkedHashMap<>();
+        map.put(name + HITS, hits);
+        map.put(name + MISSES, misses);
+        map.put(name + EVICTIONS, evictions);
+        map.put(name + HIT_RATE, getHitRate());
+        return map;
+    }
+
+    @Override
+    public InplaceSemigroup<CacheStatistics> semigroup() {
+        return ISEMIGROUP;
+    }
+
+    /**
+     * Records lookups in a cache.
+     * A recorder may be updated by multiple threads at once, so all threads working for the same
+     * analysis task can report to the same recorder.
+     */
+    public static class Recorder {
+        private final String name;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        /**
+         * Creates a recorder for the cache with the given name.
+         * @see CacheStatistics#CacheStatistics(String)
+         */
+        public Recorder(final String name) {
+            this.name = name;
+        }
+
+        public void hit() {
+            hits.increment();
+        }
+
+        public void miss() {
+            misses.increment();
+        }
+
+        public void evict() {
+            evictions.increment();
+        }
+
+        /**
+         * Returns the lookups recorded so far.
+         * Lookups that are performed concurrently to this method might be missing.
+         */
+        public CacheStatistics getStatistics() {
+            final CacheStatistics statistics = new CacheStatistics(name);
+            statistics.hits = hits.sum();
+            statistics.misses = misses.sum();
+            statistics.evictions = evictions.sum();
+            return statistics;
+        }
+    }
+}
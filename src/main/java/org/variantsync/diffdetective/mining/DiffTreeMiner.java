@@ -173,7 +173,7 @@ public class DiffTreeMiner {
                 HistoryAnalysis.COMMITS_TO_PROCESS_PER_THREAD_DEFAULT,
                 Mine(),
                 repoPostProcessing);
-        analysis.runAsync();
+        analysis.runInterleaved();
         Logger.info("Done");
 
         final String logFile = "log.txt";
@@ -4,6 +4,7 @@ import org.eclipse.jgit.revwalk.RevCommit;
 import org.tinylog.Logger;
 import org.variantsync.diffdetective.analysis.*;
 import org.variantsync.diffdetective.diff.CommitDiff;
+import org.variantsync.diffdetective.diff.GitDiffer;
 import org.variantsync.diffdetective.diff.PatchDiff;
 import org.variantsync.diffdetective.diff.difftree.DiffTree;
 import org.variantsync.diffdetective.diff.difftree.serialize.DiffTreeLineGraphExportOptions;
@@ -37,74 +38,83 @@ public class MiningTask extends CommitHistoryAnalysisTask {
 
         totalTime.start();
 
-        for (final RevCommit commit : options.commits()) {
-            commitProcessTimer.start();
-            final CommitDiffResult commitDiffResult = options.differ().createCommitDiff(commit);
+        try (final GitDiffer.Session session = options.differ().openSession()) {
+            for (final RevCommit commit : options.commits()) {
+                commitProcessTimer.start();
+                final CommitDiffResult commitDiffResult = session.createCommitDiff(commit);
 
-            miningResult.reportDiffErrors(commitDiffResult.errors());
-            if (commitDiffResult.diff().isEmpty()) {
-                Logger.debug("found commit that failed entirely and was not filtered because:\n{}", commitDiffResult.errors());
-                continue;
-            }
-
-            /*
-             * We export all difftrees that match our filter criteria (e.g., has more than one elementary pattern).
-             * However, we count elementary patterns of all DiffTrees, even those that are not exported to Linegraph.
-             */
-            final CommitDiff commitDiff = commitDiffResult.diff().get();
-            final StringBuilder lineGraph = new StringBuilder();
-            miningResult.append(LineGraphExport.toLineGraphFormat(commitDiff, lineGraph, options.exportOptions()));
-            options.analysisStrategy().onCommit(commitDiff, lineGraph.toString());
-            options.exportOptions().treeFilter().resetExplanations();
-
-            // Count elementary patterns
-            int numDiffTrees = 0;
-            for (final PatchDiff patch : commitDiff.getPatchDiffs()) {
-                final PatchStatistics thisPatchesStatistics = new PatchStatistics(patch, ProposedElementaryPatterns.Instance);
-
-                if (patch.isValid()) {
-                    final DiffTree t = patch.getDiffTree();
-                    DiffTreeTransformer.apply(exportOptions.treePreProcessing(), t);
-                    t.assertConsistency();
-
-                    if (!exportOptions.treeFilter().test(t)) {
-                        continue;
-                    }
+                miningResult.reportDiffErrors(commitDiffResult.errors());
+                if (commitDiffResult.diff().isEmpty()) {
+                    Logger.debug("found commit that failed entirely and was not filtered because:\n{}", commitDiffResult.errors());
+                    continue;
+                }
 
-                    t.forAll(node -> {
-                        if (node.isCode()) {
-                            final ElementaryPattern nodePattern = ProposedElementaryPatterns.Instance.match(node);
-                            miningResult.elementaryPatternCounts.reportOccurrenceFor(
-                                    nodePattern,
-                                    commitDiff
-                            );
-                            thisPatchesStatistics.elementaryPatternCount().increment(nodePattern);
+                /*
+                 * We export all difftrees that match our filter criteria (e.g., has more than one elementary pattern).
+                 * However, we count elementary patterns of all DiffTrees, even those that are not exported to Linegraph.
+                 */
+                final CommitDiff commitDiff = commitDiffResult.diff().get();
+                final StringBuilder lineGraph = new StringBuilder();
+                miningResult.append(options.cpuBoundWork().run(() -> LineGraphExport.toLineGraphFormat(commitDiff, lineGraph, options.exportOptions())));
+                options.analysisStrategy().onCommit(commitDiff, lineGraph.toString());
+                options.exportOptions().treeFilter().resetExplanations();
+
+                // Count elementary patterns
+                // Matching patterns is CPU-bound and might include SAT solving.
+                final int numDiffTrees = options.cpuBoundWork().run(() -> {
+                    int diffTrees = 0;
+                    for (final PatchDiff patch : commitDiff.getPatchDiffs()) {
+                        final PatchStatistics thisPatchesStatistics = new PatchStatistics(patch, ProposedElementaryPatterns.Instance);
+
+                        if (patch.isValid()) {
+                            final DiffTree t = patch.getDiffTree();
+                            DiffTreeTransformer.apply(exportOptions.treePreProcessing(), t);
+                            t.assertConsistency();
+
+                            if (!exportOptions.treeFilter().test(t)) {
+                                continue;
+                            }
+
+                            t.forAll(node -> {
+                                if (node.isCode()) {
+                                    final ElementaryPattern nodePattern = ProposedElementaryPatterns.Instance.match(node);
+                                    miningResult.elementaryPatternCounts.reportOccurrenceFor(
+                                            nodePattern,
+                                            commitDiff
+                                    );
+                                    thisPatchesStatistics.elementaryPatternCount().increment(nodePattern);
+                                }
+                            });
+
+                            ++diffTrees;
                         }
-                    });
-
-                    ++numDiffTrees;
-                }
 
-                patchStatistics.add(thisPatchesStatistics);
-            }
-            miningResult.exportedTrees += numDiffTrees;
-            miningResult.filterHits.append(new ExplainedFilterSummary(exportOptions.treeFilter()));
-            exportOptions.treeFilter().resetExplanations();
-
-            // Only consider non-empty commits
-            if (numDiffTrees > 0) {
-                final long commitTimeMS = commitProcessTimer.getPassedMilliseconds();
-                if (commitTimeMS > miningResult.max.milliseconds()) {
-                    miningResult.max.set(commitDiff.getCommitHash(), commitTimeMS);
-                }
-                if (commitTimeMS < miningResult.min.milliseconds()) {
-                    miningResult.min.set(commitDiff.getCommitHash(), commitTimeMS);
+                        patchStatistics.add(thisPatchesStatistics);
+                    }
+                    return diffTrees;
+                });
+                miningResult.exportedTrees += numDiffTrees;
+                miningResult.filterHits.append(new ExplainedFilterSummary(exportOptions.treeFilter()));
+                exportOptions.treeFilter().resetExplanations();
+
+                // Only consider non-empty commits
+                if (numDiffTrees > 0) {
+                    final long commitTimeMS = commitProcessTimer.getPassedMilliseconds();
+                    if (commitTimeMS > miningResult.max.milliseconds()) {
+                        miningResult.max.set(commitDiff.getCommitHash(), commitTimeMS);
+                    }
+                    if (commitTimeMS < miningResult.min.milliseconds()) {
+                        miningResult.min.set(commitDiff.getCommitHash(), commitTimeMS);
+                    }
+                    commitTimes.add(new CommitProcessTime(commitDiff.getCommitHash(), options.repository().getRepositoryName(), commitTimeMS));
+                    ++miningResult.exportedCommits;
+                } else {
+                    ++miningResult.emptyCommits;
                 }
-                commitTimes.add(new CommitProcessTime(commitDiff.getCommitHash(), options.repository().getRepositoryName(), commitTimeMS));
-                ++miningResult.exportedCommits;
-            } else {
-                ++miningResult.emptyCommits;
             }
+            miningResult.blobCacheStatistics.append(session.getBlobCacheStatistics());
+            miningResult.conditionStatistics.append(session.getConditionStatistics());
+            miningResult.commitsOverRenameLimit += session.getNumberOfCommitsOverRenameLimit();
         }
 
         options.analysisStrategy().end();
@@ -0,0 +1,84 @@
+package org.variantsync.diffdetective.parallel;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of threads that perform CPU-bound work at the same time.
+ * When tasks run on many more threads than there are processors (e.g., on one virtual thread per task) so that
+ * their I/O overlaps, their CPU-bound parts (e.g., parsing and SAT solving) should still be run by at most as many
+ * threads as there are processors.
+ * Otherwise, the operating system would constantly switch between threads.
+ * <p>
+ * The limit applies to all threads that run work with the same instance.
+ * Thus, an analysis creates its own instance and hands it to its tasks (e.g., via
+ * {@link org.variantsync.diffdetective.analysis.CommitHistoryAnalysisTask.Options#cpuBoundWork()}),
+ * so that concurrent analyses do not affect each other.
+ */
+public final class CpuBoundWork {
+    /**
+     * Runs all work immediately without any limit.
+     */
+    public static final CpuBoundWork UNLIMITED = new CpuBoundWork(null, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Work that may throw a checked exception.
+     * @param <T> The type of the result.
+     * @param <E> The type of the exception.
+     */
+    @FunctionalInterface
+    public interface Work<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private final Semaphore permits;
+    private final int parallelism;
+    /**
+     * Whether the current thread holds a permit.
+     * Nested CPU-bound work runs within the permit of the outer work.
+     */
+    private final ThreadLocal<Boolean> holdsPermit = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Limits the number of threads performing CPU-bound work with this instance at the same time to the
+     * given number.
+     * @param nThreads The maximum number of threads performing CPU-bound work at the same time.
+     */
+    public CpuBoundWork(int nThreads) {
+        this(new Semaphore(nThreads), nThreads);
+    }
+
+    private CpuBoundWork(final Semaphore permits, int parallelism) {
+        this.permits = permits;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the maximum number of threads performing CPU-bound work with this instance at the same time.
+     * If the work is not limited, the number of available processors is returned instead, because more threads
+     * would not speed up CPU-bound work.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Runs the given work as soon as the number of threads performing CPU-bound work is below the limit.
+     * @param work CPU-bound work to run.
+     * @return the result of the given work.
+     * @throws E if the given work throws.
+     */
+    public <T, E extends Exception> T run(final Work<T, E> work) throws E {
+        if (permits == null || holdsPermit.get()) {
+            return work.run();
+        }
+
+        permits.acquireUninterruptibly();
+        holdsPermit.set(true);
+        try {
+            return work.run();
+        } finally {
+            holdsPermit.set(false);
+            permits.release();
+        }
+    }
+}
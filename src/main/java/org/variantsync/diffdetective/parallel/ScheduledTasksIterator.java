@@ -1,37 +1,129 @@
 package org.variantsync.diffdetective.parallel;
 
+import java.util.ArrayDeque;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.Queue;
 import java.util.concurrent.*;
 
 /**
  * An iterator over the results of computations run in other threads.
- * The results of the given tasks can be received in the correct order using {@link next}. That
- * means the {@link next} method is deterministic if all tasks are deterministic.
+ * Depending on the {@link Order}, the results of the given tasks are received using {@link next} either
+ * in the order of the given tasks or in the order in which the tasks finish.
+ * In the former case, the {@link next} method is deterministic if all tasks are deterministic.
  *
- * <p>No extra thread for scheduling is used so new tasks are only scheduled if {@link next} is
- * called.
+ * <p>No extra thread for scheduling is used.
+ * Tasks are taken from the given iterator only by the thread that creates this iterator and calls
+ * {@link next}, and never while other threads wait for this thread.
+ * Thus, the given iterator does not need to be thread-safe and may compute its tasks lazily
+ * (e.g., by walking the history of a repository).
+ * Some tasks are taken in advance such that a thread that finishes a task can start the next one
+ * without waiting for a call to {@link next}.
  */
 public class ScheduledTasksIterator<T> implements Iterator<T>, AutoCloseable {
+    /**
+     * Orders in which the results of tasks can be retrieved.
+     */
+    public enum Order {
+        /**
+         * Results are returned in the order of the given tasks.
+         * If the next task in this order is slow, the results of later tasks have to be buffered.
+         * To bound the memory needed for these results, no new tasks are scheduled while this buffer is full.
+         */
+        SUBMISSION,
+        /**
+         * Results are returned as soon as their task finishes.
+         * In addition to the running tasks, as many tasks as there are threads are taken in advance, so all
+         * threads stay busy as long as there are tasks left, unless results are retrieved much slower than
+         * tasks finish.
+         * Use this order if the results are merged in a commutative way.
+         */
+        COMPLETION
+    }
+
     private final Iterator<? extends Callable<T>> remainingTasks;
-    private final LinkedList<Future<T>> futures;
+    private final Order order;
+    private final int nThreads;
+    /**
+     * Maximum number of tasks taken from {@link remainingTasks} whose results were not retrieved yet.
+     */
+    private final int maxUnretrievedTasks;
+    /**
+     * Tasks whose results were not retrieved yet in the order in which they were scheduled.
+     * Only used for {@link Order#SUBMISSION}.
+     */
+    private final LinkedList<Task> futures;
+    /**
+     * Finished tasks whose results were not retrieved yet in the order in which they finished.
+     * Only used for {@link Order#COMPLETION}.
+     */
+    private final BlockingQueue<Task> finishedTasks;
+    /**
+     * Tasks that were taken from {@link remainingTasks} but not started yet.
+     * Guarded by this iterator.
+     */
+    private final Queue<Task> pendingTasks;
     private final ExecutorService threadPool;
+    /**
+     * Guarded by this iterator.
+     */
+    private int runningTasks;
+    private int unretrievedTasks;
+    private RuntimeException schedulingFailure;
 
     /**
      * Starts scheduling {@code tasks} in {@code nThreads} other threads.
-     * The results of these tasks can be retrieved by calling {@link next}. The order of these
-     * results not deterministic and can't be assumed to be the same as in {@code tasks}.
+     * The results of these tasks can be retrieved by calling {@link next} in the given order.
      *
      * @param tasks the tasks which will be executed in other threads
      * @param nThreads the number of threads which work on {@code tasks} in parallel
+     * @param order the order in which results are retrieved
+     * @param maxBufferedResults the maximum number of finished tasks whose results are kept while waiting
+     *                           for the result of an earlier task if {@code order} is {@link Order#SUBMISSION}.
+     *                           Ignored for {@link Order#COMPLETION}.
      */
-    public ScheduledTasksIterator(final Iterator<? extends Callable<T>> tasks, final int nThreads) {
+    public ScheduledTasksIterator(final Iterator<? extends Callable<T>> tasks, final int nThreads, final Order order, final int maxBufferedResults) {
+        this(tasks, nThreads, order, maxBufferedResults, Executors.newFixedThreadPool(nThreads));
+    }
+
+    /**
+     * Starts scheduling {@code tasks} on the given executor.
+     * The results of these tasks can be retrieved by calling {@link next} in the given order.
+     * This iterator takes ownership of the executor and shuts it down when it is closed.
+     *
+     * @param tasks the tasks which will be executed in other threads
+     * @param nTasks the number of tasks that run in parallel.
+     *               The executor has to be able to run this many tasks at the same time.
+     * @param order the order in which results are retrieved
+     * @param maxBufferedResults the maximum number of finished tasks whose results are kept while waiting
+     *                           for the result of an earlier task if {@code order} is {@link Order#SUBMISSION}.
+     *                           Ignored for {@link Order#COMPLETION}.
+     * @param threadPool the executor that runs the tasks
+     * @see VirtualThreads#newThreadPerTaskExecutor()
+     */
+    public ScheduledTasksIterator(final Iterator<? extends Callable<T>> tasks, final int nTasks, final Order order, final int maxBufferedResults, final ExecutorService threadPool) {
         this.remainingTasks = tasks;
+        this.order = order;
+        this.nThreads = nTasks;
+        this.maxUnretrievedTasks = order == Order.SUBMISSION ? nTasks + maxBufferedResults : 2 * nTasks;
         this.futures = new LinkedList<>();
-        this.threadPool = Executors.newFixedThreadPool(nThreads);
-        for (int i = 0; i < nThreads; i++) {
-            scheduleNext();
-        }
+        this.finishedTasks = new LinkedBlockingQueue<>();
+        this.pendingTasks = new ArrayDeque<>();
+        this.threadPool = threadPool;
+        scheduleNext();
+    }
+
+    /**
+     * Starts scheduling {@code tasks} in {@code nThreads} other threads.
+     * The results of these tasks can be retrieved by calling {@link next} in the order of {@code tasks}.
+     * No task is scheduled while {@code nThreads} results wait to be retrieved.
+     *
+     * @param tasks the tasks which will be executed in other threads
+     * @param nThreads the number of threads which work on {@code tasks} in parallel
+     */
+    public ScheduledTasksIterator(final Iterator<? extends Callable<T>> tasks, final int nThreads) {
+        this(tasks, nThreads, Order.SUBMISSION, 0);
     }
 
     /**
@@ -45,42 +137,102 @@ public class ScheduledTasksIterator<T> implements Iterator<T>, AutoCloseable {
     }
 
     /**
-     * Schedule the next task on the thread pool and adds the result future to the {@code futures}
-     * queue.
+     * A task that starts the next pending task when it finishes.
+     */
+    private class Task extends FutureTask<T> {
+        private Task(final Callable<T> task) {
+            super(task);
+        }
+
+        @Override
+        protected void done() {
+            synchronized (ScheduledTasksIterator.this) {
+                --runningTasks;
+                if (order == Order.COMPLETION) {
+                    finishedTasks.add(this);
+                }
+                startPendingTasks();
+            }
+        }
+    }
+
+    /**
+     * Takes tasks from the given task iterator until no tasks are remaining or the results of too many
+     * tasks wait to be retrieved, and starts them as soon as a thread is available.
+     * Only invoked by the consuming thread and never while holding the lock of this iterator because
+     * taking a task may be slow.
+     * Failures of the given task iterator are rethrown by {@link next}.
      */
-    private synchronized void scheduleNext() {
-        if (this.remainingTasks.hasNext()) {
-            futures.add(threadPool.submit(remainingTasks.next()));
+    private void scheduleNext() {
+        try {
+            while (unretrievedTasks < maxUnretrievedTasks
+                    && !threadPool.isShutdown()
+                    && this.remainingTasks.hasNext()) {
+                final Task task = new Task(remainingTasks.next());
+                if (order == Order.SUBMISSION) {
+                    futures.add(task);
+                }
+                ++unretrievedTasks;
+
+                synchronized (this) {
+                    pendingTasks.add(task);
+                    startPendingTasks();
+                }
+            }
+        } catch (RuntimeException e) {
+            if (schedulingFailure == null) {
+                schedulingFailure = e;
+            }
+        }
+    }
+
+    /**
+     * Starts pending tasks on the thread pool until all threads are busy.
+     */
+    private synchronized void startPendingTasks() {
+        while (runningTasks < nThreads && !pendingTasks.isEmpty() && !threadPool.isShutdown()) {
+            ++runningTasks;
+            threadPool.execute(pendingTasks.remove());
         }
     }
 
     @Override
     public boolean hasNext() {
-        return !futures.isEmpty();
+        return unretrievedTasks > 0 || schedulingFailure != null;
     }
 
     /**
      * Waits for the next task and retrieves its result.
-     * The order of the results corresponds to the order of tasks given in the
-     * {@link ScheduledTasksIterator constructor}. Each call to {@code next} schedules a new task
-     * if any task is remaining.
+     * The order of the results is determined by the {@link Order} given in the
+     * {@link ScheduledTasksIterator constructor}.
+     * Has to be invoked by the thread that created this iterator.
      *
      * @return one result of a tasks given in {@link ScheduledTasksIterator}
      * @throws RuntimeException if a thread is interrupted or a task couldn't be executed
      */
     @Override
     public T next() {
-        scheduleNext();
+        if (schedulingFailure != null) {
+            throw schedulingFailure;
+        }
+        if (unretrievedTasks == 0) {
+            throw new NoSuchElementException();
+        }
+        final Task task = order == Order.SUBMISSION ? futures.removeFirst() : null;
+
         try {
-            return futures.removeFirst().get();
+            return (task == null ? finishedTasks.take() : task).get();
         } catch (final InterruptedException | ExecutionException e) {
             throw new RuntimeException(e);
+        } finally {
+            --unretrievedTasks;
+            scheduleNext();
         }
     }
 
     /** Stops all scheduled tasks and releases the used thread resources. */
     @Override
-    public void close() throws Exception {
+    public synchronized void close() throws Exception {
         threadPool.shutdown();
     }
 }
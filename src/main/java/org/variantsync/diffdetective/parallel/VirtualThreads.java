@@ -0,0 +1,56 @@
+package org.variantsync.diffdetective.parallel;
+
+import org.tinylog.Logger;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads, which are only available in newer Java versions than the one this project is
+ * compiled for.
+ * Virtual threads are cheap to create and to block, so tasks that mostly wait for I/O can each run on their own
+ * thread without occupying a processor while waiting.
+ */
+public final class VirtualThreads {
+    /**
+     * <code>Executors.newVirtualThreadPerTaskExecutor()</code> or <code>null</code> if the running JVM does not
+     * support virtual threads.
+     */
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findNewVirtualThreadPerTaskExecutor();
+
+    private VirtualThreads() {}
+
+    private static Method findNewVirtualThreadPerTaskExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns true iff the running JVM supports virtual threads.
+     */
+    public static boolean areSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     * If the running JVM does not support virtual threads (or they are a preview feature that is not enabled),
+     * an executor that runs each task on a (possibly reused) platform thread is returned instead.
+     */
+    public static ExecutorService newThreadPerTaskExecutor() {
+        if (areSupported()) {
+            try {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                Logger.warn(e, "Could not create virtual threads. Using platform threads instead.");
+            }
+        }
+
+        return Executors.newCachedThreadPool();
+    }
+}
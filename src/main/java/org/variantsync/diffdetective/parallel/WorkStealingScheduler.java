@@ -0,0 +1,130 @@
+package org.variantsync.diffdetective.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * Processes a sequence of items in batches on a {@link ForkJoinPool}.
+ * In contrast to {@link ScheduledTasksIterator}, the sequence is not cut into tasks upfront.
+ * Instead, each thread processes a range of items batch by batch and offers the second half of its remaining
+ * range to other threads whenever there is not enough queued work for idle threads to steal.
+ * Thus, a thread that is stuck with an expensive batch does not hold back the rest of its range, and all threads
+ * stay busy until the very end.
+ * <p>
+ * Batches are always aligned to multiples of the batch size, so the same batches are processed regardless of
+ * how the work is distributed.
+ * Results are reported in the order in which batches finish, which is not deterministic.
+ *
+ * @param <T> The type of the result of a single batch.
+ */
+public class WorkStealingScheduler<T> {
+    /**
+     * The number of tasks a thread may have queued before it stops offering work to other threads.
+     * See the documentation of {@link ForkJoinTask#getSurplusQueuedTaskCount()}.
+     */
+    private static final int MAX_SURPLUS_QUEUED_TASKS = 2;
+
+    /**
+     * Processes the items in the range <code>[from, to)</code>.
+     * @param <T> The type of the result of a batch.
+     */
+    @FunctionalInterface
+    public interface BatchProcessor<T> {
+        T process(int from, int to) throws Exception;
+    }
+
+    private final int nThreads;
+    private final int batchSize;
+    private final BatchProcessor<T> processor;
+    private final Consumer<T> resultConsumer;
+
+    /**
+     * Creates a scheduler.
+     * @param nThreads The number of threads which process batches in parallel.
+     * @param batchSize The maximum number of items processed at once by {@code processor}.
+     * @param processor Processes a single batch. Invoked concurrently from multiple threads.
+     * @param resultConsumer Receives the result of each batch as soon as it is finished.
+     *                       Invocations are never concurrent, so the consumer does not need to be thread-safe.
+     */
+    public WorkStealingScheduler(int nThreads, int batchSize, final BatchProcessor<T> processor, final Consumer<T> resultConsumer) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size has to be positive but was " + batchSize + "!");
+        }
+
+        this.nThreads = nThreads;
+        this.batchSize = batchSize;
+        this.processor = processor;
+        this.resultConsumer = resultConsumer;
+    }
+
+    /**
+     * Processes all items in the range <code>[0, numberOfItems)</code> and blocks until all batches are finished.
+     * @throws RuntimeException if a batch could not be processed.
+     *                          Batches that did not start yet are cancelled in this case.
+     */
+    public void run(int numberOfItems) {
+        final ForkJoinPool pool = new ForkJoinPool(nThreads);
+        try {
+            pool.invoke(new Range(0, numberOfItems));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void process(int from, int to) {
+        final T result;
+        try {
+            result = processor.process(from, to);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        synchronized (resultConsumer) {
+            resultConsumer.accept(result);
+        }
+    }
+
+    /**
+     * A range of items that is processed batch by batch by a single thread, unless it is split.
+     * <code>from</code> is always a multiple of the batch size.
+     */
+    private class Range extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        private Range(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            final List<ForkJoinTask<Void>> offered = new ArrayList<>();
+            int start = from;
+            int end = to;
+            while (start < end) {
+                final int remainingBatches = (end - start + batchSize - 1) / batchSize;
+                if (remainingBatches > 1 && getSurplusQueuedTaskCount() <= MAX_SURPLUS_QUEUED_TASKS) {
+                    // Offer the second half of the remaining batches to idle threads.
+                    final int middle = start + (remainingBatches / 2) * batchSize;
+                    offered.add(new Range(middle, end).fork());
+                    end = middle;
+                } else {
+                    final int batchEnd = Math.min(start + batchSize, end);
+                    process(start, batchEnd);
+                    start = batchEnd;
+                }
+            }
+
+            for (final ForkJoinTask<Void> range : offered) {
+                range.join();
+            }
+        }
+    }
+}
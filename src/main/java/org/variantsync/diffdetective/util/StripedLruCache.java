@@ -0,0 +1,146 @@
+package org.variantsync.diffdetective.util;
+
+import org.variantsync.diffdetective.metadata.CacheStatistics;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * A bounded cache that evicts the least recently used entries first.
+ * The capacity is given in an arbitrary unit in which each value is weighed (e.g., bytes or number of entries).
+ * <p>
+ * The cache is safe to be shared between threads.
+ * To reduce contention, the cache is split into stripes that are locked independently and each
+ * hold an equal share of the total capacity.
+ * Values weighing more than the capacity of a single stripe are never cached.
+ * Lookups are reported to a {@link CacheStatistics.Recorder} given by the caller.
+ *
+ * @param <K> Type of the keys.
+ * @param <V> Type of the cached values.
+ */
+public class StripedLruCache<K, V> {
+    /**
+     * Default number of independently locked stripes.
+     */
+    public static final int DEFAULT_NUMBER_OF_STRIPES = 16;
+
+    private final List<Stripe> stripes;
+    private final long stripeCapacity;
+    private final ToLongFunction<? super V> weigher;
+
+    /**
+     * Creates a cache that holds values weighing at most the given capacity in total.
+     * @param capacity The maximum total weight of all cached values.
+     *                 A capacity smaller than the number of stripes disables caching of values with a positive weight.
+     * @param numberOfStripes Number of independently locked parts of this cache.
+     *                        Has to be a power of two.
+     * @param weigher Computes the weight of a value. Has to return the same weight for the same value each time.
+     */
+    public StripedLruCache(long capacity, int numberOfStripes, final ToLongFunction<? super V> weigher) {
+        if (numberOfStripes <= 0 || Integer.bitCount(numberOfStripes) != 1) {
+            throw new IllegalArgumentException("The number of stripes has to be a positive power of two but was " + numberOfStripes + "!");
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity must not be negative but was " + capacity + "!");
+        }
+
+        this.stripes = new ArrayList<>(numberOfStripes);
+        for (int i = 0; i < numberOfStripes; ++i) {
+            stripes.add(new Stripe());
+        }
+        this.stripeCapacity = capacity / numberOfStripes;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the value cached for the given key and reports a hit or a miss to the given statistics.
+     * @param key The key to look up.
+     * @param statistics Records the outcome of this lookup.
+     * @return The cached value or null if there is none.
+     */
+    public V get(final K key, final CacheStatistics.Recorder statistics) {
+        final Stripe stripe = stripeOf(key);
+        final V cached;
+        synchronized (stripe) {
+            cached = stripe.entries.get(key);
+        }
+
+        if (cached == null) {
+            statistics.miss();
+        } else {
+            statistics.hit();
+        }
+        return cached;
+    }
+
+    /**
+     * Caches the given value for the given key unless there already is a value for that key.
+     * Least recently used values are evicted until the new value fits into the cache.
+     * @param key The key of the value. Must not be modified afterwards.
+     * @param value The value to cache.
+     * @param statistics Records the evictions caused by the new value.
+     * @return The value that was already cached for the given key or the given value otherwise.
+     */
+    public V putIfAbsent(final K key, final V value, final CacheStatistics.Recorder statistics) {
+        final long weight = weigher.applyAsLong(value);
+        if (weight > stripeCapacity) {
+            return value;
+        }
+
+        final Stripe stripe = stripeOf(key);
+        synchronized (stripe) {
+            // Another thread might have cached a value for the same key in the meantime.
+            final V cached = stripe.entries.putIfAbsent(key, value);
+            if (cached != null) {
+                return cached;
+            }
+
+            stripe.weight += weight;
+            final Iterator<Map.Entry<K, V>> lruOrder = stripe.entries.entrySet().iterator();
+            while (stripe.weight > stripeCapacity) {
+                stripe.weight -= weigher.applyAsLong(lruOrder.next().getValue());
+                lruOrder.remove();
+                statistics.evict();
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Returns true iff a value of the given weight might be cached.
+     */
+    public boolean canHold(long weight) {
+        return weight <= stripeCapacity;
+    }
+
+    /**
+     * Removes all values from this cache.
+     */
+    public void clear() {
+        for (final Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.entries.clear();
+                stripe.weight = 0;
+            }
+        }
+    }
+
+    private Stripe stripeOf(final K key) {
+        // Spread the higher bits because similar keys (e.g., strings) often only differ in their last characters.
+        final int hash = key.hashCode();
+        return stripes.get((hash ^ (hash >>> 16)) & (stripes.size() - 1));
+    }
+
+    private class Stripe {
+        /**
+         * Entries in access order such that the first entry is the least recently used one.
+         */
+        private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long weight = 0;
+    }
+}
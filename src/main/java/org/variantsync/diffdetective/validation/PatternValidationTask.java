@@ -7,6 +7,7 @@ import org.variantsync.diffdetective.analysis.CommitHistoryAnalysisTask;
 import org.variantsync.diffdetective.analysis.CommitProcessTime;
 import org.variantsync.diffdetective.analysis.HistoryAnalysis;
 import org.variantsync.diffdetective.diff.CommitDiff;
+import org.variantsync.diffdetective.diff.GitDiffer;
 import org.variantsync.diffdetective.diff.PatchDiff;
 import org.variantsync.diffdetective.diff.difftree.DiffTree;
 import org.variantsync.diffdetective.diff.difftree.serialize.DiffTreeLineGraphExportOptions;
@@ -41,76 +42,88 @@ public class PatternValidationTask extends CommitHistoryAnalysisTask {
         totalTime.start();
         final Clock commitProcessTimer = new Clock();
 
-        // For each commit:
-        for (final RevCommit commit : options.commits()) {
-            try {
-                commitProcessTimer.start();
+        // Open a session to reuse JGit resources for all commits of this task.
+        try (final GitDiffer.Session session = options.differ().openSession()) {
+            // For each commit:
+            for (final RevCommit commit : options.commits()) {
+                try {
+                    commitProcessTimer.start();
 
-                // parse the commit
-                final CommitDiffResult commitDiffResult = options.differ().createCommitDiff(commit);
+                    // parse the commit
+                    final CommitDiffResult commitDiffResult = session.createCommitDiff(commit);
 
-                // report any errors that occurred and exit in case no DiffTree could be parsed.
-                miningResult.reportDiffErrors(commitDiffResult.errors());
-                if (commitDiffResult.diff().isEmpty()) {
-                    Logger.debug("[MiningTask::call] found commit that failed entirely and was not filtered because:\n{}", commitDiffResult.errors());
-                    ++miningResult.failedCommits;
-                    continue;
-                }
+                    // report any errors that occurred and exit in case no DiffTree could be parsed.
+                    miningResult.reportDiffErrors(commitDiffResult.errors());
+                    if (commitDiffResult.diff().isEmpty()) {
+                        Logger.debug("[MiningTask::call] found commit that failed entirely and was not filtered because:\n{}", commitDiffResult.errors());
+                        ++miningResult.failedCommits;
+                        continue;
+                    }
 
-                // extract the produced commit diff and inform the strategy
-                final CommitDiff commitDiff = commitDiffResult.diff().get();
-                options.analysisStrategy().onCommit(commitDiff, "");
+                    // extract the produced commit diff and inform the strategy
+                    final CommitDiff commitDiff = commitDiffResult.diff().get();
+                    options.analysisStrategy().onCommit(commitDiff, "");
 
-                // Count elementary edit pattern matches
-                int numDiffTrees = 0;
-                for (final PatchDiff patch : commitDiff.getPatchDiffs()) {
-                    if (patch.isValid()) {
-                        final DiffTree t = patch.getDiffTree();
-                        DiffTreeTransformer.apply(exportOptions.treePreProcessing(), t);
-                        t.assertConsistency();
+                    // Count elementary edit pattern matches
+                    // Matching patterns is CPU-bound and might include SAT solving.
+                    final int numDiffTrees = options.cpuBoundWork().run(() -> {
+                        int diffTrees = 0;
+                        for (final PatchDiff patch : commitDiff.getPatchDiffs()) {
+                            if (patch.isValid()) {
+                                final DiffTree t = patch.getDiffTree();
+                                DiffTreeTransformer.apply(exportOptions.treePreProcessing(), t);
+                                t.assertConsistency();
 
-                        if (!exportOptions.treeFilter().test(t)) {
-                            continue;
-                        }
+                                if (!exportOptions.treeFilter().test(t)) {
+                                    continue;
+                                }
 
-                        t.forAll(node -> {
-                            if (node.isCode()) {
-                                miningResult.elementaryPatternCounts.reportOccurrenceFor(
-                                        ProposedElementaryPatterns.Instance.match(node),
-                                        commitDiff
-                                );
+                                t.forAll(node -> {
+                                    if (node.isCode()) {
+                                        miningResult.elementaryPatternCounts.reportOccurrenceFor(
+                                                ProposedElementaryPatterns.Instance.match(node),
+                                                commitDiff
+                                        );
+                                    }
+                                });
+
+                                ++diffTrees;
                             }
-                        });
+                        }
+                        return diffTrees;
+                    });
+                    miningResult.exportedTrees += numDiffTrees;
+                    miningResult.filterHits.append(new ExplainedFilterSummary(exportOptions.treeFilter()));
+                    exportOptions.treeFilter().resetExplanations();
 
-                        ++numDiffTrees;
+                    // Report the commit process time if the commit is not empty.
+                    if (numDiffTrees > 0) {
+                        final long commitTimeMS = commitProcessTimer.getPassedMilliseconds();
+                        // find max commit time
+                        if (commitTimeMS > miningResult.max.milliseconds()) {
+                            miningResult.max.set(commitDiff.getCommitHash(), commitTimeMS);
+                        }
+                        // find min commit time
+                        if (commitTimeMS < miningResult.min.milliseconds()) {
+                            miningResult.min.set(commitDiff.getCommitHash(), commitTimeMS);
+                        }
+                        // report time
+                        commitTimes.add(new CommitProcessTime(commitDiff.getCommitHash(), options.repository().getRepositoryName(), commitTimeMS));
+                        ++miningResult.exportedCommits;
+                    } else {
+                        ++miningResult.emptyCommits;
                     }
-                }
-                miningResult.exportedTrees += numDiffTrees;
-                miningResult.filterHits.append(new ExplainedFilterSummary(exportOptions.treeFilter()));
-                exportOptions.treeFilter().resetExplanations();
 
-                // Report the commit process time if the commit is not empty.
-                if (numDiffTrees > 0) {
-                    final long commitTimeMS = commitProcessTimer.getPassedMilliseconds();
-                    // find max commit time
-                    if (commitTimeMS > miningResult.max.milliseconds()) {
-                        miningResult.max.set(commitDiff.getCommitHash(), commitTimeMS);
-                    }
-                    // find min commit time
-                    if (commitTimeMS < miningResult.min.milliseconds()) {
-                        miningResult.min.set(commitDiff.getCommitHash(), commitTimeMS);
-                    }
-                    // report time
-                    commitTimes.add(new CommitProcessTime(commitDiff.getCommitHash(), options.repository().getRepositoryName(), commitTimeMS));
-                    ++miningResult.exportedCommits;
-                } else {
-                    ++miningResult.emptyCommits;
+                } catch (Exception e) {
+                    Logger.error(e, "An unexpected error occurred at {} in {}", commit.getId().getName(), getOptions().repository().getRepositoryName());
+                    throw e;
                 }
-
-            } catch (Exception e) {
-                Logger.error(e, "An unexpected error occurred at {} in {}", commit.getId().getName(), getOptions().repository().getRepositoryName());
-                throw e;
             }
+            // report how often files could be reused from the blob cache
+            miningResult.blobCacheStatistics.append(session.getBlobCacheStatistics());
+            // report how often conditions could be reused from the condition cache
+            miningResult.conditionStatistics.append(session.getConditionStatistics());
+            miningResult.commitsOverRenameLimit += session.getNumberOfCommitsOverRenameLimit();
         }
 
         // shutdown; report total time; export results
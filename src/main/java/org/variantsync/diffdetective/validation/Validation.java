@@ -194,7 +194,7 @@ public class Validation {
                 HistoryAnalysis.COMMITS_TO_PROCESS_PER_THREAD_DEFAULT,
                 VALIDATION_TASK_FACTORY,
                 repoPostProcessing);
-        analysis.runAsync();
+        analysis.runInterleaved();
         Logger.info("Done");
 
         final String logFile = "log.txt";
@@ -0,0 +1,153 @@
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.variantsync.diffdetective.datasets.Repository;
+import org.variantsync.diffdetective.diff.CommitDiff;
+import org.variantsync.diffdetective.diff.GitDiffer;
+import org.variantsync.diffdetective.load.GitLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Tests reading repositories without a working tree.
+ */
+public class BareRepositoryTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path source;
+    private final List<String> commitIds = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        source = temporaryFolder.newFolder("source").toPath();
+        try (Git git = Git.init().setDirectory(source.toFile()).call()) {
+            for (int i = 0; i < 3; ++i) {
+                Files.writeString(source.resolve("file.c"), "int x;\n#ifdef A\nint y" + i + ";\n#endif\n", StandardCharsets.UTF_8);
+                git.add().addFilepattern(".").call();
+                final String id = git.commit().setMessage("commit " + i).call().getName();
+                // root commits have no parent to diff against and are not yielded by the differ
+                if (i > 0) {
+                    commitIds.add(id);
+                }
+            }
+            git.gc().call();
+        }
+    }
+
+    /**
+     * Returns the ids of all commits of the given repository that are yielded by the differ from oldest to newest and checks that all of
+     * them can be diffed.
+     */
+    private static List<String> analyze(final Repository repository) {
+        final Git git = repository.getGitRepo().run();
+        Assert.assertNotNull(git);
+        Assert.assertTrue(git.getRepository().isBare());
+
+        final GitDiffer differ = new GitDiffer(repository);
+        final List<String> ids = new ArrayList<>();
+        try (GitDiffer.Session session = differ.openSession()) {
+            for (final RevCommit commit : differ.yieldRevCommits()) {
+                ids.add(0, commit.getName());
+                final CommitDiff commitDiff = session.createCommitDiff(commit).diff().orElseThrow();
+                Assert.assertEquals(1, commitDiff.getPatchAmount());
+            }
+        }
+        git.close();
+        return ids;
+    }
+
+    @Test
+    public void mirror() {
+        final Path mirror = temporaryFolder.getRoot().toPath().resolve("mirror");
+        final Repository repository = Repository.fromRemoteMirror(mirror, source.toUri(), "mirror");
+        Assert.assertEquals(commitIds, analyze(repository));
+        Assert.assertFalse(Files.exists(mirror.resolve("file.c")));
+
+        // the existing mirror is reused
+        Assert.assertEquals(commitIds, analyze(Repository.fromRemoteMirror(mirror, source.toUri(), "mirror")));
+    }
+
+    /**
+     * Copies the pack of the source repository to a new directory with the given name.
+     * @return The path to the copied pack.
+     */
+    private Path copyPack(final String directory) throws IOException {
+        final Path packDir = temporaryFolder.newFolder(directory).toPath();
+        Path pack = null;
+        try (Stream<Path> packFiles = Files.list(source.resolve(".git").resolve("objects").resolve("pack"))) {
+            for (final Path file : packFiles.toList()) {
+                // drop the "pack-" prefix to check that arbitrary names are supported
+                final Path copy = packDir.resolve(file.getFileName().toString().substring("pack-".length()));
+                Files.copy(file, copy);
+                if (copy.toString().endsWith(".pack")) {
+                    pack = copy;
+                }
+            }
+        }
+        Assert.assertNotNull(pack);
+        return pack;
+    }
+
+    @Test
+    public void pack() throws IOException {
+        final Path pack = copyPack("packs");
+
+        // ship the refs in the format of git show-ref --head
+        final Path refs = Path.of(pack.toString().replaceAll("\\.pack$", ".refs"));
+        Files.writeString(refs, tip() + " HEAD\n" + tip() + " refs/heads/main\n", StandardCharsets.UTF_8);
+
+        Assert.assertEquals(commitIds, analyze(Repository.fromPack(pack, "pack")));
+        // the repository created on the first load is reused
+        Assert.assertEquals(commitIds, analyze(Repository.fromPack(pack, "pack")));
+    }
+
+    @Test
+    public void packWithExplicitTip() throws IOException {
+        final Path pack = copyPack("explicit");
+        final Git git = GitLoader.fromPack(pack, ObjectId.fromString(tip()));
+        Assert.assertNotNull(git);
+        Assert.assertEquals(tip(), git.getRepository().resolve(org.eclipse.jgit.lib.Constants.HEAD).getName());
+        git.close();
+    }
+
+    /**
+     * A failed import must not leave a broken repository behind that would be reused by the next load.
+     */
+    @Test
+    public void packWithMalformedRefs() throws IOException {
+        final Path pack = copyPack("malformed");
+        final String packWithoutExtension = pack.toString().replaceAll("\\.pack$", "");
+        final Path refs = Path.of(packWithoutExtension + ".refs");
+        final Path repoDir = Path.of(packWithoutExtension + ".git");
+
+        Files.writeString(refs, tip() + " HEAD\nnot a ref\n", StandardCharsets.UTF_8);
+        Assert.assertNull(GitLoader.fromPack(pack));
+        Assert.assertFalse(Files.exists(repoDir));
+        Assert.assertNull(GitLoader.fromPack(pack));
+        Assert.assertFalse(Files.exists(repoDir));
+
+        Files.writeString(refs, tip() + " HEAD\n", StandardCharsets.UTF_8);
+        final Git git = GitLoader.fromPack(pack);
+        Assert.assertNotNull(git);
+        Assert.assertEquals(tip(), git.getRepository().resolve(org.eclipse.jgit.lib.Constants.HEAD).getName());
+        git.close();
+        Assert.assertFalse(Files.exists(Path.of(packWithoutExtension + ".git.tmp")));
+    }
+
+    private String tip() {
+        return commitIds.get(commitIds.size() - 1);
+    }
+}
@@ -0,0 +1,71 @@
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.variantsync.diffdetective.analysis.AnalysisResult;
+import org.variantsync.diffdetective.analysis.BatchJournal;
+import org.variantsync.diffdetective.analysis.CommitHistoryAnalysisTaskFactory;
+import org.variantsync.diffdetective.analysis.HistoryAnalysis;
+import org.variantsync.diffdetective.datasets.Repository;
+import org.variantsync.diffdetective.diff.GitDiffer;
+import org.variantsync.diffdetective.util.FileUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+public class BatchJournalTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Commits analyzed by the tasks created by {@link BatchJournalTest#COUNT_COMMITS}.
+     */
+    private final List<ObjectId> analyzedCommits = Collections.synchronizedList(new ArrayList<>());
+
+    private final CommitHistoryAnalysisTaskFactory COUNT_COMMITS = TestUtils.countCommits(analyzedCommits);
+
+    @Test
+    public void ignoresIncompleteLastEntry() throws IOException {
+        final ObjectId a = ObjectId.fromString("0123456789012345678901234567890123456789");
+        final Path file = temporaryFolder.getRoot().toPath().resolve(BatchJournal.FILE_NAME);
+        Files.writeString(file, a.getName() + " 1000\n" + "9876543210987654321098765432109876543210 10", StandardCharsets.UTF_8);
+
+        final BatchJournal journal = BatchJournal.open(file);
+        Assert.assertTrue(journal.isFinished(a, 1000));
+        Assert.assertFalse(journal.isFinished(a, 999));
+        Assert.assertFalse(journal.isFinished(ObjectId.fromString("9876543210987654321098765432109876543210"), 10));
+    }
+
+    @Test
+    public void resumesAfterFinishedBatches() throws IOException, GitAPIException {
+        final Repository repo = TestUtils.createRepositoryWithEmptyCommits(temporaryFolder.newFolder("journal").toPath(), 7);
+        final Path outputDir = temporaryFolder.newFolder("output").toPath();
+        final ObjectId[] commitIds = new GitDiffer(repo).collectCommitIds();
+        Assert.assertEquals(6, commitIds.length);
+
+        // pretend that the first batch was analyzed before the analysis was aborted
+        final AnalysisResult firstBatch = new AnalysisResult(repo.getRepositoryName());
+        firstBatch.exportedCommits = 2;
+        firstBatch.exportTo(FileUtils.addExtension(outputDir.resolve(commitIds[0].getName() + ".lg"), AnalysisResult.EXTENSION));
+        final Path journalFile = outputDir.resolve(BatchJournal.FILE_NAME);
+        BatchJournal.open(journalFile).recordFinished(commitIds[0], 2);
+
+        HistoryAnalysis.analyzeAsync(repo, outputDir, COUNT_COMMITS, 2, HistoryAnalysis.CommitEnumeration.PRECOLLECTED);
+
+        Assert.assertEquals(4, analyzedCommits.size());
+        Assert.assertEquals(Set.copyOf(List.of(commitIds).subList(2, 6)), Set.copyOf(analyzedCommits));
+        final AnalysisResult totalResult = AnalysisResult.importFrom(outputDir.resolve(HistoryAnalysis.TOTAL_RESULTS_FILE_NAME), new HashMap<>());
+        Assert.assertEquals(7, totalResult.totalCommits);
+        Assert.assertEquals(6, totalResult.exportedCommits);
+        Assert.assertFalse(Files.exists(journalFile));
+    }
+}
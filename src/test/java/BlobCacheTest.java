@@ -0,0 +1,103 @@
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.variantsync.diffdetective.diff.BlobCache;
+import org.variantsync.diffdetective.diff.LineText;
+import org.variantsync.diffdetective.metadata.CacheStatistics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class BlobCacheTest {
+    private InMemoryRepository repo;
+    private ObjectReader reader;
+
+    @Before
+    public void setUp() {
+        repo = new InMemoryRepository(new DfsRepositoryDescription("blobcache"));
+        reader = repo.newObjectReader();
+    }
+
+    @After
+    public void tearDown() {
+        reader.close();
+        repo.close();
+    }
+
+    private ObjectId insert(final String text) throws IOException {
+        try (ObjectInserter inserter = repo.newObjectInserter()) {
+            final ObjectId id = inserter.insert(Constants.OBJ_BLOB, text.getBytes(StandardCharsets.UTF_8));
+            inserter.flush();
+            return id;
+        }
+    }
+
+    @Test
+    public void splitsLinesAtLineFeeds() throws IOException {
+        final ObjectId blob = insert("#ifdef A\r\nfoo();\rbar();\n#endif");
+        final LineText text = new BlobCache().get(reader, blob, BlobCache.newStatistics());
+        Assert.assertArrayEquals(
+                new String[] {"#ifdef A", "foo();\rbar();", "#endif"},
+                text.getLines());
+        Assert.assertTrue(text.isMissingNewlineAtEnd());
+    }
+
+    @Test
+    public void countsHitsAndMisses() throws IOException {
+        final BlobCache cache = new BlobCache();
+        final CacheStatistics.Recorder statistics = BlobCache.newStatistics();
+        final ObjectId a = insert("a\n");
+        final ObjectId b = insert("b\n");
+
+        final LineText first = cache.get(reader, a, statistics);
+        cache.get(reader, b, statistics);
+        Assert.assertSame(first, cache.get(reader, a, statistics));
+
+        Assert.assertEquals(1, statistics.getStatistics().hits);
+        Assert.assertEquals(2, statistics.getStatistics().misses);
+        Assert.assertEquals(0, statistics.getStatistics().evictions);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBlob() throws IOException {
+        // room for two single line blobs in a single stripe
+        final BlobCache cache = new BlobCache(12, 1);
+        final CacheStatistics.Recorder statistics = BlobCache.newStatistics();
+        final ObjectId a = insert("a\n");
+        final ObjectId b = insert("b\n");
+        final ObjectId c = insert("c\n");
+
+        cache.get(reader, a, statistics);
+        cache.get(reader, b, statistics);
+        // a is now more recently used than b
+        cache.get(reader, a, statistics);
+        cache.get(reader, c, statistics);
+        Assert.assertEquals(1, statistics.getStatistics().evictions);
+
+        // b was evicted but a was not
+        cache.get(reader, a, statistics);
+        Assert.assertEquals(2, statistics.getStatistics().hits);
+        cache.get(reader, b, statistics);
+        Assert.assertEquals(4, statistics.getStatistics().misses);
+    }
+
+    @Test
+    public void doesNotCacheBlobsLargerThanAStripe() throws IOException {
+        final BlobCache cache = new BlobCache(5, 1);
+        final CacheStatistics.Recorder statistics = BlobCache.newStatistics();
+        final ObjectId a = insert("a\n");
+
+        cache.get(reader, a, statistics);
+        cache.get(reader, a, statistics);
+        Assert.assertEquals(0, statistics.getStatistics().hits);
+        Assert.assertEquals(2, statistics.getStatistics().misses);
+        Assert.assertEquals(0, statistics.getStatistics().evictions);
+    }
+}
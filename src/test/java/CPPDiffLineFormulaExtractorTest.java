@@ -0,0 +1,150 @@
+import org.junit.Assert;
+import org.junit.Test;
+import org.variantsync.diffdetective.datasets.predefined.MarlinCPPDiffLineFormulaExtractor;
+import org.variantsync.diffdetective.diff.difftree.parse.IllFormedAnnotationException;
+import org.variantsync.diffdetective.feature.BooleanAbstraction;
+import org.variantsync.diffdetective.feature.CPPDiffLineFormulaExtractor;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link CPPDiffLineFormulaExtractor} with the regular expressions it replaces.
+ */
+public class CPPDiffLineFormulaExtractorTest {
+    private static final Pattern CPP_ANNOTATION_REGEX_PATTERN = Pattern.compile("^[+-]?\\s*#\\s*(if|ifdef|ifndef|elif)(\\s+(.*)|\\((.*)\\))$");
+    private static final Pattern COMMENT_PATTERN = Pattern.compile("/\\*.*\\*/");
+    private static final Pattern DEFINED_PATTERN = Pattern.compile("defined\\(([^)]*)\\)");
+
+    private static final String[] HEADERS = {
+            "#if ", "+#ifdef ", "- # ifndef\t", "#elif", "#if(", "#ifdef(", " #  if", "#ifdefined(", "#", ""
+    };
+    private static final String[] FRAGMENTS = {
+            " ", "\t", "\u000B", "\f", "\r", "\n", " ",
+            "A", "B_1", "0x10", "foo", "_", "ä",
+            "(", ")", "()", ",", "!", "&&", "||", "=", "==", "!=", ">", ">=", "<", "<=", "+", "-", "*", "/", "%",
+            "//", "/*", "*/", "defined", "defined(", "defined ", "ifndef", "ENABLED(", "DISABLED ("
+    };
+    private static final int NUMBER_OF_RANDOM_LINES = 100000;
+
+    /**
+     * Exposes the feature macro resolution of Marlin to the reference implementation.
+     */
+    private static class MarlinExtractor extends MarlinCPPDiffLineFormulaExtractor {
+        private String resolve(final String formula) {
+            return resolveFeatureMacroFunctions(formula);
+        }
+    }
+
+    /**
+     * The sequence of regular expressions that was used by {@link CPPDiffLineFormulaExtractor} before.
+     */
+    private static String extractWithRegexes(final String line, final UnaryOperator<String> resolveFeatureMacroFunctions) throws IllFormedAnnotationException {
+        final Matcher matcher = CPP_ANNOTATION_REGEX_PATTERN.matcher(line);
+
+        String fm;
+        if (matcher.find()) {
+            if (matcher.group(3) != null) {
+                fm = matcher.group(3);
+            } else {
+                fm = matcher.group(4);
+            }
+        } else {
+            throw IllFormedAnnotationException.IfWithoutCondition("Could not extract formula from line \""+ line + "\".");
+        }
+
+        // A condition consisting of line comments only used to throw an ArrayIndexOutOfBoundsException.
+        final String[] withoutLineComment = fm.split("//");
+        fm = withoutLineComment.length == 0 ? "" : withoutLineComment[0];
+        fm = COMMENT_PATTERN.matcher(fm).replaceAll("");
+        fm = fm.replaceAll("\\s", "");
+        fm = DEFINED_PATTERN.matcher(fm).replaceAll("$1");
+        fm = fm.replaceAll("defined ", " ");
+        fm = resolveFeatureMacroFunctions.apply(fm);
+        fm = BooleanAbstraction.arithmetics(fm);
+        fm = BooleanAbstraction.functionCalls(fm);
+
+        if (line.contains("ifndef")) {
+            fm = "!(" + fm + ")";
+        }
+
+        return fm;
+    }
+
+    private static void assertExtractedCorrectly(final String line) {
+        assertExtractedCorrectly(line, new CPPDiffLineFormulaExtractor(), UnaryOperator.identity());
+        final MarlinExtractor marlin = new MarlinExtractor();
+        assertExtractedCorrectly(line, marlin, marlin::resolve);
+    }
+
+    private static void assertExtractedCorrectly(final String line, final CPPDiffLineFormulaExtractor extractor, final UnaryOperator<String> resolveFeatureMacroFunctions) {
+        final String message = "line \"" + line + "\"";
+
+        String expected;
+        try {
+            expected = extractWithRegexes(line, resolveFeatureMacroFunctions);
+        } catch (IllFormedAnnotationException e) {
+            expected = null;
+        }
+
+        String actual;
+        try {
+            actual = extractor.extractFormula(line);
+        } catch (IllFormedAnnotationException e) {
+            actual = null;
+        }
+
+        Assert.assertEquals(message, expected, actual);
+    }
+
+    @Test
+    public void examples() {
+        for (final String line : List.of(
+                "#if A", "#ifdef A", "#ifndef A", "+ # elif A && B", "#if(A)", "#if (A)", "#if()", "#if ", "#if",
+                "#ifdefined(A)", "#ifdef(A)", "#if(A) && B", "#include <x.h>", "x #if A",
+                "#if x + 3 > 1", "#if defined(A) && (B * 2) > C", "#if defined A", "#if defined(A",
+                "#if defi/* x */ned(A)", "#if defined(defin)ed(A)", "#if A // B", "#if //", "#if ////", "#if ///",
+                "#if A /* B */ C /* D */", "#if /* A // B */ C", "#if A*/ /* B",
+                "#if A >= 1 && B <= 2 && C == 3", "#if A >== B", "#if A === B", "#if A <=> B", "#if A != B",
+                "#if f(x)", "#if f(x, y)", "#if bar(2, foo(baz))", "#if f((a))", "#if f((a, b))", "#if x(a,b)(c,d)",
+                "#if f(a & b)c)", "#if (a, b)", "#if f(g(a, b) + 1, h(c))", "#if FOO_ifndef_BAR",
+                "#if ENABLED(A) && DISABLED (B)", "#if A\nB", "#if A\r", "#if A "
+        )) {
+            assertExtractedCorrectly(line);
+        }
+    }
+
+    @Test
+    public void randomAnnotations() {
+        final Random random = new Random(42);
+        final StringBuilder line = new StringBuilder();
+        for (int i = 0; i < NUMBER_OF_RANDOM_LINES; ++i) {
+            line.setLength(0);
+            line.append(HEADERS[random.nextInt(HEADERS.length)]);
+            final int fragments = random.nextInt(12);
+            for (int j = 0; j < fragments; ++j) {
+                line.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            assertExtractedCorrectly(line.toString());
+        }
+    }
+
+    @Test
+    public void linesOfTestResources() throws IOException {
+        try (Stream<Path> files = Files.walk(Constants.RESOURCE_DIR)) {
+            for (final Path file : files.filter(Files::isRegularFile).toList()) {
+                for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    assertExtractedCorrectly(line);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.variantsync.diffdetective.analysis.CommitHistoryAnalysisTaskFactory;
+import org.variantsync.diffdetective.analysis.HistoryAnalysis;
+import org.variantsync.diffdetective.datasets.Repository;
+import org.variantsync.diffdetective.diff.DiffFilter;
+import org.variantsync.diffdetective.diff.GitDiffer;
+import org.variantsync.diffdetective.util.InvocationCounter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks that collecting all commit ids upfront yields the same commits as walking the history lazily.
+ */
+public class CommitEnumerationTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Commits analyzed by the tasks created by {@link CommitEnumerationTest#COLLECT_COMMITS}.
+     */
+    private final List<ObjectId> analyzedCommits = Collections.synchronizedList(new ArrayList<>());
+
+    private final CommitHistoryAnalysisTaskFactory COLLECT_COMMITS = TestUtils.countCommits(analyzedCommits);
+
+    private GitDiffer createHistory() throws IOException, GitAPIException {
+        return createHistory(DiffFilter.ALLOW_ALL);
+    }
+
+    private Repository createRepository(final DiffFilter diffFilter) throws IOException, GitAPIException {
+        try (Git git = Git.init().setDirectory(temporaryFolder.newFolder("repo")).call()) {
+            TestUtils.commit(git, "root");
+            TestUtils.commit(git, "A");
+            final String main = git.getRepository().getBranch();
+            git.branchCreate().setName("side").call();
+            TestUtils.commit(git, "B");
+            git.checkout().setName("side").call();
+            TestUtils.commit(git, "C");
+            TestUtils.commit(git, "D");
+            git.checkout().setName(main).call();
+            git.merge()
+                    .include(git.getRepository().resolve("side"))
+                    .setFastForward(MergeCommand.FastForwardMode.NO_FF)
+                    .setMessage("merge")
+                    .call();
+        }
+
+        return Repository.fromDirectory(temporaryFolder.getRoot().toPath().resolve("repo"), "history").setDiffFilter(diffFilter);
+    }
+
+    private GitDiffer createHistory(final DiffFilter diffFilter) throws IOException, GitAPIException {
+        return new GitDiffer(createRepository(diffFilter));
+    }
+
+    @Test
+    public void collectedIdsEqualLog() throws IOException, GitAPIException {
+        final GitDiffer differ = createHistory();
+
+        final List<ObjectId> expected = new ArrayList<>();
+        for (final RevCommit commit : differ.yieldRevCommits()) {
+            expected.add(commit.getId());
+        }
+
+        final InvocationCounter<RevCommit, RevCommit> totalCommits = InvocationCounter.justCount();
+        final ObjectId[] commitIds = differ.collectCommitIdsAfter(totalCommits);
+        Assert.assertEquals(6, totalCommits.invocationCount().get());
+        // the root commit has no parent and is thus skipped
+        Assert.assertEquals(5, commitIds.length);
+        Assert.assertEquals(expected, List.of(commitIds));
+    }
+
+    @Test
+    public void partitionsParseAllCommits() throws IOException, GitAPIException {
+        final GitDiffer differ = createHistory();
+        final ObjectId[] commitIds = differ.collectCommitIds();
+
+        final List<ObjectId> parsed = new ArrayList<>();
+        for (int from = 0; from < commitIds.length; from += 2) {
+            for (final RevCommit commit : differ.parseCommits(commitIds, from, Math.min(from + 2, commitIds.length))) {
+                Assert.assertNotNull(commit.getTree());
+                parsed.add(commit.getId());
+            }
+        }
+
+        Assert.assertEquals(List.of(commitIds), parsed);
+    }
+
+    @Test
+    public void mergesAreSkippedAtWalkTime() throws IOException, GitAPIException {
+        final GitDiffer differ = createHistory(new DiffFilter.Builder().allowMerge(false).build());
+
+        final InvocationCounter<RevCommit, RevCommit> walkedCommits = InvocationCounter.justCount();
+        final ObjectId[] commitIds = differ.collectCommitIdsAfter(walkedCommits);
+        Assert.assertEquals(5, walkedCommits.invocationCount().get());
+        Assert.assertEquals(1, differ.getNumberOfCommitsFilteredAtWalkTime());
+        Assert.assertEquals(4, commitIds.length);
+
+        final List<ObjectId> lazy = new ArrayList<>();
+        for (final RevCommit commit : differ.yieldRevCommits()) {
+            Assert.assertEquals(1, commit.getParentCount());
+            lazy.add(commit.getId());
+        }
+        Assert.assertEquals(List.of(commitIds), lazy);
+        Assert.assertEquals(2, differ.getNumberOfCommitsFilteredAtWalkTime());
+    }
+
+    @Test
+    public void firstParentOnly() throws IOException, GitAPIException {
+        final GitDiffer differ = createHistory(new DiffFilter.Builder().allowMerge(false).firstParentOnly(true).build());
+
+        final InvocationCounter<RevCommit, RevCommit> walkedCommits = InvocationCounter.justCount();
+        final ObjectId[] commitIds = differ.collectCommitIdsAfter(walkedCommits);
+        // the merge is filtered and the commits of the side branch are not walked at all
+        Assert.assertEquals(3, walkedCommits.invocationCount().get());
+        Assert.assertEquals(1, differ.getNumberOfCommitsFilteredAtWalkTime());
+        // the root commit has no parent and is thus skipped
+        Assert.assertEquals(2, commitIds.length);
+    }
+
+    @Test
+    public void allCommitEnumerationsAnalyzeTheSameCommits() throws IOException, GitAPIException {
+        final Repository repo = createRepository(DiffFilter.ALLOW_ALL);
+        final ObjectId[] commitIds = new GitDiffer(repo).collectCommitIds();
+
+        for (final HistoryAnalysis.CommitEnumeration commitEnumeration : HistoryAnalysis.CommitEnumeration.values()) {
+            analyzedCommits.clear();
+            final Path outputDir = temporaryFolder.newFolder(commitEnumeration.name()).toPath();
+            HistoryAnalysis.analyzeAsync(repo, outputDir, COLLECT_COMMITS, 2, commitEnumeration);
+
+            Assert.assertEquals(commitIds.length, analyzedCommits.size());
+            Assert.assertEquals(Set.of(commitIds), Set.copyOf(analyzedCommits));
+        }
+    }
+
+    @Test
+    public void virtualThreadsAnalyzeTheSameCommits() throws IOException, GitAPIException {
+        final Repository repo = createRepository(DiffFilter.ALLOW_ALL);
+        final ObjectId[] commitIds = new GitDiffer(repo).collectCommitIds();
+
+        final Path outputDir = temporaryFolder.newFolder("virtual").toPath();
+        HistoryAnalysis.analyzeAsync(repo, outputDir, COLLECT_COMMITS, 2, HistoryAnalysis.COMMIT_ENUMERATION_DEFAULT, HistoryAnalysis.Threading.VIRTUAL);
+
+        Assert.assertEquals(commitIds.length, analyzedCommits.size());
+        Assert.assertEquals(Set.of(commitIds), Set.copyOf(analyzedCommits));
+    }
+}
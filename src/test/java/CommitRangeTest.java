@@ -0,0 +1,121 @@
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.variantsync.diffdetective.datasets.ParseOptions;
+import org.variantsync.diffdetective.diff.DiffFilter;
+import org.variantsync.diffdetective.diff.GitDiffer;
+import org.variantsync.diffdetective.diff.PatchDiff;
+import org.variantsync.diffdetective.diff.result.CommitDiffResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Tests diffs against all parents of a commit and diffs of commit ranges.
+ */
+public class CommitRangeTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Git git;
+    private GitDiffer.Session session;
+    private RevCommit merge;
+
+    private void write(final String file, final String content) throws IOException {
+        final Path path = temporaryFolder.getRoot().toPath().resolve(file);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content, StandardCharsets.UTF_8);
+    }
+
+    private RevCommit commit(final String message) throws GitAPIException {
+        git.add().addFilepattern(".").call();
+        return git.commit().setMessage(message).call();
+    }
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        git = Git.init().setDirectory(temporaryFolder.getRoot()).call();
+
+        write("src/a.c", "int a;\n");
+        write("src/b.c", "int b;\n");
+        write("doc/readme.c", "int readme;\n");
+        commit("root");
+        git.tag().setName("v1").call();
+
+        final String main = git.getRepository().getBranch();
+        git.branchCreate().setName("side").call();
+        write("src/a.c", "int a;\n#ifdef A\nint a2;\n#endif\n");
+        commit("change a");
+
+        git.checkout().setName("side").call();
+        write("src/b.c", "int b;\n#ifdef B\nint b2;\n#endif\n");
+        commit("change b");
+
+        git.checkout().setName(main).call();
+        git.merge()
+                .include(git.getRepository().resolve("side"))
+                .setFastForward(MergeCommand.FastForwardMode.NO_FF)
+                .setMessage("merge")
+                .call();
+        git.tag().setName("v2").call();
+
+        session = new GitDiffer.Session(git, DiffFilter.ALLOW_ALL, ParseOptions.Default);
+        merge = session.getRevWalk().parseCommit(git.getRepository().resolve("v2"));
+    }
+
+    @After
+    public void tearDown() {
+        session.close();
+        git.close();
+    }
+
+    private static List<String> changedFiles(final CommitDiffResult result) {
+        Assert.assertEquals(List.of(), result.errors());
+        return result.diff().orElseThrow().getPatchDiffs().stream().map(PatchDiff::getFileName).sorted().toList();
+    }
+
+    @Test
+    public void allParents() {
+        Assert.assertEquals(2, merge.getParentCount());
+
+        final List<CommitDiffResult> diffs = session.createCommitDiffsFromAllParents(merge);
+        Assert.assertEquals(2, diffs.size());
+        // the first parent lacks the changes of the side branch and vice versa
+        Assert.assertEquals(List.of("src/b.c"), changedFiles(diffs.get(0)));
+        Assert.assertEquals(List.of("src/a.c"), changedFiles(diffs.get(1)));
+        Assert.assertEquals(merge.getParent(1).getName(), diffs.get(1).diff().orElseThrow().getParentCommitHash());
+
+        // diffing again reuses the cached trees of the session
+        Assert.assertEquals(List.of("src/b.c"), changedFiles(session.createCommitDiffsFromAllParents(merge).get(0)));
+    }
+
+    @Test
+    public void rootCommitHasNoParents() throws IOException {
+        final RevCommit root = session.getRevWalk().parseCommit(git.getRepository().resolve("v1"));
+        Assert.assertEquals(List.of(), session.createCommitDiffsFromAllParents(root));
+    }
+
+    @Test
+    public void range() {
+        Assert.assertEquals(List.of("src/a.c", "src/b.c"), changedFiles(session.createRangeDiff("v1..v2")));
+        Assert.assertEquals(List.of("src/b.c"), changedFiles(session.createRangeDiff(merge.getParent(0).getName() + "..v2")));
+        Assert.assertEquals(List.of(), changedFiles(session.createRangeDiff("v2..v2")));
+    }
+
+    @Test
+    public void invalidRanges() {
+        Assert.assertTrue(session.createRangeDiff("v1").diff().isEmpty());
+        Assert.assertTrue(session.createRangeDiff("v1...v2").diff().isEmpty());
+        Assert.assertTrue(session.createRangeDiff("v1..doesnotexist").diff().isEmpty());
+    }
+}
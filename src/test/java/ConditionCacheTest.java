@@ -0,0 +1,129 @@
+import org.junit.Assert;
+import org.junit.Test;
+import org.prop4j.And;
+import org.prop4j.Literal;
+import org.prop4j.Node;
+import org.variantsync.diffdetective.analysis.MetadataKeys;
+import org.variantsync.diffdetective.feature.CPPAnnotationParser;
+import org.variantsync.diffdetective.feature.ConditionCache;
+import org.variantsync.diffdetective.feature.ConditionStatistics;
+import org.variantsync.diffdetective.feature.PropositionalFormulaParser;
+import org.variantsync.diffdetective.metadata.CacheStatistics;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class ConditionCacheTest {
+    private static Node parse(final String condition) {
+        return PropositionalFormulaParser.Default.parse(condition);
+    }
+
+    @Test
+    public void countsHitsAndMisses() {
+        final ConditionCache cache = new ConditionCache();
+        final CacheStatistics.Recorder statistics = new CacheStatistics.Recorder(MetadataKeys.CONDITION_CACHE);
+        final AtomicInteger parses = new AtomicInteger();
+        final Function<String, Node> parser = condition -> {
+            parses.incrementAndGet();
+            return parse(condition);
+        };
+
+        final Node first = cache.get("A&&B", parser, statistics);
+        cache.get("C", parser, statistics);
+        final Node second = cache.get("A&&B", parser, statistics);
+
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(2, parses.get());
+        final CacheStatistics recorded = statistics.getStatistics();
+        Assert.assertEquals(1, recorded.hits);
+        Assert.assertEquals(2, recorded.misses);
+        Assert.assertEquals(0, recorded.evictions);
+        Assert.assertEquals(1.0 / 3, recorded.getHitRate(), 1e-9);
+    }
+
+    @Test
+    public void handsOutCopies() {
+        final ConditionCache cache = new ConditionCache();
+        final CacheStatistics.Recorder statistics = new CacheStatistics.Recorder(MetadataKeys.CONDITION_CACHE);
+        final Node expected = parse("A&&!B");
+
+        final Node missed = cache.get("A&&!B", ConditionCacheTest::parse, statistics);
+        missed.setChildren(new Literal("X"));
+        final Node hit = cache.get("A&&!B", ConditionCacheTest::parse, statistics);
+        Assert.assertEquals(expected, hit);
+
+        // Modifying a nested node of a hit must not leak into the cache either.
+        Assert.assertTrue(hit instanceof And);
+        ((Literal) hit.getChildren()[1]).flip();
+        Assert.assertEquals(expected, cache.get("A&&!B", ConditionCacheTest::parse, statistics));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedConditions() {
+        final ConditionCache cache = new ConditionCache(2, 1);
+        final CacheStatistics.Recorder statistics = new CacheStatistics.Recorder(MetadataKeys.CONDITION_CACHE);
+
+        cache.get("A", ConditionCacheTest::parse, statistics);
+        cache.get("B", ConditionCacheTest::parse, statistics);
+        cache.get("A", ConditionCacheTest::parse, statistics);
+        cache.get("C", ConditionCacheTest::parse, statistics);
+        Assert.assertEquals(1, statistics.getStatistics().evictions);
+
+        // B was evicted but A was not.
+        cache.get("A", ConditionCacheTest::parse, statistics);
+        Assert.assertEquals(2, statistics.getStatistics().hits);
+        cache.get("B", ConditionCacheTest::parse, statistics);
+        Assert.assertEquals(4, statistics.getStatistics().misses);
+    }
+
+    @Test
+    public void parserReportsLookupsToItsRecorder() {
+        final CPPAnnotationParser parser = new CPPAnnotationParser();
+
+        final Node first = parser.parseCondition("A||B");
+        final Node second = parser.parseCondition("A||B");
+        Assert.assertEquals(parse("A||B"), first);
+        Assert.assertEquals(first, second);
+        Assert.assertNotSame(first, second);
+
+        final ConditionStatistics statistics = parser.getConditionStatistics();
+        Assert.assertEquals(1, statistics.lookups.hits);
+        Assert.assertEquals(1, statistics.lookups.misses);
+
+        // A parser reporting elsewhere shares the cache but not the statistics.
+        final ConditionStatistics.Recorder recorder = new ConditionStatistics.Recorder();
+        parser.reportingTo(recorder).parseCondition("A||B");
+        Assert.assertEquals(1, recorder.getStatistics().lookups.hits);
+        Assert.assertEquals(0, recorder.getStatistics().lookups.misses);
+        Assert.assertEquals(1, parser.getConditionStatistics().lookups.hits);
+    }
+
+    /**
+     * Feature mappings might be parsed by other threads than the one that created the parser
+     * (e.g., by a {@link java.util.concurrent.ForkJoinPool}), which must be counted, too.
+     */
+    @Test
+    public void parserReportsLookupsOfAllThreads() throws InterruptedException {
+        final int threads = 4;
+        final int lookupsPerThread = 1000;
+        final ConditionStatistics.Recorder recorder = new ConditionStatistics.Recorder();
+        final CPPAnnotationParser parser = new CPPAnnotationParser().reportingTo(recorder);
+
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; ++i) {
+            pool.execute(() -> {
+                for (int j = 0; j < lookupsPerThread; ++j) {
+                    parser.parseCondition("C" + (j % 10));
+                }
+            });
+        }
+        pool.shutdown();
+        Assert.assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+
+        final ConditionStatistics statistics = recorder.getStatistics();
+        Assert.assertEquals(threads * lookupsPerThread, statistics.lookups.hits + statistics.lookups.misses);
+    }
+}
@@ -0,0 +1,67 @@
+import org.junit.Assert;
+import org.junit.Test;
+import org.variantsync.diffdetective.parallel.CpuBoundWork;
+import org.variantsync.diffdetective.parallel.ScheduledTasksIterator;
+import org.variantsync.diffdetective.parallel.VirtualThreads;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+public class CpuBoundWorkTest {
+    private static final int LIMIT = 2;
+    private static final int NUMBER_OF_TASKS = 32;
+
+    @Test
+    public void limitIsRespected() {
+        final CpuBoundWork cpuBoundWork = new CpuBoundWork(LIMIT);
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        try (final ScheduledTasksIterator<Integer> results = new ScheduledTasksIterator<>(
+                IntStream.range(0, NUMBER_OF_TASKS)
+                        .mapToObj(i -> (Callable<Integer>) () -> cpuBoundWork.run(() -> {
+                            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                            Thread.sleep(5);
+                            running.decrementAndGet();
+                            return i;
+                        }))
+                        .iterator(),
+                NUMBER_OF_TASKS,
+                ScheduledTasksIterator.Order.COMPLETION,
+                0,
+                VirtualThreads.newThreadPerTaskExecutor())) {
+            int numberOfResults = 0;
+            while (results.hasNext()) {
+                results.next();
+                ++numberOfResults;
+            }
+            Assert.assertEquals(NUMBER_OF_TASKS, numberOfResults);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        Assert.assertTrue(maxRunning.get() <= LIMIT);
+    }
+
+    @Test
+    public void nestedWorkDoesNotNeedAnotherPermit() {
+        final CpuBoundWork cpuBoundWork = new CpuBoundWork(1);
+        Assert.assertEquals(42, (int) cpuBoundWork.run(() -> cpuBoundWork.run(() -> 42)));
+    }
+
+    @Test
+    public void limitsAreIndependent() throws Exception {
+        final CpuBoundWork first = new CpuBoundWork(1);
+        final CpuBoundWork second = new CpuBoundWork(1);
+        // Another thread has to be able to work with the second limit while the first limit is exhausted.
+        final int result = first.run(() -> {
+            final FutureTask<Integer> other = new FutureTask<>(() -> second.run(() -> 42));
+            new Thread(other).start();
+            return other.get(30, TimeUnit.SECONDS);
+        });
+        Assert.assertEquals(42, result);
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.Assert;
+import org.junit.Test;
+import org.prop4j.Node;
+import org.variantsync.diffdetective.diff.difftree.DiffNode;
+import org.variantsync.diffdetective.diff.difftree.DiffTree;
+import org.variantsync.diffdetective.diff.difftree.parse.DiffNodeParser;
+import org.variantsync.diffdetective.diff.difftree.parse.DiffTreeParser;
+import org.variantsync.diffdetective.diff.difftree.parse.IllFormedAnnotationException;
+import org.variantsync.diffdetective.diff.result.DiffError;
+import org.variantsync.diffdetective.feature.CPPAnnotationParser;
+import org.variantsync.diffdetective.feature.ConditionStatistics;
+import org.variantsync.functjonal.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class DeferredFeatureMappingTest {
+    private static final String DIFF = " #if A && B\n+#ifdef C\n+int x;\n+#endif\n #elif D\n #endif\n";
+
+    private static List<DiffNode> mappings(final DiffTree tree) {
+        final List<DiffNode> mappings = new ArrayList<>();
+        tree.forAll(node -> {
+            if (node.isIf() || node.isElif()) {
+                mappings.add(node);
+            }
+        });
+        return mappings;
+    }
+
+    private static DiffTree parse(final ConditionStatistics.Recorder statistics) {
+        return DiffTreeParser.createDiffTree(DIFF, true, true, DiffNodeParser.Default.reportingTo(statistics)).unwrap().getSuccess();
+    }
+
+    @Test
+    public void featureMappingsAreParsedOnDemand() throws IllFormedAnnotationException {
+        final ConditionStatistics.Recorder statistics = new ConditionStatistics.Recorder();
+        final List<DiffNode> mappings = mappings(parse(statistics));
+        Assert.assertEquals(3, mappings.size());
+        Assert.assertEquals(3, statistics.getStatistics().deferredConditions);
+        Assert.assertEquals(0, statistics.getStatistics().parsedDeferredConditions);
+
+        final DiffNode c = mappings.get(1);
+        final Node expected = CPPAnnotationParser.Default.parseDiffLine("#ifdef C");
+        Assert.assertEquals(expected, c.getDirectFeatureMapping());
+        // parsed only once
+        Assert.assertSame(c.getDirectFeatureMapping(), c.getDirectFeatureMapping());
+        Assert.assertEquals(1, statistics.getStatistics().parsedDeferredConditions);
+    }
+
+    @Test
+    public void comparingDeferredFeatureMappingsDoesNotParse() {
+        final ConditionStatistics.Recorder statistics = new ConditionStatistics.Recorder();
+        final List<DiffNode> first = mappings(parse(statistics));
+        final List<DiffNode> second = mappings(parse(new ConditionStatistics.Recorder()));
+
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(first.get(0).hashCode(), second.get(0).hashCode());
+        Assert.assertNotEquals(first.get(0), first.get(1));
+        Assert.assertEquals(0, statistics.getStatistics().parsedDeferredConditions);
+
+        // A parsed feature mapping is still equal to the same deferred one.
+        first.get(0).getDirectFeatureMapping();
+        Assert.assertEquals(first.get(0), second.get(0));
+    }
+
+    @Test
+    public void illFormedAnnotationsAreStillDetectedWhileParsing() {
+        final Result<DiffTree, DiffError> result = DiffTreeParser.createDiffTree("+#if\n+#endif\n", true, true, DiffNodeParser.Default).unwrap();
+        Assert.assertTrue(result.isFailure());
+    }
+}
@@ -0,0 +1,151 @@
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.variantsync.diffdetective.datasets.DatasetFactory;
+import org.variantsync.diffdetective.diff.DiffFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tests the pushdown of {@link DiffFilter}s into JGit's tree walks.
+ */
+public class DiffFilterTest {
+    private InMemoryRepository repo;
+    private ObjectId before;
+    private ObjectId after;
+
+    @Before
+    public void setUp() throws IOException {
+        repo = new InMemoryRepository(new DfsRepositoryDescription("difffilter"));
+
+        final Map<String, String> beforeFiles = new TreeMap<>();
+        beforeFiles.put("src/main.c", "int main() {}\n");
+        beforeFiles.put("src/util.H", "#define UTIL\n");
+        beforeFiles.put("src/notes.txt", "notes\n");
+        beforeFiles.put("src/deleted.c", "int deleted;\n");
+        beforeFiles.put("doc/example.c", "int example;\n");
+
+        final Map<String, String> afterFiles = new TreeMap<>();
+        for (final Map.Entry<String, String> file : beforeFiles.entrySet()) {
+            afterFiles.put(file.getKey(), file.getValue() + "// changed\n");
+        }
+        afterFiles.remove("src/deleted.c");
+        afterFiles.put("src/added.c", "int added;\n");
+
+        try (ObjectInserter inserter = repo.newObjectInserter()) {
+            before = insertTree(inserter, beforeFiles);
+            after = insertTree(inserter, afterFiles);
+            inserter.flush();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        repo.close();
+    }
+
+    private static ObjectId insertTree(final ObjectInserter inserter, final Map<String, String> files) throws IOException {
+        final Map<String, Map<String, String>> directories = new TreeMap<>();
+        for (final Map.Entry<String, String> file : files.entrySet()) {
+            final String[] path = file.getKey().split("/");
+            directories.computeIfAbsent(path[0], d -> new TreeMap<>()).put(path[1], file.getValue());
+        }
+
+        final TreeFormatter root = new TreeFormatter();
+        for (final Map.Entry<String, Map<String, String>> directory : directories.entrySet()) {
+            final TreeFormatter tree = new TreeFormatter();
+            for (final Map.Entry<String, String> file : directory.getValue().entrySet()) {
+                tree.append(file.getKey(), FileMode.REGULAR_FILE, inserter.insert(Constants.OBJ_BLOB, file.getValue().getBytes(StandardCharsets.UTF_8)));
+            }
+            root.append(directory.getKey(), FileMode.TREE, inserter.insert(tree));
+        }
+        return inserter.insert(root);
+    }
+
+    /**
+     * Returns all changed paths that are included by the given filter.
+     */
+    private List<String> walk(final DiffFilter filter) throws IOException {
+        final List<String> paths = new ArrayList<>();
+        try (TreeWalk walk = new TreeWalk(repo)) {
+            walk.addTree(before);
+            walk.addTree(after);
+            walk.setRecursive(true);
+            walk.setFilter(AndTreeFilter.create(filter.toTreeFilter(), TreeFilter.ANY_DIFF));
+            while (walk.next()) {
+                paths.add(walk.getPathString());
+            }
+        }
+        return paths;
+    }
+
+    @Test
+    public void allowAllDoesNotFilter() {
+        Assert.assertSame(TreeFilter.ALL, DiffFilter.ALLOW_ALL.toTreeFilter());
+    }
+
+    @Test
+    public void defaultFilter() throws IOException {
+        Assert.assertEquals(
+                List.of("doc/example.c", "src/main.c", "src/util.H"),
+                walk(DatasetFactory.DEFAULT_DIFF_FILTER));
+    }
+
+    @Test
+    public void allowedPaths() throws IOException {
+        final DiffFilter filter = new DiffFilter.Builder()
+                .allowedPaths("src/.*\\.c")
+                .build();
+        Assert.assertEquals(
+                List.of("src/added.c", "src/deleted.c", "src/main.c"),
+                walk(filter));
+    }
+
+    @Test
+    public void blockedPathsAndExtensions() throws IOException {
+        final DiffFilter filter = new DiffFilter.Builder()
+                .blockedPaths("doc/.*")
+                .blockedFileExtensions("txt")
+                .allowedChangeTypes(DiffEntry.ChangeType.MODIFY, DiffEntry.ChangeType.ADD)
+                .build();
+        Assert.assertEquals(
+                List.of("src/added.c", "src/deleted.c", "src/main.c", "src/util.H"),
+                walk(filter));
+    }
+
+    @Test
+    public void skipsDirectoriesWithoutAllowedPaths() throws IOException {
+        final DiffFilter filter = new DiffFilter.Builder()
+                .allowedPaths("src/.*")
+                .build();
+        final TreeFilter treeFilter = filter.toTreeFilter();
+
+        final List<String> topLevel = new ArrayList<>();
+        try (TreeWalk walk = new TreeWalk(repo)) {
+            walk.addTree(before);
+            walk.addTree(after);
+            walk.setFilter(treeFilter);
+            while (walk.next()) {
+                topLevel.add(walk.getPathString());
+            }
+        }
+        Assert.assertEquals(List.of("src"), topLevel);
+    }
+}
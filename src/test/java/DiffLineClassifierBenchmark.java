@@ -0,0 +1,134 @@
+import org.tinylog.Logger;
+import org.variantsync.diffdetective.diff.difftree.CodeType;
+import org.variantsync.diffdetective.diff.difftree.DiffType;
+import org.variantsync.diffdetective.diff.difftree.parse.DiffLineClassifier;
+import org.variantsync.diffdetective.diff.difftree.parse.DiffNodeParser;
+import org.variantsync.diffdetective.diff.difftree.parse.DiffTreeParser;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Compares the classification of diff lines by {@link DiffLineClassifier} with the string operations that
+ * {@link DiffTreeParser} used before, i.e., determining the diff type three times, the code type twice with a
+ * regex, and blank and continued lines with a substring and a trim.
+ * Additionally, the throughput of parsing whole patches to diff trees, given as strings and as UTF-8 encoded
+ * bytes, is reported.
+ * For each variant, the time and the bytes allocated per line are reported.
+ * <p>
+ * Usage: <code>DiffLineClassifierBenchmark [directory with patches (*.diff or *.patch), e.g., from <code>git format-patch</code> on Linux]</code>
+ */
+public class DiffLineClassifierBenchmark {
+    private static final Pattern annotationRegex = Pattern.compile("^[+-]?\\s*#\\s*(if|endif|else|elif)");
+    private static final int WARMUP_RUNS = 5;
+    private static final int RUNS = 10;
+
+    /**
+     * Prevents the JIT from removing the benchmarked code.
+     */
+    private static int sink;
+
+    public static void main(String[] args) throws IOException {
+        final Path patchDir = args.length > 0 ? Path.of(args[0]) : Constants.RESOURCE_DIR;
+        final List<String> patches = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(patchDir)) {
+            for (final Path file : files.filter(f -> f.toString().endsWith(".diff") || f.toString().endsWith(".patch")).toList()) {
+                patches.add(Files.readString(file, StandardCharsets.UTF_8));
+            }
+        }
+        final List<String> lines = patches.stream().flatMap(String::lines).toList();
+        final List<byte[]> encodedPatches = patches.stream().map(patch -> patch.getBytes(StandardCharsets.UTF_8)).toList();
+        Logger.info("Benchmarking {} lines of {} patches in {}", lines.size(), patches.size(), patchDir);
+
+        for (int run = 0; run < WARMUP_RUNS + RUNS; ++run) {
+            final boolean report = run >= WARMUP_RUNS;
+            measure("string operations", lines.size(), report, () -> {
+                for (final String line : lines) {
+                    sink += classifyWithStringOperations(line);
+                }
+            });
+            measure("DiffLineClassifier", lines.size(), report, () -> {
+                for (final String line : lines) {
+                    final int classification = DiffLineClassifier.classify(line);
+                    sink += DiffLineClassifier.diffType(classification).ordinal()
+                            + DiffLineClassifier.codeType(classification).ordinal()
+                            + (DiffLineClassifier.isBlank(classification) ? 1 : 0)
+                            + (DiffLineClassifier.continuesMultilineDefinition(classification) ? 1 : 0);
+                }
+            });
+            measure("DiffTreeParser", lines.size(), report, () -> {
+                for (final String patch : patches) {
+                    sink += DiffTreeParser.createDiffTree(patch, true, true, DiffNodeParser.Default).unwrap().isSuccess() ? 1 : 0;
+                }
+            });
+            measure("DiffTreeParser (UTF-8)", lines.size(), report, () -> {
+                for (final byte[] patch : encodedPatches) {
+                    sink += DiffTreeParser.createDiffTree(patch, 0, patch.length, true, true, DiffNodeParser.Default).unwrap().isSuccess() ? 1 : 0;
+                }
+            });
+        }
+        Logger.debug("sink: {}", sink);
+    }
+
+    /**
+     * The classification of a line as it was done by {@link DiffTreeParser}, {@link org.variantsync.diffdetective.diff.difftree.parse.MultiLineMacroParser}
+     * and {@link DiffNodeParser} before they shared a {@link DiffLineClassifier classification}.
+     */
+    private static int classifyWithStringOperations(final String line) {
+        // DiffTreeParser
+        int result = diffTypeOf(line).ordinal();
+        if (line.isEmpty() || line.substring(1).isBlank()) {
+            return result;
+        }
+        // MultiLineMacroParser
+        result += diffTypeOf(line).ordinal();
+        if (line.trim().endsWith("\\")) {
+            return result + codeTypeOf(line).ordinal();
+        }
+        // DiffNodeParser
+        result += diffTypeOf(line).ordinal() + codeTypeOf(line).ordinal();
+        return result + (line.isEmpty() ? line : line.substring(1)).length();
+    }
+
+    private static DiffType diffTypeOf(final String line) {
+        if (line.startsWith(DiffType.ADD.symbol)) {
+            return DiffType.ADD;
+        } else if (line.startsWith(DiffType.REM.symbol)) {
+            return DiffType.REM;
+        } else {
+            return DiffType.NON;
+        }
+    }
+
+    private static CodeType codeTypeOf(final String line) {
+        final Matcher matcher = annotationRegex.matcher(line);
+        if (matcher.find()) {
+            return CodeType.fromName(matcher.group(1));
+        }
+        return CodeType.CODE;
+    }
+
+    private static void measure(final String name, int numberOfLines, boolean report, final Runnable benchmark) {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        final long start = System.nanoTime();
+        benchmark.run();
+        final long nanoseconds = System.nanoTime() - start;
+        final long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+
+        if (report) {
+            Logger.info("{}: {} ns/line, {} bytes/line",
+                    name,
+                    String.format("%.2f", (double) nanoseconds / numberOfLines),
+                    String.format("%.2f", (double) allocated / numberOfLines));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import org.junit.Assert;
+import org.junit.Test;
+import org.variantsync.diffdetective.diff.difftree.CodeType;
+import org.variantsync.diffdetective.diff.difftree.DiffType;
+import org.variantsync.diffdetective.diff.difftree.parse.DiffLineClassifier;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Compares {@link DiffLineClassifier} with the string operations it replaces.
+ */
+public class DiffLineClassifierTest {
+    private static final Pattern annotationRegex = Pattern.compile("^[+-]?\\s*#\\s*(if|endif|else|elif)");
+    private static final String[] FRAGMENTS = {
+            "+", "-", " ", "\t", "\u000B", "\f", "\r", " ", " ",
+            "#", "if", "ifdef", "endif", "else", "elif", "el", "define", "x", "\\", "\\ "
+    };
+    private static final int NUMBER_OF_RANDOM_LINES = 200000;
+
+    private static DiffType diffTypeOf(final String line) {
+        if (line.startsWith(DiffType.ADD.symbol)) {
+            return DiffType.ADD;
+        } else if (line.startsWith(DiffType.REM.symbol)) {
+            return DiffType.REM;
+        } else {
+            return DiffType.NON;
+        }
+    }
+
+    private static CodeType codeTypeOf(final String line) {
+        final Matcher matcher = annotationRegex.matcher(line);
+        if (matcher.find()) {
+            return CodeType.fromName(matcher.group(1));
+        }
+        return CodeType.CODE;
+    }
+
+    private static void assertClassifiedCorrectly(final String line) {
+        final int classification = DiffLineClassifier.classify(line);
+        final String message = "line \"" + line + "\"";
+        Assert.assertEquals(message, diffTypeOf(line), DiffLineClassifier.diffType(classification));
+        Assert.assertEquals(message, codeTypeOf(line), DiffLineClassifier.codeType(classification));
+        Assert.assertEquals(message, line.isEmpty() || line.substring(1).isBlank(), DiffLineClassifier.isBlank(classification));
+        Assert.assertEquals(message, line.trim().endsWith("\\"), DiffLineClassifier.continuesMultilineDefinition(classification));
+
+        final int directiveOffset = DiffLineClassifier.directiveOffset(classification);
+        if (DiffLineClassifier.codeType(classification).isMacro()) {
+            Assert.assertEquals(message, '#', line.charAt(directiveOffset));
+        } else {
+            Assert.assertEquals(message, -1, directiveOffset);
+        }
+    }
+
+    @Test
+    public void examples() {
+        for (final String line : List.of(
+                "", "+", "-", " ", "+   ", "-\t\t",
+                "#if A", "+#if A", "-  #  ifdef A", " #ifndef A", "+\t#\telif B", "#else", "-#endif",
+                "++#if A", "#include <x.h>", "#e", "x #if A", "#define A \\", "  foo(); \\  \t", "\\",
+                "+ #if A", "+   ")) {
+            assertClassifiedCorrectly(line);
+        }
+    }
+
+    @Test
+    public void randomLines() {
+        final Random random = new Random(42);
+        final StringBuilder line = new StringBuilder();
+        for (int i = 0; i < NUMBER_OF_RANDOM_LINES; ++i) {
+            line.setLength(0);
+            final int fragments = random.nextInt(6);
+            for (int j = 0; j < fragments; ++j) {
+                line.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+            }
+            assertClassifiedCorrectly(line.toString());
+        }
+    }
+
+    @Test
+    public void linesOfTestDiffs() throws IOException {
+        try (Stream<Path> files = Files.walk(Constants.RESOURCE_DIR)) {
+            for (final Path file : files.filter(f -> f.toString().endsWith(".diff")).toList()) {
+                for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    assertClassifiedCorrectly(line);
+                }
+            }
+        }
+    }
+}
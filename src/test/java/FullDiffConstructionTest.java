@@ -0,0 +1,227 @@
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.variantsync.diffdetective.datasets.ParseOptions;
+import org.variantsync.diffdetective.datasets.ParseOptions.DiffStoragePolicy;
+import org.variantsync.diffdetective.datasets.ParseOptions.FullDiffConstruction;
+import org.variantsync.diffdetective.diff.DiffFilter;
+import org.variantsync.diffdetective.diff.GitDiffer;
+import org.variantsync.diffdetective.diff.PatchDiff;
+import org.variantsync.diffdetective.diff.difftree.serialize.DiffTreeLineGraphExportOptions;
+import org.variantsync.diffdetective.diff.difftree.serialize.GraphFormat;
+import org.variantsync.diffdetective.diff.difftree.serialize.LineGraphExport;
+import org.variantsync.diffdetective.diff.difftree.serialize.edgeformat.DefaultEdgeLabelFormat;
+import org.variantsync.diffdetective.diff.difftree.serialize.nodeformat.DebugDiffNodeFormat;
+import org.variantsync.diffdetective.diff.difftree.serialize.treeformat.CommitDiffDiffTreeLabelFormat;
+import org.variantsync.diffdetective.diff.result.CommitDiffResult;
+import org.variantsync.diffdetective.diff.difftree.DiffTree;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Checks that full diffs constructed from JGit's edit lists are equal to full diffs constructed
+ * from unified diffs for all full diffs in the test resources.
+ */
+public class FullDiffConstructionTest {
+    private static final Path[] FULL_DIFFS = {
+            Constants.RESOURCE_DIR.resolve("diffs/collapse/elif.txt"),
+            Constants.RESOURCE_DIR.resolve("diffs/collapse/simple.txt"),
+            Constants.RESOURCE_DIR.resolve("diffs/linenumbers/deleteMLM.txt"),
+            Constants.RESOURCE_DIR.resolve("diffs/linenumbers/elifchain.txt"),
+            Constants.RESOURCE_DIR.resolve("diffs/linenumbers/lineno1.txt"),
+            Constants.RESOURCE_DIR.resolve("diffs/move/simple.txt"),
+            Constants.RESOURCE_DIR.resolve("linux/test1.diff"),
+            Constants.RESOURCE_DIR.resolve("multilinemacros/diffWithComments.txt"),
+            Constants.RESOURCE_DIR.resolve("multilinemacros/mldiff1.txt"),
+            Constants.RESOURCE_DIR.resolve("patterns/elementary.diff"),
+            Constants.RESOURCE_DIR.resolve("pctest/a.diff"),
+            Constants.RESOURCE_DIR.resolve("pctest/elif.diff"),
+            Constants.RESOURCE_DIR.resolve("pctest/else.diff"),
+            Constants.RESOURCE_DIR.resolve("playground/ChangeMappingAddCode.diff"),
+            Constants.RESOURCE_DIR.resolve("starfold/2x2.diff"),
+            Constants.RESOURCE_DIR.resolve("starfold/nesting1.diff"),
+    };
+
+    private static final String FILE_NAME = "file.c";
+    private static final int PADDING = 20;
+
+    private static final DiffTreeLineGraphExportOptions EXPORT_OPTIONS = new DiffTreeLineGraphExportOptions(
+            GraphFormat.DIFFTREE,
+            new CommitDiffDiffTreeLabelFormat(),
+            new DebugDiffNodeFormat(),
+            new DefaultEdgeLabelFormat()
+    );
+
+    private static final ParseOptions UNIFIED_DIFF = ParseOptions.Default
+            .withDiffStoragePolicy(DiffStoragePolicy.REMEMBER_FULL_DIFF)
+            .withFullDiffConstruction(FullDiffConstruction.UNIFIED_DIFF);
+    private static final ParseOptions EDIT_LIST = UNIFIED_DIFF
+            .withFullDiffConstruction(FullDiffConstruction.EDIT_LIST);
+
+    private InMemoryRepository repo;
+    private Git git;
+
+    @Before
+    public void setUp() {
+        repo = new InMemoryRepository(new DfsRepositoryDescription("fulldiffs"));
+        git = Git.wrap(repo);
+    }
+
+    @After
+    public void tearDown() {
+        repo.close();
+    }
+
+    @Test
+    public void asIs() throws IOException {
+        testAll(UnaryOperator.identity());
+    }
+
+    /**
+     * Surrounds the diffs with unchanged lines so that hunks do not start or end at the file boundaries.
+     */
+    @Test
+    public void padded() throws IOException {
+        testAll(diff -> pad() + diff + (diff.endsWith("\n") ? "" : "\n") + pad());
+    }
+
+    /**
+     * Repeats the diffs with unchanged lines in between so that each file has multiple hunks.
+     */
+    @Test
+    public void repeated() throws IOException {
+        testAll(diff -> {
+            final String line = diff.endsWith("\n") ? diff : diff + "\n";
+            // the second gap is small enough for JGit to merge the surrounding hunks
+            return line + pad() + line + " x\n".repeat(4) + diff;
+        });
+    }
+
+    @Test
+    public void windowsLineEndings() throws IOException {
+        testAll(diff -> diff.replace("\n", "\r\n"));
+    }
+
+    /**
+     * Inserts carriage returns that are not followed by a line feed, which split lines for a
+     * {@link java.io.BufferedReader} but not for git.
+     */
+    @Test
+    public void loneCarriageReturns() throws IOException {
+        testAll(diff -> diff.replace(")", ")\r"));
+    }
+
+    @Test
+    public void missingNewlineAtEnd() throws IOException {
+        testAll(diff -> diff.endsWith("\n") ? diff.substring(0, diff.length() - 1) : diff);
+    }
+
+    private static String pad() {
+        return " x\n".repeat(PADDING);
+    }
+
+    private void testAll(final UnaryOperator<String> variant) throws IOException {
+        for (final Path fullDiff : FULL_DIFFS) {
+            test(fullDiff, variant.apply(Files.readString(fullDiff)));
+        }
+    }
+
+    private void test(final Path fullDiffFile, final String fullDiff) throws IOException {
+        final RevCommit[] commits = commitBeforeAndAfter(fullDiff);
+        final GitDiffer.Session unified = new GitDiffer.Session(git, DiffFilter.ALLOW_ALL, UNIFIED_DIFF);
+        final GitDiffer.Session edits = new GitDiffer.Session(git, DiffFilter.ALLOW_ALL, EDIT_LIST);
+        try (unified; edits) {
+            final CommitDiffResult expected = unified.createCommitDiff(commits[0], commits[1]);
+            final CommitDiffResult actual = edits.createCommitDiff(commits[0], commits[1]);
+
+            final String message = fullDiffFile.toString();
+            Assert.assertEquals(message, expected.errors(), actual.errors());
+            Assert.assertEquals(message, expected.diff().isPresent(), actual.diff().isPresent());
+            if (expected.diff().isEmpty()) {
+                return;
+            }
+
+            final List<PatchDiff> expectedPatches = expected.diff().get().getPatchDiffs();
+            final List<PatchDiff> actualPatches = actual.diff().get().getPatchDiffs();
+            Assert.assertEquals(message, expectedPatches.size(), actualPatches.size());
+            for (int i = 0; i < expectedPatches.size(); ++i) {
+                Assert.assertEquals(message, expectedPatches.get(i).getDiff(), actualPatches.get(i).getDiff());
+                Assert.assertEquals(message, export(expectedPatches.get(i).getDiffTree()), export(actualPatches.get(i).getDiffTree()));
+            }
+        }
+    }
+
+    private static String export(final DiffTree diffTree) {
+        return LineGraphExport.toLineGraphFormat(diffTree, EXPORT_OPTIONS).second();
+    }
+
+    /**
+     * Commits the file before and the file after the given full diff.
+     * @return The commit of the file before and the commit of the file after the change.
+     */
+    private RevCommit[] commitBeforeAndAfter(final String fullDiff) throws IOException {
+        final StringBuilder before = new StringBuilder();
+        final StringBuilder after = new StringBuilder();
+        for (final String line : fullDiff.split("(?<=\n)")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            switch (line.charAt(0)) {
+                case '-' -> before.append(line.substring(1));
+                case '+' -> after.append(line.substring(1));
+                case ' ' -> {
+                    before.append(line.substring(1));
+                    after.append(line.substring(1));
+                }
+                // empty lines without a leading space
+                default -> {
+                    before.append(line);
+                    after.append(line);
+                }
+            }
+        }
+
+        try (ObjectInserter inserter = repo.newObjectInserter()) {
+            final ObjectId parent = commit(inserter, before.toString(), null);
+            final ObjectId child = commit(inserter, after.toString(), parent);
+            inserter.flush();
+            return new RevCommit[] {
+                    repo.parseCommit(parent),
+                    repo.parseCommit(child)
+            };
+        }
+    }
+
+    private static ObjectId commit(final ObjectInserter inserter, final String file, final ObjectId parent) throws IOException {
+        final TreeFormatter tree = new TreeFormatter();
+        tree.append(FILE_NAME, FileMode.REGULAR_FILE, inserter.insert(org.eclipse.jgit.lib.Constants.OBJ_BLOB, file.getBytes(StandardCharsets.UTF_8)));
+
+        final PersonIdent author = new PersonIdent("DiffDetective", "diffdetective@example.org");
+        final CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(inserter.insert(tree));
+        commit.setAuthor(author);
+        commit.setCommitter(author);
+        commit.setMessage("commit");
+        if (parent != null) {
+            commit.setParentId(parent);
+        }
+        return inserter.insert(commit);
+    }
+}
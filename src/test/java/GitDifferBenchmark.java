@@ -0,0 +1,54 @@
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.tinylog.Logger;
+import org.variantsync.diffdetective.datasets.DatasetFactory;
+import org.variantsync.diffdetective.datasets.Repository;
+import org.variantsync.diffdetective.diff.GitDiffer;
+import org.variantsync.diffdetective.util.Clock;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Compares the throughput of {@link GitDiffer} when opening a new {@link GitDiffer.Session} for each commit
+ * (which is how commits were diffed before sessions existed) against reusing one session for all commits.
+ * <p>
+ * Usage: <code>GitDifferBenchmark &lt;path to local git repository&gt; [number of commits]</code>
+ */
+public class GitDifferBenchmark {
+    private static final int DEFAULT_NUMBER_OF_COMMITS = 2000;
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) {
+        final Path repoPath = args.length > 0 ? Path.of(args[0]) : Path.of("..", "DiffDetectiveMining", "linux");
+        final int numberOfCommits = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_NUMBER_OF_COMMITS;
+
+        final Repository repo = Repository
+                .fromDirectory(repoPath, repoPath.getFileName().toString())
+                .setDiffFilter(DatasetFactory.DEFAULT_DIFF_FILTER);
+        final GitDiffer differ = new GitDiffer(repo);
+        final List<RevCommit> commits = differ.yieldRevCommits().toList().stream().limit(numberOfCommits).toList();
+        Logger.info("Benchmarking {} commits of {}", commits.size(), repoPath);
+
+        for (int run = 0; run < RUNS; ++run) {
+            measure("session per commit", commits, c -> differ.createCommitDiff(c));
+
+            try (final GitDiffer.Session session = differ.openSession()) {
+                measure("session per task", commits, session::createCommitDiff);
+            }
+        }
+    }
+
+    private static void measure(final String name, final List<RevCommit> commits, final Consumer<RevCommit> diff) {
+        final Clock clock = new Clock();
+        for (final RevCommit commit : commits) {
+            diff.accept(commit);
+        }
+        final double seconds = clock.getPassedSeconds();
+        Logger.info("{}: {} commits in {} ({} commits/s)",
+                name,
+                commits.size(),
+                Clock.printPassedSeconds(seconds),
+                String.format("%.2f", commits.size() / seconds));
+    }
+}
@@ -0,0 +1,121 @@
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.variantsync.diffdetective.analysis.AnalysisResult;
+import org.variantsync.diffdetective.analysis.CommitHistoryAnalysisTaskFactory;
+import org.variantsync.diffdetective.analysis.HistoryAnalysis;
+import org.variantsync.diffdetective.analysis.ProcessedCommitsIndex;
+import org.variantsync.diffdetective.datasets.Repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+public class IncrementalAnalysisTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Commits analyzed by the tasks created by {@link IncrementalAnalysisTest#COUNT_COMMITS}.
+     */
+    private final List<ObjectId> analyzedCommits = Collections.synchronizedList(new ArrayList<>());
+
+    private final CommitHistoryAnalysisTaskFactory COUNT_COMMITS = TestUtils.countCommits(analyzedCommits);
+
+    @Test
+    public void indexRoundTrip() throws IOException {
+        final ProcessedCommitsIndex index = new ProcessedCommitsIndex();
+        final ObjectId a = ObjectId.fromString("0123456789012345678901234567890123456789");
+        final ObjectId b = ObjectId.fromString("9876543210987654321098765432109876543210");
+        index.addAll(List.of(a, b));
+        index.addHead(b);
+
+        final Path file = temporaryFolder.getRoot().toPath().resolve(ProcessedCommitsIndex.FILE_NAME);
+        index.save(file);
+        final ProcessedCommitsIndex loaded = ProcessedCommitsIndex.load(file);
+
+        Assert.assertEquals(2, loaded.size());
+        Assert.assertTrue(loaded.contains(a));
+        Assert.assertTrue(loaded.contains(b));
+        Assert.assertEquals(List.of(b), loaded.getHeads());
+    }
+
+    @Test
+    public void onlyNewCommitsAreAnalyzed() throws IOException, GitAPIException {
+        final Path repoDir = temporaryFolder.newFolder("repo").toPath();
+        final Path outputDir = temporaryFolder.newFolder("output").toPath();
+
+        try (Git git = TestUtils.initWithEmptyCommits(repoDir, 5)) {
+
+            final Repository repo = Repository.fromDirectory(repoDir, "incremental");
+            HistoryAnalysis.analyzeIncrementally(repo, outputDir, COUNT_COMMITS, 2);
+            // the root commit has no parent and is thus not analyzed
+            Assert.assertEquals(4, analyzedCommits.size());
+
+            final List<ObjectId> firstRun = new ArrayList<>(analyzedCommits);
+            analyzedCommits.clear();
+            for (int i = 0; i < 3; ++i) {
+                TestUtils.commit(git, "second " + i);
+            }
+
+            HistoryAnalysis.analyzeIncrementally(repo, outputDir, COUNT_COMMITS, 2);
+            Assert.assertEquals(3, analyzedCommits.size());
+            Assert.assertTrue(Collections.disjoint(firstRun, analyzedCommits));
+
+            analyzedCommits.clear();
+            HistoryAnalysis.analyzeIncrementally(repo, outputDir, COUNT_COMMITS, 2);
+            Assert.assertEquals(Set.of(), Set.copyOf(analyzedCommits));
+        }
+
+        final AnalysisResult totalResult = AnalysisResult.importFrom(outputDir.resolve(HistoryAnalysis.TOTAL_RESULTS_FILE_NAME), new HashMap<>());
+        Assert.assertEquals(8, totalResult.totalCommits);
+        Assert.assertEquals(7, totalResult.exportedCommits);
+        Assert.assertEquals(8, ProcessedCommitsIndex.load(outputDir.resolve(ProcessedCommitsIndex.FILE_NAME)).size());
+    }
+
+    /**
+     * Simulates analyses that died between writing the total result and the index.
+     * Commits must neither be counted twice nor be missing from the total result.
+     */
+    @Test
+    public void totalResultAndIndexStayConsistent() throws IOException, GitAPIException {
+        final Path repoDir = temporaryFolder.newFolder("repo").toPath();
+        final Path outputDir = temporaryFolder.newFolder("output").toPath();
+        final Path totalResultFile = outputDir.resolve(HistoryAnalysis.TOTAL_RESULTS_FILE_NAME);
+        final Path pendingTotalResultFile = outputDir.resolve(HistoryAnalysis.TOTAL_RESULTS_FILE_NAME + ".tmp");
+
+        try (Git git = TestUtils.initWithEmptyCommits(repoDir, 3)) {
+            final Repository repo = Repository.fromDirectory(repoDir, "incremental");
+            HistoryAnalysis.analyzeIncrementally(repo, outputDir, COUNT_COMMITS, 2);
+            final String firstTotalResult = Files.readString(totalResultFile);
+
+            for (int i = 0; i < 2; ++i) {
+                TestUtils.commit(git, "second " + i);
+            }
+            HistoryAnalysis.analyzeIncrementally(repo, outputDir, COUNT_COMMITS, 2);
+
+            // died after saving the index but before moving the total result
+            Files.move(totalResultFile, pendingTotalResultFile);
+            Files.writeString(totalResultFile, firstTotalResult);
+            analyzedCommits.clear();
+            HistoryAnalysis.analyzeIncrementally(repo, outputDir, COUNT_COMMITS, 2);
+            Assert.assertEquals(List.of(), analyzedCommits);
+            Assert.assertEquals(4, AnalysisResult.importFrom(totalResultFile, new HashMap<>()).exportedCommits);
+
+            // the total result does not belong to the index and no pending total result is left
+            Files.writeString(totalResultFile, firstTotalResult);
+            HistoryAnalysis.analyzeIncrementally(repo, outputDir, COUNT_COMMITS, 2);
+            Assert.assertEquals(4, analyzedCommits.size());
+            Assert.assertEquals(4, AnalysisResult.importFrom(totalResultFile, new HashMap<>()).exportedCommits);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.variantsync.diffdetective.analysis.AnalysisResult;
+import org.variantsync.diffdetective.analysis.CommitHistoryAnalysisTaskFactory;
+import org.variantsync.diffdetective.analysis.HistoryAnalysis;
+import org.variantsync.diffdetective.datasets.Repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+public class InterleavedAnalysisTest {
+    /**
+     * Number of commits of each repository, including the root commit which is never analyzed.
+     */
+    private static final int[] NUMBER_OF_COMMITS = {1, 2, 7, 12};
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Commits analyzed by the tasks created by {@link InterleavedAnalysisTest#COUNT_COMMITS}.
+     */
+    private final List<ObjectId> analyzedCommits = Collections.synchronizedList(new ArrayList<>());
+
+    private final CommitHistoryAnalysisTaskFactory COUNT_COMMITS = TestUtils.countCommits(analyzedCommits);
+
+    @Test
+    public void eachRepositoryGetsItsOwnResult() throws IOException, GitAPIException {
+        final List<Repository> repos = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_COMMITS.length; ++i) {
+            repos.add(TestUtils.createRepositoryWithEmptyCommits(temporaryFolder.newFolder("repo" + i).toPath(), NUMBER_OF_COMMITS[i]));
+        }
+        final Path outputDir = temporaryFolder.newFolder("output").toPath();
+        final List<Path> postProcessed = Collections.synchronizedList(new ArrayList<>());
+
+        new HistoryAnalysis(
+                repos,
+                outputDir,
+                2,
+                COUNT_COMMITS,
+                postProcessed::add,
+                HistoryAnalysis.COMMIT_ENUMERATION_DEFAULT,
+                false
+        ).runInterleaved();
+
+        int expectedCommits = 0;
+        for (int i = 0; i < NUMBER_OF_COMMITS.length; ++i) {
+            final Path repoOutputDir = outputDir.resolve("repo" + i);
+            final AnalysisResult result = AnalysisResult.importFrom(repoOutputDir.resolve(HistoryAnalysis.TOTAL_RESULTS_FILE_NAME), new HashMap<>());
+            Assert.assertEquals(NUMBER_OF_COMMITS[i], result.totalCommits);
+            Assert.assertEquals(NUMBER_OF_COMMITS[i] - 1, result.exportedCommits);
+            Assert.assertTrue(postProcessed.contains(repoOutputDir));
+            expectedCommits += NUMBER_OF_COMMITS[i] - 1;
+        }
+        Assert.assertEquals(NUMBER_OF_COMMITS.length, postProcessed.size());
+        Assert.assertEquals(expectedCommits, analyzedCommits.size());
+    }
+
+    @Test
+    public void processedRepositoriesAreSkipped() throws IOException, GitAPIException {
+        final Repository repo = TestUtils.createRepositoryWithEmptyCommits(temporaryFolder.newFolder("processed").toPath(), 3);
+        final Path outputDir = temporaryFolder.newFolder("output").toPath();
+        Files.createDirectories(outputDir.resolve("processed"));
+        Files.writeString(outputDir.resolve("processed").resolve(HistoryAnalysis.TOTAL_RESULTS_FILE_NAME), "");
+
+        new HistoryAnalysis(List.of(repo), outputDir, 2, COUNT_COMMITS, path -> Assert.fail()).runInterleaved();
+
+        Assert.assertTrue(analyzedCommits.isEmpty());
+    }
+}
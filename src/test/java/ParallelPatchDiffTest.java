@@ -0,0 +1,106 @@
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.variantsync.diffdetective.datasets.ParseOptions;
+import org.variantsync.diffdetective.diff.CommitDiff;
+import org.variantsync.diffdetective.diff.DiffFilter;
+import org.variantsync.diffdetective.diff.GitDiffer;
+import org.variantsync.diffdetective.diff.PatchDiff;
+import org.variantsync.diffdetective.diff.result.CommitDiffResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class ParallelPatchDiffTest {
+    private static final int NUMBER_OF_FILES = 64;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Git git;
+    private RevCommit hugeCommit;
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        final Path dir = temporaryFolder.getRoot().toPath();
+        git = Git.init().setDirectory(dir.toFile()).call();
+
+        for (int i = 0; i < NUMBER_OF_FILES; ++i) {
+            Files.writeString(dir.resolve("file" + i + ".c"), "int x" + i + ";\n", StandardCharsets.UTF_8);
+        }
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("add files").call();
+
+        for (int i = 0; i < NUMBER_OF_FILES; ++i) {
+            Files.writeString(
+                    dir.resolve("file" + i + ".c"),
+                    "int x" + i + ";\n#if defined(A" + i + ")\nint y;\n#endif\n",
+                    StandardCharsets.UTF_8);
+        }
+        // one file with a syntax error to check that errors are reported, too
+        Files.writeString(dir.resolve("file0.c"), "int x0;\n#endif\n", StandardCharsets.UTF_8);
+        git.add().addFilepattern(".").call();
+        hugeCommit = git.commit().setMessage("change all files").call();
+    }
+
+    @After
+    public void tearDown() {
+        git.close();
+    }
+
+    private CommitDiffResult diff(final ParseOptions parseOptions) throws IOException {
+        try (GitDiffer.Session session = new GitDiffer.Session(git, DiffFilter.ALLOW_ALL, parseOptions)) {
+            return session.createCommitDiff(session.getRevWalk().parseCommit(hugeCommit));
+        }
+    }
+
+    private static final ParseOptions SEQUENTIAL = ParseOptions.Default
+            .withDiffStoragePolicy(ParseOptions.DiffStoragePolicy.REMEMBER_FULL_DIFF);
+    private static final ParseOptions PARALLEL = SEQUENTIAL.withParallelPatchThreshold(2);
+
+    @Test
+    public void parallelDiffEqualsSequentialDiff() throws IOException {
+        assertEqualDiffs(diff(SEQUENTIAL), diff(PARALLEL));
+    }
+
+    /**
+     * Helpers are forked into the pool of the current thread instead of running on their own threads.
+     */
+    @Test
+    public void parallelDiffInForkJoinPool() throws Exception {
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            assertEqualDiffs(diff(SEQUENTIAL), pool.submit(() -> diff(PARALLEL)).get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertEqualDiffs(final CommitDiffResult sequential, final CommitDiffResult parallel) {
+
+        Assert.assertEquals(1, sequential.errors().size());
+        Assert.assertEquals(sequential.errors(), parallel.errors());
+
+        final List<PatchDiff> sequentialPatches = sequential.diff().map(CommitDiff::getPatchDiffs).orElseThrow();
+        final List<PatchDiff> parallelPatches = parallel.diff().map(CommitDiff::getPatchDiffs).orElseThrow();
+        Assert.assertEquals(NUMBER_OF_FILES - 1, sequentialPatches.size());
+        Assert.assertEquals(sequentialPatches.size(), parallelPatches.size());
+        for (int i = 0; i < sequentialPatches.size(); ++i) {
+            Assert.assertEquals(sequentialPatches.get(i).getFileName(), parallelPatches.get(i).getFileName());
+            Assert.assertEquals(sequentialPatches.get(i).getDiff(), parallelPatches.get(i).getDiff());
+            Assert.assertEquals(
+                    sequentialPatches.get(i).getDiffTree().computeSize(),
+                    parallelPatches.get(i).getDiffTree().computeSize());
+        }
+    }
+}
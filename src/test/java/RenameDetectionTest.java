@@ -0,0 +1,113 @@
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.variantsync.diffdetective.datasets.ParseOptions;
+import org.variantsync.diffdetective.diff.CommitDiff;
+import org.variantsync.diffdetective.diff.DiffFilter;
+import org.variantsync.diffdetective.diff.GitDiffer;
+import org.variantsync.diffdetective.diff.PatchDiff;
+import org.variantsync.diffdetective.diff.result.CommitDiffResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class RenameDetectionTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Git git;
+    private RevCommit renameCommit;
+
+    private static String content(final String name) {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20; ++i) {
+            content.append("#ifdef ").append(name.toUpperCase()).append('\n');
+            content.append("int ").append(name).append(i).append(";\n");
+            content.append("#endif\n");
+        }
+        return content.toString();
+    }
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        final Path dir = temporaryFolder.getRoot().toPath();
+        git = Git.init().setDirectory(dir.toFile()).call();
+
+        for (final String name : List.of("a", "b")) {
+            Files.writeString(dir.resolve(name + ".c"), content(name), StandardCharsets.UTF_8);
+        }
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage("add files").call();
+
+        // rename both files and change one line of each file
+        for (final String name : List.of("a", "b")) {
+            Files.delete(dir.resolve(name + ".c"));
+            Files.writeString(dir.resolve(name + "_renamed.c"), content(name) + "int " + name + ";\n", StandardCharsets.UTF_8);
+        }
+        git.add().addFilepattern(".").call();
+        git.add().setUpdate(true).addFilepattern(".").call();
+        renameCommit = git.commit().setMessage("rename files").call();
+    }
+
+    @After
+    public void tearDown() {
+        git.close();
+    }
+
+    /**
+     * Diffs the commit renaming the files with the given rename detection and returns the
+     * change types of all patches that could be diffed.
+     * Added files cannot be diffed because they do not exist before the commit.
+     */
+    private List<DiffEntry.ChangeType> diff(final ParseOptions parseOptions, final int expectedCommitsOverRenameLimit) throws IOException {
+        try (GitDiffer.Session session = new GitDiffer.Session(git, DiffFilter.ALLOW_ALL, parseOptions)) {
+            final CommitDiffResult result = session.createCommitDiff(session.getRevWalk().parseCommit(renameCommit));
+            Assert.assertEquals(expectedCommitsOverRenameLimit, session.getNumberOfCommitsOverRenameLimit());
+
+            final CommitDiff commitDiff = result.diff().orElseThrow();
+            return commitDiff.getPatchDiffs().stream()
+                    .map(PatchDiff::getChangeType)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void off() throws IOException {
+        Assert.assertEquals(
+                List.of(DiffEntry.ChangeType.DELETE, DiffEntry.ChangeType.DELETE),
+                diff(ParseOptions.Default.withRenameDetection(ParseOptions.RenameDetection.OFF), 0));
+    }
+
+    @Test
+    public void on() throws IOException {
+        Assert.assertEquals(
+                List.of(DiffEntry.ChangeType.RENAME, DiffEntry.ChangeType.RENAME),
+                diff(ParseOptions.Default.withRenameDetection(ParseOptions.RenameDetection.ON), 0));
+    }
+
+    @Test
+    public void adaptiveBelowLimit() throws IOException {
+        Assert.assertEquals(
+                List.of(DiffEntry.ChangeType.RENAME, DiffEntry.ChangeType.RENAME),
+                diff(ParseOptions.Default.withAdaptiveRenameDetection(2), 0));
+    }
+
+    @Test
+    public void adaptiveOverLimit() throws IOException {
+        Assert.assertEquals(
+                List.of(DiffEntry.ChangeType.DELETE, DiffEntry.ChangeType.DELETE),
+                diff(ParseOptions.Default.withAdaptiveRenameDetection(1), 1));
+    }
+}
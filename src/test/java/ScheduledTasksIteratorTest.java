@@ -0,0 +1,126 @@
+import org.junit.Assert;
+import org.junit.Test;
+import org.variantsync.diffdetective.parallel.ScheduledTasksIterator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+public class ScheduledTasksIteratorTest {
+    private static final int NUMBER_OF_TASKS = 20;
+
+    /**
+     * Creates tasks returning their index where the first task blocks until the given latch is released.
+     */
+    private static List<Callable<Integer>> tasks(final CountDownLatch firstTaskMayFinish, final AtomicInteger startedTasks) {
+        return IntStream.range(0, NUMBER_OF_TASKS).mapToObj(i -> (Callable<Integer>) () -> {
+            startedTasks.incrementAndGet();
+            if (i == 0) {
+                Assert.assertTrue(firstTaskMayFinish.await(30, TimeUnit.SECONDS));
+            }
+            return i;
+        }).toList();
+    }
+
+    @Test
+    public void submissionOrder() throws Exception {
+        final CountDownLatch firstTaskMayFinish = new CountDownLatch(1);
+        firstTaskMayFinish.countDown();
+        final List<Integer> results = new ArrayList<>();
+        try (ScheduledTasksIterator<Integer> iterator = new ScheduledTasksIterator<>(
+                tasks(firstTaskMayFinish, new AtomicInteger()).iterator(), 4, ScheduledTasksIterator.Order.SUBMISSION, 3)) {
+            iterator.forEachRemaining(results::add);
+        }
+        Assert.assertEquals(IntStream.range(0, NUMBER_OF_TASKS).boxed().toList(), results);
+    }
+
+    @Test
+    public void completionOrderDoesNotWaitForSlowTasks() throws Exception {
+        final CountDownLatch firstTaskMayFinish = new CountDownLatch(1);
+        final List<Integer> results = new ArrayList<>();
+        try (ScheduledTasksIterator<Integer> iterator = new ScheduledTasksIterator<>(
+                tasks(firstTaskMayFinish, new AtomicInteger()).iterator(), 2, ScheduledTasksIterator.Order.COMPLETION, 0)) {
+            // All other tasks have to be run on the second thread while the first task is blocked.
+            for (int i = 1; i < NUMBER_OF_TASKS; ++i) {
+                results.add(iterator.next());
+            }
+            firstTaskMayFinish.countDown();
+            results.add(iterator.next());
+            Assert.assertFalse(iterator.hasNext());
+        }
+        Assert.assertEquals(0, (int) results.get(NUMBER_OF_TASKS - 1));
+        Assert.assertEquals(IntStream.range(0, NUMBER_OF_TASKS).boxed().toList(), results.stream().sorted().toList());
+    }
+
+    @Test
+    public void submissionOrderBuffersBoundedResults() throws Exception {
+        final int nThreads = 2;
+        final int maxBufferedResults = 3;
+        final CountDownLatch firstTaskMayFinish = new CountDownLatch(1);
+        final AtomicInteger startedTasks = new AtomicInteger();
+        try (ScheduledTasksIterator<Integer> iterator = new ScheduledTasksIterator<>(
+                tasks(firstTaskMayFinish, startedTasks).iterator(), nThreads, ScheduledTasksIterator.Order.SUBMISSION, maxBufferedResults)) {
+            // Wait until no more tasks are scheduled while the first task is blocked.
+            Thread.sleep(200);
+            Assert.assertEquals(nThreads + maxBufferedResults, startedTasks.get());
+
+            firstTaskMayFinish.countDown();
+            for (int i = 0; i < NUMBER_OF_TASKS; ++i) {
+                Assert.assertEquals(i, (int) iterator.next());
+            }
+            Assert.assertFalse(iterator.hasNext());
+        }
+    }
+
+    /**
+     * A lazy task iterator that is slow and may only be used by the thread that created it, like a walk over
+     * the history of a repository.
+     */
+    private static class ThreadConfinedTasks implements Iterator<Callable<Integer>> {
+        private final Thread owner = Thread.currentThread();
+        private final AtomicInteger foreignAccesses = new AtomicInteger();
+        private int next = 0;
+
+        private void checkThread() {
+            if (Thread.currentThread() != owner) {
+                foreignAccesses.incrementAndGet();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            checkThread();
+            return next < NUMBER_OF_TASKS;
+        }
+
+        @Override
+        public Callable<Integer> next() {
+            checkThread();
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            final int i = next++;
+            return () -> i;
+        }
+    }
+
+    @Test
+    public void slowTaskIteratorIsOnlyUsedByTheConsumer() throws Exception {
+        for (final ScheduledTasksIterator.Order order : ScheduledTasksIterator.Order.values()) {
+            final ThreadConfinedTasks tasks = new ThreadConfinedTasks();
+            final List<Integer> results = new ArrayList<>();
+            try (ScheduledTasksIterator<Integer> iterator = new ScheduledTasksIterator<>(tasks, 4, order, 2)) {
+                iterator.forEachRemaining(results::add);
+            }
+            Assert.assertEquals(0, tasks.foreignAccesses.get());
+            Assert.assertEquals(IntStream.range(0, NUMBER_OF_TASKS).boxed().toList(), results.stream().sorted().toList());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import org.tinylog.Logger;
+import org.variantsync.diffdetective.parallel.ScheduledTasksIterator;
+import org.variantsync.diffdetective.parallel.WorkStealingScheduler;
+import org.variantsync.diffdetective.util.Clock;
+
+import java.util.concurrent.Callable;
+import java.util.stream.IntStream;
+
+/**
+ * Compares both orders of the {@link ScheduledTasksIterator} with the {@link WorkStealingScheduler} on a synthetic history
+ * in which a few commits are much more expensive than all others (e.g., vendor drops or tree-wide refactorings).
+ * Each commit is simulated by sleeping.
+ * For each scheduler, the time until all batches finished and the time during which threads were idle are
+ * reported.
+ * <p>
+ * Usage: <code>SchedulingBenchmark [number of threads] [commits per batch]</code>
+ */
+public class SchedulingBenchmark {
+    private static final int NUMBER_OF_COMMITS = 4000;
+    private static final long CHEAP_COMMIT_MILLISECONDS = 1;
+    private static final long EXPENSIVE_COMMIT_MILLISECONDS = 2000;
+    /**
+     * Every commit with an index that is a multiple of this number is expensive.
+     */
+    private static final int EXPENSIVE_COMMIT_PERIOD = 1500;
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws Exception {
+        final int nThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        final int commitsPerBatch = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        final long work = IntStream.range(0, NUMBER_OF_COMMITS).mapToLong(SchedulingBenchmark::cost).sum();
+        Logger.info("Scheduling {} commits ({}s of work) in batches of {} on {} threads",
+                NUMBER_OF_COMMITS, work / 1000.0, commitsPerBatch, nThreads);
+
+        for (int run = 0; run < RUNS; ++run) {
+            for (final ScheduledTasksIterator.Order order : ScheduledTasksIterator.Order.values()) {
+                final Clock clock = new Clock();
+                try (final ScheduledTasksIterator<Integer> results = new ScheduledTasksIterator<>(
+                        IntStream.iterate(0, from -> from < NUMBER_OF_COMMITS, from -> from + commitsPerBatch)
+                                .mapToObj(from -> (Callable<Integer>) () -> process(from, Math.min(from + commitsPerBatch, NUMBER_OF_COMMITS)))
+                                .iterator(),
+                        nThreads,
+                        order,
+                        0)) {
+                    while (results.hasNext()) {
+                        results.next();
+                    }
+                }
+                report("ScheduledTasksIterator (" + order + " order)", clock.getPassedSeconds(), work, nThreads);
+            }
+
+            final Clock clock = new Clock();
+            new WorkStealingScheduler<Integer>(nThreads, commitsPerBatch, SchedulingBenchmark::process, result -> {})
+                    .run(NUMBER_OF_COMMITS);
+            report("WorkStealingScheduler", clock.getPassedSeconds(), work, nThreads);
+        }
+    }
+
+    private static long cost(int commit) {
+        return commit % EXPENSIVE_COMMIT_PERIOD == 0 ? EXPENSIVE_COMMIT_MILLISECONDS : CHEAP_COMMIT_MILLISECONDS;
+    }
+
+    private static int process(int from, int to) throws InterruptedException {
+        for (int commit = from; commit < to; ++commit) {
+            Thread.sleep(cost(commit));
+        }
+        return to - from;
+    }
+
+    private static void report(final String scheduler, double seconds, long workInMilliseconds, int nThreads) {
+        final double idleSeconds = seconds * nThreads - workInMilliseconds / 1000.0;
+        Logger.info("{}: finished after {} with {} idle thread seconds",
+                scheduler,
+                Clock.printPassedSeconds(seconds),
+                String.format("%.2f", idleSeconds));
+    }
+}
@@ -1,10 +1,21 @@
 import org.apache.commons.io.IOUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.variantsync.diffdetective.analysis.AnalysisResult;
+import org.variantsync.diffdetective.analysis.CommitHistoryAnalysisTask;
+import org.variantsync.diffdetective.analysis.CommitHistoryAnalysisTaskFactory;
+import org.variantsync.diffdetective.datasets.Repository;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
 public final class TestUtils {
@@ -20,4 +31,63 @@ public final class TestUtils {
                     IOUtils.contentEqualsIgnoreEOL(expected, new StringReader(actual)));
         }
     }
+
+    /**
+     * Creates tasks which do not analyze anything but only record the ids of their commits.
+     * Each recorded commit is counted as exported.
+     *
+     * @param analyzedCommits receives the ids of all commits handed to the tasks; has to be thread-safe
+     */
+    public static CommitHistoryAnalysisTaskFactory countCommits(final List<ObjectId> analyzedCommits) {
+        return (repository, differ, outputPath, commits) ->
+                new CommitHistoryAnalysisTask(new CommitHistoryAnalysisTask.Options(repository, differ, outputPath, null, null, commits)) {
+                    @Override
+                    public AnalysisResult call() {
+                        final AnalysisResult result = new AnalysisResult(repository.getRepositoryName());
+                        for (final RevCommit commit : commits) {
+                            // commits are parsed by the thread running this task
+                            assertNotNull(commit.getTree());
+                            analyzedCommits.add(commit.getId());
+                            ++result.exportedCommits;
+                        }
+                        return result;
+                    }
+                };
+    }
+
+    /**
+     * Commits the current state of the index of {@code git}, even if nothing changed.
+     */
+    public static void commit(final Git git, final String message) throws GitAPIException {
+        git.commit().setAllowEmpty(true).setMessage(message).call();
+    }
+
+    /**
+     * Initializes a git repository in {@code directory} with a linear history of {@code numberOfCommits} empty commits.
+     * The caller is responsible for closing the returned {@link Git}.
+     */
+    public static Git initWithEmptyCommits(final Path directory, int numberOfCommits) throws GitAPIException {
+        final Git git = Git.init().setDirectory(directory.toFile()).call();
+        try {
+            for (int i = 0; i < numberOfCommits; ++i) {
+                // distinct messages keep the commits of different repositories apart
+                commit(git, directory.getFileName() + " " + i);
+            }
+        } catch (GitAPIException | RuntimeException e) {
+            git.close();
+            throw e;
+        }
+        return git;
+    }
+
+    /**
+     * Creates a {@link Repository} named after {@code directory} with a linear history of
+     * {@code numberOfCommits} empty commits.
+     *
+     * @see #initWithEmptyCommits
+     */
+    public static Repository createRepositoryWithEmptyCommits(final Path directory, int numberOfCommits) throws GitAPIException {
+        initWithEmptyCommits(directory, numberOfCommits).close();
+        return Repository.fromDirectory(directory, directory.getFileName().toString());
+    }
 }
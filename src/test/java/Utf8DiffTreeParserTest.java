@@ -0,0 +1,104 @@
+import org.junit.Assert;
+import org.junit.Test;
+import org.variantsync.diffdetective.diff.LineSlices;
+import org.variantsync.diffdetective.diff.difftree.DiffNode;
+import org.variantsync.diffdetective.diff.difftree.DiffTree;
+import org.variantsync.diffdetective.diff.difftree.parse.DiffNodeParser;
+import org.variantsync.diffdetective.diff.difftree.parse.DiffTreeParser;
+import org.variantsync.diffdetective.diff.difftree.serialize.DiffTreeLineGraphExportOptions;
+import org.variantsync.diffdetective.diff.difftree.serialize.GraphFormat;
+import org.variantsync.diffdetective.diff.difftree.serialize.LineGraphExport;
+import org.variantsync.diffdetective.diff.difftree.serialize.edgeformat.DefaultEdgeLabelFormat;
+import org.variantsync.diffdetective.diff.difftree.serialize.nodeformat.DebugDiffNodeFormat;
+import org.variantsync.diffdetective.diff.difftree.serialize.treeformat.CommitDiffDiffTreeLabelFormat;
+import org.variantsync.diffdetective.diff.result.DiffError;
+import org.variantsync.functjonal.Result;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Checks that parsing UTF-8 encoded diffs yields the same {@link DiffTree}s as parsing decoded diffs.
+ */
+public class Utf8DiffTreeParserTest {
+    private static final DiffTreeLineGraphExportOptions EXPORT_OPTIONS = new DiffTreeLineGraphExportOptions(
+            GraphFormat.DIFFTREE,
+            new CommitDiffDiffTreeLabelFormat(),
+            new DebugDiffNodeFormat(),
+            new DefaultEdgeLabelFormat()
+    );
+
+    private static List<String> testDiffs() throws IOException {
+        final List<String> diffs = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(Constants.RESOURCE_DIR)) {
+            for (final Path file : files.filter(f -> f.toString().endsWith(".diff")).toList()) {
+                diffs.add(Files.readString(file, StandardCharsets.UTF_8));
+            }
+        }
+        diffs.add(" int a;\r\n+#ifdef A\r\n+  int b; // ä\r\n+#endif\r\n \r\n- \r\n");
+        diffs.add("+#define M \\\n+  x \\\r+  y\n #if A \\\n   && B\n  ü\n #endif");
+        diffs.add("+#endif\n");
+        diffs.add("");
+        return diffs;
+    }
+
+    private static String describe(final Result<DiffTree, DiffError> result) {
+        if (result.isFailure()) {
+            return "failure: " + result.getFailure();
+        }
+
+        final DiffTree tree = result.getSuccess();
+        final StringBuilder description = new StringBuilder(LineGraphExport.toLineGraphFormat(tree, EXPORT_OPTIONS).second());
+        tree.forAll(node -> description.append(node.getLabel()).append('\n'));
+        return description.toString();
+    }
+
+    @Test
+    public void bytesAndStringsYieldTheSameTrees() throws IOException {
+        for (final String diff : testDiffs()) {
+            for (final boolean collapseMultipleCodeLines : new boolean[]{false, true}) {
+                for (final boolean ignoreEmptyLines : new boolean[]{false, true}) {
+                    final String expected = describe(DiffTreeParser.createDiffTree(diff, collapseMultipleCodeLines, ignoreEmptyLines, DiffNodeParser.Default).unwrap());
+
+                    final byte[] bytes = ("padding\n" + diff + "padding").getBytes(StandardCharsets.UTF_8);
+                    final int offset = "padding\n".length();
+                    final int length = bytes.length - offset - "padding".length();
+                    Assert.assertEquals(diff, expected, describe(DiffTreeParser.createDiffTree(bytes, offset, length, collapseMultipleCodeLines, ignoreEmptyLines, DiffNodeParser.Default).unwrap()));
+
+                    final ByteBuffer direct = ByteBuffer.allocateDirect(length);
+                    direct.put(bytes, offset, length).flip();
+                    Assert.assertEquals(diff, expected, describe(DiffTreeParser.createDiffTree(direct, collapseMultipleCodeLines, ignoreEmptyLines, DiffNodeParser.Default).unwrap()));
+                    Assert.assertEquals(0, direct.position());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void codeLinesAreSlices() {
+        final byte[] diff = "+int a;\n+int b;\n-int c;\n".getBytes(StandardCharsets.UTF_8);
+        final DiffTree tree = DiffTreeParser.createDiffTree(diff, 0, diff.length, true, true, DiffNodeParser.Default).unwrap().getSuccess();
+
+        final List<DiffNode> code = new ArrayList<>();
+        tree.forAll(node -> {
+            if (node.isCode()) {
+                code.add(node);
+            }
+        });
+        Assert.assertEquals(2, code.size());
+        Assert.assertTrue(code.get(0).getLines() instanceof LineSlices);
+        Assert.assertEquals(List.of("int a;", "int b;"), code.get(0).getLines());
+        Assert.assertEquals("int c;", code.get(1).getLabel());
+
+        code.get(0).setLabel("x\ny");
+        Assert.assertEquals(List.of("x", "y"), code.get(0).getLines());
+        code.get(0).addLines(code.get(1).getLines());
+        Assert.assertEquals(List.of("x", "y", "int c;"), code.get(0).getLines());
+    }
+}
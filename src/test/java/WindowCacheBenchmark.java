@@ -0,0 +1,107 @@
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.tinylog.Logger;
+import org.variantsync.diffdetective.datasets.DatasetFactory;
+import org.variantsync.diffdetective.datasets.Repository;
+import org.variantsync.diffdetective.datasets.WindowCacheOptions;
+import org.variantsync.diffdetective.diff.GitDiffer;
+import org.variantsync.diffdetective.util.Clock;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Sweeps {@link WindowCacheOptions} on a local repository and reports the throughput of diffing commits
+ * together with the peak heap usage.
+ * Memory mapped packs are not part of the heap, so their memory is not included in the reported peak.
+ * <p>
+ * JGit clears its cache whenever options are installed, so each configuration starts with a cold cache.
+ * <p>
+ * Usage: <code>WindowCacheBenchmark &lt;path to local git repository&gt; [number of commits]</code>
+ */
+public class WindowCacheBenchmark {
+    private static final int DEFAULT_NUMBER_OF_COMMITS = 2000;
+    private static final int RUNS = 3;
+    private static final int MiB = 1024 * 1024;
+
+    private record Configuration(String name, WindowCacheOptions options) {}
+
+    private static final List<Configuration> CONFIGURATIONS = List.of(
+            new Configuration("default", WindowCacheOptions.Default),
+            new Configuration("mmap", WindowCacheOptions.Default.withPackedGitMMAP(true)),
+            new Configuration("4 KiB windows", WindowCacheOptions.Default.withPackedGitWindowSize(4 * WindowCacheConfig.KB)),
+            new Configuration("64 KiB windows", WindowCacheOptions.Default.withPackedGitWindowSize(64 * WindowCacheConfig.KB)),
+            new Configuration("256 MiB packs", WindowCacheOptions.Default.withPackedGitLimit(256L * MiB)),
+            new Configuration("1 GiB packs, 128 MiB deltas", WindowCacheOptions.Default
+                    .withPackedGitLimit(1024L * MiB)
+                    .withDeltaBaseCacheLimit(128 * MiB)),
+            new Configuration("1 GiB packs, 128 MiB deltas, mmap", WindowCacheOptions.Default
+                    .withPackedGitLimit(1024L * MiB)
+                    .withDeltaBaseCacheLimit(128 * MiB)
+                    .withPackedGitMMAP(true)),
+            new Configuration("128 MiB stream threshold", WindowCacheOptions.Default.withStreamFileThreshold(128 * MiB))
+    );
+
+    public static void main(String[] args) {
+        final Path repoPath = args.length > 0 ? Path.of(args[0]) : Path.of("..", "DiffDetectiveMining", "linux");
+        final int numberOfCommits = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_NUMBER_OF_COMMITS;
+
+        final GitDiffer differForCommits = new GitDiffer(open(repoPath, WindowCacheOptions.Default));
+        final List<ObjectId> commits = differForCommits.yieldRevCommits().toList().stream()
+                .limit(numberOfCommits)
+                .map(RevCommit::copy)
+                .toList();
+        differForCommits.getJGitRepo().close();
+        Logger.info("Benchmarking {} commits of {}", commits.size(), repoPath);
+
+        for (int run = 0; run < RUNS; ++run) {
+            for (final Configuration configuration : CONFIGURATIONS) {
+                measure(configuration, repoPath, commits);
+            }
+        }
+    }
+
+    private static Repository open(final Path repoPath, final WindowCacheOptions options) {
+        return Repository
+                .fromDirectory(repoPath, repoPath.getFileName().toString())
+                .setDiffFilter(DatasetFactory.DEFAULT_DIFF_FILTER)
+                .setWindowCacheOptions(options);
+    }
+
+    private static void measure(final Configuration configuration, final Path repoPath, final List<ObjectId> commits) {
+        final Repository repo = open(repoPath, configuration.options());
+        final GitDiffer differ = new GitDiffer(repo);
+
+        System.gc();
+        final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        final Clock clock = new Clock();
+        try (final GitDiffer.Session session = differ.openSession()) {
+            for (final ObjectId commit : commits) {
+                session.createCommitDiff(session.getRevWalk().parseCommit(commit));
+            }
+        } catch (IOException e) {
+            Logger.error(e, "Could not parse a commit");
+            return;
+        } finally {
+            differ.getJGitRepo().close();
+        }
+        final double seconds = clock.getPassedSeconds();
+        final long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+        Logger.info("{}: {} commits in {} ({} commits/s, peak heap {} MiB)",
+                configuration.name(),
+                commits.size(),
+                Clock.printPassedSeconds(seconds),
+                String.format("%.2f", commits.size() / seconds),
+                peakHeap / MiB);
+    }
+}
@@ -0,0 +1,45 @@
+import org.junit.Assert;
+import org.junit.Test;
+import org.variantsync.diffdetective.parallel.WorkStealingScheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class WorkStealingSchedulerTest {
+    private record Batch(int from, int to) {}
+
+    @Test
+    public void processesAlignedBatchesExactlyOnce() {
+        for (final int numberOfItems : List.of(0, 1, 7, 64, 1001)) {
+            final AtomicIntegerArray processed = new AtomicIntegerArray(numberOfItems);
+            final List<Batch> batches = new ArrayList<>();
+
+            new WorkStealingScheduler<Batch>(4, 8, (from, to) -> {
+                for (int i = from; i < to; ++i) {
+                    processed.incrementAndGet(i);
+                }
+                return new Batch(from, to);
+            }, batches::add).run(numberOfItems);
+
+            for (int i = 0; i < numberOfItems; ++i) {
+                Assert.assertEquals(1, processed.get(i));
+            }
+            Assert.assertEquals((numberOfItems + 7) / 8, batches.size());
+            for (final Batch batch : batches) {
+                Assert.assertEquals(0, batch.from() % 8);
+                Assert.assertEquals(Math.min(batch.from() + 8, numberOfItems), batch.to());
+            }
+        }
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void failingBatchesAreReported() {
+        new WorkStealingScheduler<Integer>(2, 1, (from, to) -> {
+            if (from == 3) {
+                throw new Exception("batch " + from + " failed");
+            }
+            return from;
+        }, result -> {}).run(10);
+    }
+}
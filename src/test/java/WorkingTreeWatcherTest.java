@@ -0,0 +1,103 @@
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.variantsync.diffdetective.analysis.WorkingTreeWatcher;
+import org.variantsync.diffdetective.datasets.Repository;
+import org.variantsync.diffdetective.diff.CommitDiff;
+import org.variantsync.diffdetective.diff.PatchDiff;
+import org.variantsync.diffdetective.metadata.ElementaryPatternCount;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class WorkingTreeWatcherTest {
+    private static final String BEFORE = "int x;\n";
+    private static final String AFTER = "int x;\n#ifdef A\nint y;\n#endif\n";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path workTree;
+    private Repository repository;
+
+    @Before
+    public void setUp() throws IOException, GitAPIException {
+        workTree = temporaryFolder.getRoot().toPath();
+        try (Git git = Git.init().setDirectory(workTree.toFile()).call()) {
+            Files.writeString(workTree.resolve("a.c"), BEFORE, StandardCharsets.UTF_8);
+            Files.createDirectories(workTree.resolve("src"));
+            Files.writeString(workTree.resolve("src").resolve("b.c"), BEFORE, StandardCharsets.UTF_8);
+            git.add().addFilepattern(".").call();
+            git.commit().setMessage("initial").call();
+        }
+        repository = Repository.fromDirectory(workTree, "watched");
+    }
+
+    @After
+    public void tearDown() {
+        repository.getGitRepo().run().close();
+    }
+
+    private static int totalPatternCount(final ElementaryPatternCount count) {
+        return count.getOccurences().values().stream().mapToInt(ElementaryPatternCount.Occurrences::getTotalAmount).sum();
+    }
+
+    private static List<String> changedFiles(final WorkingTreeWatcher.Update update) {
+        final CommitDiff commitDiff = update.diff().diff().orElseThrow();
+        return commitDiff.getPatchDiffs().stream().map(PatchDiff::getFileName).toList();
+    }
+
+    @Test
+    public void diffsOnlyGivenPaths() throws IOException {
+        Files.writeString(workTree.resolve("a.c"), AFTER, StandardCharsets.UTF_8);
+        Files.writeString(workTree.resolve("src").resolve("b.c"), AFTER, StandardCharsets.UTF_8);
+
+        try (WorkingTreeWatcher watcher = new WorkingTreeWatcher(repository, update -> {})) {
+            final WorkingTreeWatcher.Update update = watcher.diff(List.of("a.c"));
+            Assert.assertEquals(List.of(), update.diff().errors());
+            Assert.assertEquals(List.of("a.c"), changedFiles(update));
+            Assert.assertEquals(2, totalPatternCount(update.elementaryPatternCounts()));
+
+            Assert.assertEquals(List.of("src/b.c"), changedFiles(watcher.diff(List.of("src"))));
+            Assert.assertEquals(2, changedFiles(watcher.diff(List.of(""))).size());
+            Assert.assertEquals(List.of(), changedFiles(watcher.diff(List.of())));
+        }
+    }
+
+    @Test
+    public void reportsSavedFiles() throws IOException, InterruptedException {
+        final BlockingQueue<WorkingTreeWatcher.Update> updates = new LinkedBlockingQueue<>();
+        final Thread watchThread;
+        try (WorkingTreeWatcher watcher = new WorkingTreeWatcher(repository, updates::add)) {
+            watchThread = new Thread(() -> {
+                try {
+                    watcher.watch();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            watchThread.start();
+
+            Files.writeString(workTree.resolve("src").resolve("b.c"), AFTER, StandardCharsets.UTF_8);
+
+            final WorkingTreeWatcher.Update update = updates.poll(30, TimeUnit.SECONDS);
+            Assert.assertNotNull("No update within 30 seconds", update);
+            Assert.assertTrue(update.changedPaths().contains("src/b.c"));
+            Assert.assertEquals(List.of("src/b.c"), changedFiles(update));
+        }
+
+        watchThread.join(TimeUnit.SECONDS.toMillis(30));
+        Assert.assertFalse(watchThread.isAlive());
+    }
+}